@@ -0,0 +1,66 @@
+package com.example.andromeda.benchmarks;
+
+import com.example.andromeda.DoubleRingBuffer;
+import com.example.andromeda.Downsampler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heart-rate chart data path: appending samples to the ring buffer and reducing a full day of
+ * 1 Hz samples to one min/max pair per pixel column for a redraw.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ChartIngestionBenchmark {
+
+    private static final int DAY = 24 * 60 * 60;
+    private static final int BATCH = 1_000;
+    private static final int COLUMNS = 800;
+
+    private DoubleRingBuffer buffer;
+    private double[] outTimes;
+    private double[] outValues;
+    private double clock;
+
+    @Setup
+    public void setUp() {
+        buffer = new DoubleRingBuffer(DAY);
+        for (int i = 0; i < DAY; i++) {
+            buffer.add(i, 60 + 20 * Math.sin(i / 600.0));
+        }
+        clock = DAY;
+        outTimes = new double[2 * COLUMNS];
+        outValues = new double[2 * COLUMNS];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int appendSamples() {
+        for (int i = 0; i < BATCH; i++) {
+            buffer.add(clock++, 72);
+        }
+        return buffer.size();
+    }
+
+    @Benchmark
+    public int downsampleFullDay() {
+        double end = buffer.timeAt(buffer.size() - 1);
+        double start = end - DAY;
+        return Downsampler.minMax(buffer, 0, buffer.size(), start, end, COLUMNS, outTimes, outValues);
+    }
+}
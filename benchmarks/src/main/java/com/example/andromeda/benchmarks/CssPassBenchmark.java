@@ -0,0 +1,182 @@
+package com.example.andromeda.benchmarks;
+
+import com.example.andromeda.Theme;
+import javafx.css.CssParser;
+import javafx.css.Stylesheet;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Hyperlink;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSS work behind a login-sized form: a brand pane and a form pane with labels, links, fields and
+ * a button, repeated {@link #FORMS} times.
+ *
+ * {@code inlineStylesPass} / {@code styleClassesPass} time one CSS pass over already built nodes,
+ * as run in a pulse after a style change. {@code inlineStylesBuild} / {@code styleClassesBuild}
+ * also build the nodes and style them for the first time, as when a screen is first shown.
+ * The inline variants reproduce the nodes as LoginApp built them before {@link Theme}: the text
+ * stylesheet plus a {@code setStyle} on most nodes. {@code parseTextStylesheet} and
+ * {@code loadBinaryStylesheet} compare parsing {@code styles.css} with loading the
+ * {@code styles.bss} the build compiles from it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dglass.platform=Monocle", "-Dmonocle.platform=Headless", "-Dprism.order=sw"})
+@State(Scope.Thread)
+public class CssPassBenchmark {
+
+    private static final int FORMS = 20;
+    private static final String PRIMARY_COLOR = "#3498db";
+    private static final String SECONDARY_COLOR = "#ffffff";
+
+    private URL textStylesheet;
+    private URL binaryStylesheet;
+    private Scene inlineScene;
+    private Scene themedScene;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        FxToolkit.start();
+        textStylesheet = Theme.class.getResource("/styles.css");
+        binaryStylesheet = Theme.class.getResource("/styles.bss");
+        if (binaryStylesheet == null) {
+            throw new IllegalStateException("styles.bss missing; build the app module first");
+        }
+        inlineScene = inlineStyledScene();
+        themedScene = themedScene();
+        inlineScene.getRoot().applyCss();
+        themedScene.getRoot().applyCss();
+    }
+
+    @Benchmark
+    public Object inlineStylesPass() {
+        return restyle(inlineScene);
+    }
+
+    @Benchmark
+    public Object styleClassesPass() {
+        return restyle(themedScene);
+    }
+
+    @Benchmark
+    public Object inlineStylesBuild() {
+        Scene scene = inlineStyledScene();
+        scene.getRoot().applyCss();
+        return scene;
+    }
+
+    @Benchmark
+    public Object styleClassesBuild() {
+        Scene scene = themedScene();
+        scene.getRoot().applyCss();
+        return scene;
+    }
+
+    @Benchmark
+    public Object parseTextStylesheet() throws IOException {
+        return new CssParser().parse(textStylesheet);
+    }
+
+    @Benchmark
+    public Object loadBinaryStylesheet() throws IOException {
+        return Stylesheet.loadBinary(binaryStylesheet);
+    }
+
+    /**
+     * Toggling a style class on the root marks the whole tree for a full CSS pass.
+     */
+    private static Node restyle(Scene scene) {
+        Node root = scene.getRoot();
+        if (!root.getStyleClass().remove("benchmark-toggle")) {
+            root.getStyleClass().add("benchmark-toggle");
+        }
+        root.applyCss();
+        return root;
+    }
+
+    private Scene inlineStyledScene() {
+        VBox root = new VBox();
+        for (int i = 0; i < FORMS; i++) {
+            VBox brand = new VBox(30);
+            brand.setStyle("-fx-background-color: " + PRIMARY_COLOR + ";");
+            Label title = new Label("Andromeda Healthcare");
+            title.getStyleClass().add("title-label");
+            title.setStyle("-fx-text-fill: " + SECONDARY_COLOR + ";");
+            Label subtitle = new Label("Healthcare Management System");
+            subtitle.getStyleClass().add("subtitle-label");
+            subtitle.setStyle("-fx-text-fill: " + SECONDARY_COLOR + ";");
+            brand.getChildren().addAll(title, subtitle);
+
+            VBox form = new VBox(30);
+            form.setStyle("-fx-background-color: " + SECONDARY_COLOR + ";");
+            Hyperlink link = new Hyperlink("CREATE ACCOUNT");
+            link.getStyleClass().add("create-account-link");
+            link.setStyle("-fx-text-fill: " + PRIMARY_COLOR + ";");
+            Label heading = new Label("Log into Andromeda");
+            heading.getStyleClass().add("login-label");
+            heading.setStyle("-fx-text-fill: " + PRIMARY_COLOR + ";");
+            TextField email = new TextField();
+            email.getStyleClass().add("text-field");
+            Button signIn = new Button("SIGN IN");
+            signIn.getStyleClass().add("sign-in-button");
+            signIn.setStyle("-fx-background-color: " + PRIMARY_COLOR + "; -fx-text-fill: " + SECONDARY_COLOR + ";");
+            form.getChildren().addAll(link, heading, email, signIn);
+
+            root.getChildren().add(new HBox(brand, form));
+        }
+        Scene scene = new Scene(root);
+        scene.getStylesheets().add(textStylesheet.toExternalForm());
+        return scene;
+    }
+
+    private static Scene themedScene() {
+        VBox root = new VBox();
+        for (int i = 0; i < FORMS; i++) {
+            VBox brand = new VBox(30);
+            brand.getStyleClass().add("brand-pane");
+            Label title = new Label("Andromeda Healthcare");
+            title.getStyleClass().add("title-label");
+            Label subtitle = new Label("Healthcare Management System");
+            subtitle.getStyleClass().add("subtitle-label");
+            brand.getChildren().addAll(title, subtitle);
+
+            VBox form = new VBox(30);
+            form.getStyleClass().add("form-pane");
+            Hyperlink link = new Hyperlink("CREATE ACCOUNT");
+            link.getStyleClass().add("create-account-link");
+            Label heading = new Label("Log into Andromeda");
+            heading.getStyleClass().add("login-label");
+            TextField email = new TextField();
+            email.getStyleClass().add("text-field");
+            Button signIn = new Button("SIGN IN");
+            signIn.getStyleClass().add("sign-in-button");
+            form.getChildren().addAll(link, heading, email, signIn);
+
+            root.getChildren().add(new HBox(brand, form));
+        }
+        Scene scene = new Scene(root);
+        Theme.apply(scene);
+        return scene;
+    }
+}
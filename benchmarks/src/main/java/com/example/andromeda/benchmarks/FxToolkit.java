@@ -0,0 +1,32 @@
+package com.example.andromeda.benchmarks;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the JavaFX toolkit once per benchmark JVM. Controls cannot be constructed before the
+ * toolkit is up, even when they are never shown. Benchmarks fork with the headless Monocle
+ * glass platform ({@code -Dglass.platform=Monocle -Dmonocle.platform=Headless}).
+ */
+final class FxToolkit {
+
+    private static boolean started;
+
+    private FxToolkit() {
+    }
+
+    static synchronized void start() throws InterruptedException {
+        if (started) {
+            return;
+        }
+        CountDownLatch latch = new CountDownLatch(1);
+        Platform.startup(latch::countDown);
+        if (!latch.await(30, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("JavaFX toolkit did not start");
+        }
+        Platform.setImplicitExit(false);
+        started = true;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.andromeda.benchmarks;
+
+import com.example.andromeda.JsonStreamReader;
+import com.example.andromeda.Patient;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * org.json work done around every auth call and patient page, as in LoginApp.handleLogin,
+ * RegistrationForm.handleRegistration and RemotePatientDataSource.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonBenchmark {
+
+    private String errorBody;
+    private String userBody;
+    private String patientPageBody;
+
+    @Setup
+    public void setUp() {
+        errorBody = new JSONObject().put("message", "Login failed. Please check your credentials.").toString();
+        userBody = new JSONObject()
+                .put("id", 42)
+                .put("fullName", "Ama Mensah")
+                .put("email", "ama.mensah@example.com")
+                .put("username", "amensah")
+                .toString();
+        JSONArray patients = new JSONArray();
+        for (int i = 0; i < 100; i++) {
+            patients.put(new JSONObject().put("id", i).put("fullName", "Patient " + i));
+        }
+        patientPageBody = new JSONObject().put("total", 100_000).put("patients", patients).toString();
+    }
+
+    @Benchmark
+    public String buildLoginRequest() {
+        JSONObject json = new JSONObject();
+        json.put("email", "ama.mensah@example.com");
+        json.put("password", "correct horse battery staple");
+        return json.toString();
+    }
+
+    @Benchmark
+    public String buildRegistrationRequest() {
+        JSONObject json = new JSONObject();
+        json.put("fullName", "Ama Mensah");
+        json.put("email", "ama.mensah@example.com");
+        json.put("username", "amensah");
+        json.put("password", "correct horse battery staple");
+        return json.toString();
+    }
+
+    @Benchmark
+    public String parseErrorResponse() {
+        return new JSONObject(errorBody).optString("message", "Login failed. Please check your credentials.");
+    }
+
+    @Benchmark
+    public String parseCurrentUser() {
+        return new JSONObject(userBody).getString("fullName");
+    }
+
+    @Benchmark
+    public void parsePatientPage(Blackhole blackhole) {
+        JSONArray items = new JSONObject(patientPageBody).getJSONArray("patients");
+        for (int i = 0; i < items.length(); i++) {
+            blackhole.consume(Patient.fromJson(items.getJSONObject(i)));
+        }
+    }
+
+    @Benchmark
+    public void streamPatientPage(Blackhole blackhole) {
+        JsonStreamReader reader = new JsonStreamReader(new StringReader(patientPageBody));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("patients")) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    blackhole.consume(Patient.fromJson(reader));
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+}
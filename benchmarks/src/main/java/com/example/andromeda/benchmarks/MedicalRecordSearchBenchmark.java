@@ -0,0 +1,86 @@
+package com.example.andromeda.benchmarks;
+
+import com.example.andromeda.MedicalRecord;
+import com.example.andromeda.MedicalRecordIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Medical Records tab search: BM25 queries over {@code records} synthetic clinical notes of
+ * about 120 words, as the workstation's {@link MedicalRecordIndex} would hold them, and the
+ * cost of indexing one more synced note.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MedicalRecordSearchBenchmark {
+
+    private static final String[] VOCABULARY = {
+            "hypertension", "metformin", "diabetes", "asthma", "insulin", "fever", "cough", "chest", "pain",
+            "renal", "hepatic", "statin", "aspirin", "blood", "pressure", "glucose", "mri", "xray", "normal",
+            "follow", "up", "weeks", "dose", "increased", "reduced", "stable", "reviewed", "patient", "reports",
+            "denies", "history", "allergy", "penicillin", "lisinopril", "amlodipine", "hba1c", "cholesterol"};
+
+    @Param({"10000", "50000"})
+    public int records;
+
+    private MedicalRecordIndex index;
+    private Random random;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        index = new MedicalRecordIndex();
+        for (next = 0; next < records; next++) {
+            index.put(note(next));
+        }
+    }
+
+    @Benchmark
+    public Object searchAllPatients() {
+        return index.search("hypertension metformin", null, 50);
+    }
+
+    @Benchmark
+    public Object searchOnePatient() {
+        return index.search("hypertension metformin", "patient-7", 50);
+    }
+
+    @Benchmark
+    public Object searchRareTerm() {
+        return index.search("penicillin allergy", null, 50);
+    }
+
+    @Benchmark
+    public Object indexSyncedNote() {
+        index.put(note(next++));
+        return index;
+    }
+
+    private MedicalRecord note(int i) {
+        StringBuilder text = new StringBuilder();
+        for (int word = 0; word < 120; word++) {
+            // Skewed towards the start of the vocabulary, as real notes repeat a few common terms
+            int pick = (int) (VOCABULARY.length * Math.pow(random.nextDouble(), 2));
+            text.append(VOCABULARY[pick]).append(' ');
+        }
+        return new MedicalRecord("record-" + i, "patient-" + (i % 2_000), i % 3 == 0 ? "report" : "note",
+                "Visit " + i, text.toString(), i, 1, false);
+    }
+}
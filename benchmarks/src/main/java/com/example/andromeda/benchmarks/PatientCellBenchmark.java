@@ -0,0 +1,102 @@
+package com.example.andromeda.benchmarks;
+
+import com.example.andromeda.Patient;
+import com.example.andromeda.PatientListCell;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.HBox;
+import javafx.scene.paint.Color;
+import org.kordamp.ikonli.fontawesome5.FontAwesomeSolid;
+import org.kordamp.ikonli.javafx.FontIcon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rebinding a patient list cell to a new row, as happens for every row scrolled into view.
+ *
+ * {@code legacyCell} reproduces the original cell factory that built a new HBox, FontIcon and
+ * Label (plus an inline style) on every update; {@code reusingCell} is {@link PatientListCell}.
+ * Run with {@code -prof gc} and compare {@code gc.alloc.rate.norm} (bytes per update).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dglass.platform=Monocle", "-Dmonocle.platform=Headless", "-Dprism.order=sw"})
+@State(Scope.Thread)
+public class PatientCellBenchmark {
+
+    private static final int ROWS = 1_000;
+
+    private ListView<Patient> listView;
+    private ListCell<Patient> legacyCell;
+    private ListCell<Patient> reusingCell;
+    private int index;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        FxToolkit.start();
+        ObservableList<Patient> patients = FXCollections.observableArrayList();
+        for (int i = 0; i < ROWS; i++) {
+            patients.add(new Patient(String.valueOf(i), "Patient " + i));
+        }
+        listView = new ListView<>(patients);
+
+        legacyCell = new LegacyPatientCell();
+        legacyCell.updateListView(listView);
+        reusingCell = new PatientListCell();
+        reusingCell.updateListView(listView);
+    }
+
+    @Benchmark
+    public Object legacyCell() {
+        index = (index + 1) % ROWS;
+        legacyCell.updateIndex(index);
+        return legacyCell.getGraphic();
+    }
+
+    @Benchmark
+    public Object reusingCell() {
+        index = (index + 1) % ROWS;
+        reusingCell.updateIndex(index);
+        return reusingCell.getGraphic();
+    }
+
+    /** The cell factory body PatientScreen used before PatientListCell. */
+    static final class LegacyPatientCell extends ListCell<Patient> {
+        @Override
+        protected void updateItem(Patient item, boolean empty) {
+            super.updateItem(item, empty);
+            if (empty || item == null) {
+                setText(null);
+                setGraphic(null);
+            } else {
+                HBox cellContent = new HBox(10);
+                cellContent.setAlignment(Pos.CENTER_LEFT);
+
+                FontIcon userIcon = new FontIcon(FontAwesomeSolid.USER);
+                userIcon.setIconColor(Color.gray(0.6));
+
+                Label nameLabel = new Label(item.getFullName());
+                nameLabel.setStyle("-fx-font-weight: bold;");
+
+                cellContent.getChildren().addAll(userIcon, nameLabel);
+                setGraphic(cellContent);
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.andromeda.benchmarks;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold-start benchmark: launches the login screen in fresh JVMs and measures wall-clock time
+ * from process spawn until the app reports the login form on screen
+ * ({@code -Dandromeda.startup.probe=true} makes {@code LoginApp} print that and exit).
+ *
+ * Variants, each skipped when its inputs are missing:
+ * <ul>
+ *   <li>{@code module-path}: the plain jars on {@code -Dandromeda.modulepath}, JDK CDS only</li>
+ *   <li>{@code jlink-no-cds}: the jlink image with class data sharing switched off</li>
+ *   <li>{@code jlink-cds}: the jlink image with the archive built by {@code mvn -Pstartup package}</li>
+ * </ul>
+ *
+ * Usage: {@code StartupBenchmark [runs] [results.json]}. The image is read from
+ * {@code -Dandromeda.image} (default {@code ../target/app}); extra JVM flags for every launch,
+ * such as a headless glass platform, go in {@code -Dstartup.jvmArgs}.
+ */
+public class StartupBenchmark {
+
+    private static final String MAIN_MODULE = "com.example.andromeda/com.example.andromeda.LoginApp";
+    private static final String READY_MARKER = "andromeda.startup.readyMs=";
+    private static final int WARMUP_RUNS = 2;
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        Path output = Path.of(args.length > 1 ? args[1] : "target/startup.json");
+        Path image = Path.of(System.getProperty("andromeda.image", "../target/app"));
+        String modulePath = System.getProperty("andromeda.modulepath");
+        List<String> jvmArgs = splitArgs(System.getProperty("startup.jvmArgs", ""));
+
+        Map<String, List<String>> variants = new LinkedHashMap<>();
+        if (modulePath != null && !modulePath.isBlank()) {
+            variants.put("module-path", command(Path.of(System.getProperty("java.home"), "bin", "java"),
+                    jvmArgs, "-p", modulePath));
+        }
+        Path imageJava = image.resolve("bin").resolve("java");
+        if (Files.isExecutable(imageJava)) {
+            variants.put("jlink-no-cds", command(imageJava, jvmArgs, "-Xshare:off"));
+            if (Files.isRegularFile(image.resolve("lib/server/classes.jsa"))) {
+                variants.put("jlink-cds", command(imageJava, jvmArgs, "-Xshare:on"));
+            } else {
+                System.err.println("No CDS archive in " + image + "; build it with mvn -Pstartup package");
+            }
+        } else {
+            System.err.println("No jlink image at " + image + "; build it with mvn -Pstartup package");
+        }
+        if (variants.isEmpty()) {
+            System.err.println("Nothing to measure");
+            System.exit(2);
+        }
+
+        JSONObject results = new JSONObject().put("runs", runs);
+        for (Map.Entry<String, List<String>> variant : variants.entrySet()) {
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                launch(variant.getValue());
+            }
+            double[] wall = new double[runs];
+            double[] reported = new double[runs];
+            for (int i = 0; i < runs; i++) {
+                double[] sample = launch(variant.getValue());
+                wall[i] = sample[0];
+                reported[i] = sample[1];
+            }
+            Arrays.sort(wall);
+            Arrays.sort(reported);
+            results.put(variant.getKey(), new JSONObject()
+                    .put("command", new JSONArray(variant.getValue()))
+                    .put("wallMedianMs", wall[runs / 2])
+                    .put("wallMinMs", wall[0])
+                    .put("wallMaxMs", wall[runs - 1])
+                    .put("reportedMedianMs", reported[runs / 2]));
+            System.out.printf("%-14s median %7.1f ms  min %7.1f ms  max %7.1f ms%n",
+                    variant.getKey(), wall[runs / 2], wall[0], wall[runs - 1]);
+        }
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        Files.writeString(output, results.toString(2), StandardCharsets.UTF_8);
+        System.out.println("Results written to " + output);
+    }
+
+    private static List<String> command(Path java, List<String> jvmArgs, String... extra) {
+        List<String> command = new ArrayList<>();
+        command.add(java.toString());
+        command.addAll(Arrays.asList(extra));
+        command.addAll(jvmArgs);
+        command.add("-Dandromeda.startup.probe=true");
+        command.add("-m");
+        command.add(MAIN_MODULE);
+        return command;
+    }
+
+    /**
+     * Returns {wall-clock ms until the ready marker, ms the app itself reported}.
+     */
+    private static double[] launch(List<String> command) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        double wall = -1;
+        double reported = -1;
+        StringBuilder log = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (wall < 0 && line.startsWith(READY_MARKER)) {
+                    wall = (System.nanoTime() - start) / 1_000_000.0;
+                    reported = Double.parseDouble(line.substring(READY_MARKER.length()).trim());
+                } else {
+                    log.append(line).append(System.lineSeparator());
+                }
+            }
+        }
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+        if (wall < 0) {
+            throw new IllegalStateException("Login screen never became ready: " + command + System.lineSeparator() + log);
+        }
+        return new double[]{wall, reported};
+    }
+
+    private static List<String> splitArgs(String args) {
+        List<String> result = new ArrayList<>();
+        for (String arg : args.trim().split("\\s+")) {
+            if (!arg.isEmpty()) {
+                result.add(arg);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.andromeda.benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * In-process fake of the Andromeda backend with deterministic data, for harnesses that drive the
+ * real screens: current user, a paged patient directory with search, a day of heart-rate history
+ * and the live vitals stream.
+ */
+public class StubBackend {
+
+    private final HttpServer server;
+    private final int patientCount;
+    private final String heartRateHistory;
+
+    public StubBackend(int patientCount, double vitalsPerSecond) throws IOException {
+        this.patientCount = patientCount;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.heartRateHistory = buildHeartRateHistory(24 * 60 * 60);
+        server.setExecutor(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-backend");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.createContext("/api/user/current", exchange ->
+                respond(exchange, 200, new JSONObject().put("fullName", "Test Clinician").toString()));
+        server.createContext("/api/patients", this::patients);
+        server.createContext("/api/vitals/heart-rate", exchange -> respond(exchange, 200, heartRateHistory));
+        new VitalsReplayServer(server, vitalsPerSecond, List.of());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void patients(HttpExchange exchange) throws IOException {
+        URI uri = exchange.getRequestURI();
+        if (!uri.getPath().equals("/api/patients")) {
+            // Photos and other sub-resources do not exist
+            respond(exchange, 404, "{}");
+            return;
+        }
+        Map<String, String> query = query(uri);
+        int limit = Integer.parseInt(query.getOrDefault("limit", "100"));
+        JSONArray patients = new JSONArray();
+        if (query.containsKey("q")) {
+            String q = query.get("q").toLowerCase();
+            for (int i = 0; i < patientCount && patients.length() < limit; i++) {
+                if (name(i).toLowerCase().contains(q)) {
+                    patients.put(patient(i));
+                }
+            }
+        } else {
+            int offset = Integer.parseInt(query.getOrDefault("offset", "0"));
+            for (int i = offset; i < Math.min(patientCount, offset + limit); i++) {
+                patients.put(patient(i));
+            }
+        }
+        respond(exchange, 200, new JSONObject().put("total", patientCount).put("patients", patients).toString());
+    }
+
+    private static JSONObject patient(int i) {
+        return new JSONObject().put("id", String.valueOf(i)).put("fullName", name(i));
+    }
+
+    private static String name(int i) {
+        String[] first = {"Ama", "Kofi", "Esi", "Kwame", "Abena", "Yaw", "Akosua", "Kojo"};
+        String[] last = {"Mensah", "Owusu", "Boateng", "Asante", "Osei", "Adjei", "Appiah", "Darko"};
+        return first[i % first.length] + " " + last[(i / first.length) % last.length] + " " + i;
+    }
+
+    private static String buildHeartRateHistory(int seconds) {
+        long now = System.currentTimeMillis() / 1000;
+        JSONArray timestamps = new JSONArray();
+        JSONArray values = new JSONArray();
+        for (int i = 0; i < seconds; i++) {
+            timestamps.put(now - seconds + i);
+            values.put(60 + (int) (20 * Math.sin(i / 600.0)));
+        }
+        return new JSONObject().put("timestamps", timestamps).put("values", values).toString();
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        String raw = uri.getQuery();
+        if (raw != null) {
+            for (String pair : raw.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    params.put(pair.substring(0, eq), pair.substring(eq + 1));
+                }
+            }
+        }
+        return params;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
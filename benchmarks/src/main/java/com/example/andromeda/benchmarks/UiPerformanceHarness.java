@@ -0,0 +1,246 @@
+package com.example.andromeda.benchmarks;
+
+import com.example.andromeda.MainHome;
+import com.example.andromeda.PatientScreen;
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders the real screens on the headless Monocle platform against a {@link StubBackend} and
+ * checks them against the budgets in {@code ui-budgets.properties}.
+ *
+ * Measured per navigation, all on the FX thread: building/swapping the screen, an explicit CSS
+ * pass, an explicit layout pass, the time until the following pulse has run, the scene's node
+ * count and the bytes the FX thread allocated until that pulse. Time-to-first-frame is measured
+ * from {@code MainHome.start} to the first pulse of its scene.
+ *
+ * Usage: {@code UiPerformanceHarness [results.json] [budgets.properties]}. Exits with status 1
+ * when a budget is exceeded and 2 when the harness itself fails, so it can gate a build (see
+ * the {@code ui-perf} profile).
+ */
+public class UiPerformanceHarness {
+
+    private static final String[] NAVIGATIONS = {"Patients", "Dashboard", "Patients", "Dashboard", "Patients"};
+
+    private final Properties budgets;
+    private final List<String> violations = new ArrayList<>();
+    private final JSONObject results = new JSONObject();
+
+    UiPerformanceHarness(Properties budgets) {
+        this.budgets = budgets;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path output = Path.of(args.length > 0 ? args[0] : "target/ui-perf.json");
+        Properties budgets = loadBudgets(args.length > 1 ? Path.of(args[1]) : null);
+
+        StubBackend backend = new StubBackend(100_000, 50);
+        backend.start();
+        System.setProperty("andromeda.api.url", backend.getBaseUrl());
+        System.setProperty("andromeda.cache.dir", Files.createTempDirectory("andromeda-cache").toString());
+        System.setProperty("andromeda.store.dir", Files.createTempDirectory("andromeda-store").toString());
+
+        int status;
+        try {
+            FxToolkit.start();
+            UiPerformanceHarness harness = new UiPerformanceHarness(budgets);
+            harness.run();
+            Files.createDirectories(output.toAbsolutePath().getParent());
+            Files.writeString(output, harness.results.toString(2), StandardCharsets.UTF_8);
+            System.out.println("Results written to " + output);
+            status = harness.report();
+        } catch (Exception | Error e) {
+            // The FX thread would otherwise keep the JVM alive after a failed start
+            e.printStackTrace();
+            status = 2;
+        } finally {
+            backend.stop();
+        }
+        Platform.exit();
+        System.exit(status);
+    }
+
+    void run() throws Exception {
+        MainHome mainHome = new MainHome();
+        Stage stage = onFx(Stage::new);
+
+        // Time to first frame
+        CompletableFuture<long[]> firstFrame = new CompletableFuture<>();
+        onFx(() -> {
+            long start = System.nanoTime();
+            long allocStart = allocatedBytes();
+            mainHome.start(stage);
+            whenPulsed(stage.getScene(), () -> firstFrame.complete(new long[]{
+                    System.nanoTime() - start, allocatedBytes() - allocStart}));
+            return null;
+        });
+        long[] first = firstFrame.get(30, TimeUnit.SECONDS);
+        double ttff = millis(first[0]);
+        int startupNodes = onFx(() -> countNodes(stage.getScene().getRoot()));
+        results.put("timeToFirstFrameMs", ttff);
+        results.put("startupAllocatedBytes", first[1]);
+        results.put("startupNodes", startupNodes);
+        check("ttff.ms", ttff);
+        check("nodes.max", startupNodes);
+
+        JSONArray navigations = new JSONArray();
+        List<String> visited = new ArrayList<>(List.of("Dashboard"));
+        for (String screen : NAVIGATIONS) {
+            boolean warm = visited.contains(screen);
+            visited.add(screen);
+            JSONObject sample = navigate(mainHome, stage.getScene(), screen);
+            sample.put("warm", warm);
+            navigations.put(sample);
+
+            String prefix = warm ? "navigation.warm." : "navigation.cold.";
+            check(prefix + "build.ms", sample.getDouble("buildMs"));
+            check(prefix + "css.ms", sample.getDouble("cssMs"));
+            check(prefix + "total.ms", sample.getDouble("totalMs"));
+            check(prefix + "allocated.mb", sample.getLong("allocatedBytes") / (1024.0 * 1024.0));
+            check("nodes.max", sample.getInt("nodes"));
+        }
+        results.put("navigations", navigations);
+
+        // Building a patient screen on its own, detached from any scene
+        JSONObject createContent = onFx(() -> {
+            long allocStart = allocatedBytes();
+            long start = System.nanoTime();
+            Parent content = new PatientScreen().createContent();
+            long elapsed = System.nanoTime() - start;
+            return new JSONObject()
+                    .put("ms", millis(elapsed))
+                    .put("allocatedBytes", allocatedBytes() - allocStart)
+                    .put("nodes", countNodes(content));
+        });
+        results.put("patientScreenCreateContent", createContent);
+        check("patientScreen.createContent.ms", createContent.getDouble("ms"));
+
+        onFx(() -> {
+            stage.hide();
+            return null;
+        });
+    }
+
+    private JSONObject navigate(MainHome mainHome, Scene scene, String screen) throws Exception {
+        CompletableFuture<JSONObject> done = new CompletableFuture<>();
+        onFx(() -> {
+            long allocStart = allocatedBytes();
+            long start = System.nanoTime();
+            mainHome.navigateTo(screen);
+            long built = System.nanoTime();
+            scene.getRoot().applyCss();
+            long styled = System.nanoTime();
+            scene.getRoot().layout();
+            long laidOut = System.nanoTime();
+            whenPulsed(scene, () -> {
+                long pulsed = System.nanoTime();
+                done.complete(new JSONObject()
+                        .put("screen", screen)
+                        .put("buildMs", millis(built - start))
+                        .put("cssMs", millis(styled - built))
+                        .put("layoutMs", millis(laidOut - styled))
+                        .put("pulseMs", millis(pulsed - laidOut))
+                        .put("totalMs", millis(pulsed - start))
+                        .put("nodes", countNodes(scene.getRoot()))
+                        .put("allocatedBytes", allocatedBytes() - allocStart));
+            });
+            return null;
+        });
+        return done.get(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Runs {@code action} once, right after the next layout pass of {@code scene}'s pulse.
+     */
+    private static void whenPulsed(Scene scene, Runnable action) {
+        Runnable[] listener = new Runnable[1];
+        listener[0] = () -> {
+            scene.removePostLayoutPulseListener(listener[0]);
+            action.run();
+        };
+        scene.addPostLayoutPulseListener(listener[0]);
+        Platform.requestNextPulse();
+    }
+
+    private void check(String budget, double value) {
+        String limit = budgets.getProperty(budget);
+        if (limit != null && value > Double.parseDouble(limit)) {
+            violations.add(String.format("%s = %.2f exceeds budget %s", budget, value, limit));
+        }
+    }
+
+    private int report() {
+        System.out.println(results.toString(2));
+        if (violations.isEmpty()) {
+            System.out.println("All UI performance budgets met");
+            return 0;
+        }
+        violations.forEach(v -> System.err.println("BUDGET EXCEEDED: " + v));
+        return 1;
+    }
+
+    private static int countNodes(Node node) {
+        int count = 1;
+        if (node instanceof Parent) {
+            for (Node child : ((Parent) node).getChildrenUnmodifiable()) {
+                count += countNodes(child);
+            }
+        }
+        return count;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static <T> T onFx(Callable<T> action) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                result.complete(action.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result.get(30, TimeUnit.SECONDS);
+    }
+
+    private static Properties loadBudgets(Path file) throws IOException {
+        Properties budgets = new Properties();
+        if (file != null) {
+            try (InputStream in = Files.newInputStream(file)) {
+                budgets.load(in);
+            }
+        } else {
+            try (InputStream in = UiPerformanceHarness.class.getResourceAsStream("/ui-budgets.properties")) {
+                if (in != null) {
+                    budgets.load(in);
+                }
+            }
+        }
+        return budgets;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.andromeda.benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Local stand-in for {@code GET /api/vitals/stream} that replays vitals as Server-Sent Events.
+ *
+ * Usage: {@code VitalsReplayServer [port] [eventsPerSecond] [recording.csv]}. A recording has one
+ * {@code time,metric,value} line per reading and is looped; without one, synthetic readings for
+ * all four dashboard metrics are generated. Point the client at it with
+ * {@code -Dandromeda.api.url=http://localhost:<port>}.
+ */
+public class VitalsReplayServer {
+
+    private final HttpServer server;
+    private final List<String[]> recording;
+    private final double eventsPerSecond;
+
+    public VitalsReplayServer(int port, double eventsPerSecond, List<String[]> recording) throws IOException {
+        this(HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0), eventsPerSecond, recording);
+        server.setExecutor(Executors.newCachedThreadPool());
+    }
+
+    /**
+     * Adds the stream endpoint to an existing server, e.g. {@link StubBackend}.
+     */
+    public VitalsReplayServer(HttpServer server, double eventsPerSecond, List<String[]> recording) {
+        this.eventsPerSecond = eventsPerSecond;
+        this.recording = recording;
+        this.server = server;
+        server.createContext("/api/vitals/stream", this::stream);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void stream(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        long intervalNanos = (long) (1_000_000_000L / eventsPerSecond);
+        long next = System.nanoTime();
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (long n = 0; ; n++) {
+                String[] reading = recording.isEmpty() ? synthetic(n) : recording.get((int) (n % recording.size()));
+                String event = "data: {\"metric\":\"" + reading[1] + "\",\"value\":\"" + reading[2]
+                        + "\",\"time\":" + reading[0] + "}\n\n";
+                out.write(event.getBytes(StandardCharsets.UTF_8));
+                next += intervalNanos;
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    out.flush();
+                    LockSupport.parkNanos(wait);
+                }
+            }
+        } catch (IOException e) {
+            // Client went away
+        }
+    }
+
+    private static String[] synthetic(long n) {
+        String time = String.valueOf(System.currentTimeMillis() / 1000.0);
+        switch ((int) (n % 4)) {
+            case 0:
+                return new String[]{time, "heartRate", String.valueOf(60 + (int) (Math.random() * 40))};
+            case 1:
+                return new String[]{time, "bloodPressure", (105 + (int) (Math.random() * 20)) + "/" + (65 + (int) (Math.random() * 15))};
+            case 2:
+                return new String[]{time, "glucose", String.valueOf(70 + (int) (Math.random() * 30))};
+            default:
+                return new String[]{time, "bloodCount", String.format("%,d", 9000 + (int) (Math.random() * 1000))};
+        }
+    }
+
+    static List<String[]> readRecording(Path file) throws IOException {
+        List<String[]> readings = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String[] parts = line.split(",", 3);
+            if (parts.length == 3 && !line.startsWith("#")) {
+                readings.add(parts);
+            }
+        }
+        return readings;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        double rate = args.length > 1 ? Double.parseDouble(args[1]) : 1_000;
+        List<String[]> recording = args.length > 2 ? readRecording(Path.of(args[2])) : List.of();
+        VitalsReplayServer server = new VitalsReplayServer(port, rate, recording);
+        server.start();
+        System.out.println("Replaying vitals at " + rate + " events/s on http://127.0.0.1:" + server.getPort()
+                + "/api/vitals/stream");
+    }
+}
@@ -0,0 +1,381 @@
+package com.example.andromeda;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-process aggregation over primitive columns: count, mean, min/max and percentiles, overall
+ * or per cohort.
+ *
+ * A scan splits the rows into chunks of {@value #CHUNK_ROWS} and runs them as fork-join tasks
+ * on a pool that leaves one core to the FX thread. Each chunk aggregates into its own
+ * {@link Summary}, which is then merged into the running total; at most every
+ * {@value #PUBLISH_INTERVAL_MILLIS} ms the listener receives a copy of that total, so screens
+ * can show approximate figures long before a scan over millions of rows is done. Percentiles
+ * come from a fixed-width histogram and are exact to one bin width. Cancelling the returned
+ * future stops the remaining chunks.
+ */
+public class AnalyticsEngine {
+
+    private static final Logger LOGGER = Logger.getLogger(AnalyticsEngine.class.getName());
+    private static final int CHUNK_ROWS = 1 << 16;
+    private static final long PUBLISH_INTERVAL_MILLIS = 100;
+    private static final double HEART_RATE_MAX = 250;
+    private static final int HEART_RATE_BINS = 2_500;
+
+    private static volatile AnalyticsEngine instance;
+
+    private final ForkJoinPool pool;
+
+    public AnalyticsEngine(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public static AnalyticsEngine getInstance() {
+        AnalyticsEngine local = instance;
+        if (local == null) {
+            synchronized (AnalyticsEngine.class) {
+                local = instance;
+                if (local == null) {
+                    local = new AnalyticsEngine(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * Aggregates {@code values[0..count)} into a single group named {@code "all"}.
+     *
+     * @param partial receives intermediate results on a pool thread; may be null
+     */
+    public CompletableFuture<Result> summarize(double[] values, int count, double lo, double hi, int bins,
+                                               Consumer<Result> partial) {
+        return run(new Scan(values, count, null, new String[]{"all"}, null, lo, hi, bins, partial));
+    }
+
+    /**
+     * Summarizes heart-rate samples (0 to {@value #HEART_RATE_MAX} bpm, in 0.1 bpm bins), for
+     * the Stats screen and the dashboard's average.
+     *
+     * @param partial receives intermediate results on a pool thread; may be null
+     */
+    public CompletableFuture<Result> summarizeHeartRate(double[] values, int count, Consumer<Result> partial) {
+        return summarize(values, count, 0, HEART_RATE_MAX, HEART_RATE_BINS, partial);
+    }
+
+    /**
+     * Aggregates the values of {@code columns} per group.
+     *
+     * @param partial receives intermediate results on a pool thread; may be null
+     */
+    public CompletableFuture<Result> groupBy(Columns columns, int bins, Consumer<Result> partial) {
+        return run(new Scan(columns.values, columns.values.length, columns.groups, columns.groupNames,
+                columns.rows, columns.lo, columns.hi, bins, partial));
+    }
+
+    private CompletableFuture<Result> run(Scan scan) {
+        long start = System.nanoTime();
+        pool.execute(() -> {
+            try {
+                new ChunkTask(scan, 0, scan.rowCount).invoke();
+                if (!scan.future.isDone()) {
+                    Result result = scan.snapshot(true);
+                    if (LOGGER.isLoggable(Level.FINE)) {
+                        LOGGER.fine(String.format("Aggregated %d rows into %d groups in %.1f ms", scan.rowCount,
+                                result.getGroups().size(), (System.nanoTime() - start) / 1_000_000.0));
+                    }
+                    scan.future.complete(result);
+                }
+            } catch (RuntimeException e) {
+                scan.future.completeExceptionally(e);
+            }
+        });
+        return scan.future;
+    }
+
+    /**
+     * Input of {@link #groupBy}: row {@code i} adds {@code values[i]} to group {@code groups[i]},
+     * for the rows set in {@code rows}. {@code lo} and {@code hi} bound the values.
+     */
+    public static final class Columns {
+
+        private final double[] values;
+        private final int[] groups;
+        private final String[] groupNames;
+        private final BitSet rows;
+        private final double lo;
+        private final double hi;
+
+        public Columns(double[] values, int[] groups, String[] groupNames, BitSet rows, double lo, double hi) {
+            this.values = values;
+            this.groups = groups;
+            this.groupNames = groupNames;
+            this.rows = rows;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        public int getRowCount() {
+            return rows.cardinality();
+        }
+    }
+
+    /**
+     * Aggregates of a scan, complete or as far as it has got.
+     */
+    public static final class Result {
+
+        private final Map<String, Summary> groups;
+        private final long rowsScanned;
+        private final long totalRows;
+        private final boolean complete;
+
+        Result(Map<String, Summary> groups, long rowsScanned, long totalRows, boolean complete) {
+            this.groups = groups;
+            this.rowsScanned = rowsScanned;
+            this.totalRows = totalRows;
+            this.complete = complete;
+        }
+
+        /**
+         * Groups with at least one value, in group order.
+         */
+        public Map<String, Summary> getGroups() {
+            return groups;
+        }
+
+        public Summary get(String group) {
+            return groups.get(group);
+        }
+
+        public double getProgress() {
+            return totalRows == 0 ? 1 : (double) rowsScanned / totalRows;
+        }
+
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+
+    /**
+     * Mergeable aggregate of a set of values. Values outside {@code [lo, hi]} count towards the
+     * edge bins, so only their percentiles are clamped; mean, min and max stay exact.
+     */
+    public static final class Summary {
+
+        private final double lo;
+        private final double hi;
+        private final long[] bins;
+        private long count;
+        private double sum;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        Summary(double lo, double hi, int bins) {
+            this.lo = lo;
+            this.hi = hi > lo ? hi : lo + 1;
+            this.bins = new long[bins];
+        }
+
+        private Summary(Summary other) {
+            this.lo = other.lo;
+            this.hi = other.hi;
+            this.bins = other.bins.clone();
+            this.count = other.count;
+            this.sum = other.sum;
+            this.min = other.min;
+            this.max = other.max;
+        }
+
+        void add(double value) {
+            if (!Double.isFinite(value)) {
+                return;
+            }
+            int bin = (int) ((value - lo) / (hi - lo) * bins.length);
+            bins[Math.max(0, Math.min(bins.length - 1, bin))]++;
+            count++;
+            sum += value;
+            if (value < min) {
+                min = value;
+            }
+            if (value > max) {
+                max = value;
+            }
+        }
+
+        void merge(Summary other) {
+            for (int i = 0; i < bins.length; i++) {
+                bins[i] += other.bins[i];
+            }
+            count += other.count;
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return count == 0 ? Double.NaN : sum / count;
+        }
+
+        public double getMin() {
+            return count == 0 ? Double.NaN : min;
+        }
+
+        public double getMax() {
+            return count == 0 ? Double.NaN : max;
+        }
+
+        /**
+         * The value below which {@code percentile} percent of the values fall, interpolated
+         * within its bin.
+         */
+        public double getPercentile(double percentile) {
+            if (count == 0) {
+                return Double.NaN;
+            }
+            double rank = Math.max(1, Math.ceil(percentile / 100.0 * count));
+            double width = (hi - lo) / bins.length;
+            long seen = 0;
+            for (int i = 0; i < bins.length; i++) {
+                if (seen + bins[i] >= rank) {
+                    double within = (rank - seen) / bins[i];
+                    return Math.max(min, Math.min(max, lo + (i + within) * width));
+                }
+                seen += bins[i];
+            }
+            return max;
+        }
+    }
+
+    private static final class Scan {
+
+        private final CompletableFuture<Result> future = new CompletableFuture<>();
+        private final double[] values;
+        private final int rowCount;
+        private final int[] groups;
+        private final String[] groupNames;
+        private final BitSet rows;
+        private final double lo;
+        private final double hi;
+        private final int bins;
+        private final Consumer<Result> partial;
+        private final Summary[] total;
+        private final long totalRows;
+        private long rowsScanned;
+        private long lastPublish = System.nanoTime();
+
+        Scan(double[] values, int rowCount, int[] groups, String[] groupNames, BitSet rows, double lo, double hi,
+             int bins, Consumer<Result> partial) {
+            this.values = values;
+            this.rowCount = rowCount;
+            this.groups = groups;
+            this.groupNames = groupNames;
+            this.rows = rows;
+            this.lo = lo;
+            this.hi = hi;
+            this.bins = bins;
+            this.partial = partial;
+            this.total = new Summary[groupNames.length];
+            this.totalRows = rows == null ? rowCount : rows.cardinality();
+        }
+
+        void scanChunk(int from, int to) {
+            // Group summaries are created on first use; a chunk rarely sees every cohort
+            Summary[] chunk = new Summary[groupNames.length];
+            long scanned = 0;
+            if (rows == null) {
+                Summary summary = chunk[0] = new Summary(lo, hi, bins);
+                for (int row = from; row < to; row++) {
+                    summary.add(values[row]);
+                }
+                scanned = to - from;
+            } else {
+                for (int row = rows.nextSetBit(from); row >= 0 && row < to; row = rows.nextSetBit(row + 1)) {
+                    int group = groups == null ? 0 : groups[row];
+                    if (chunk[group] == null) {
+                        chunk[group] = new Summary(lo, hi, bins);
+                    }
+                    chunk[group].add(values[row]);
+                    scanned++;
+                }
+            }
+            merge(chunk, scanned);
+        }
+
+        private void merge(Summary[] chunk, long scanned) {
+            Result update = null;
+            synchronized (this) {
+                for (int i = 0; i < total.length; i++) {
+                    if (chunk[i] == null) {
+                        continue;
+                    }
+                    if (total[i] == null) {
+                        total[i] = chunk[i];
+                    } else {
+                        total[i].merge(chunk[i]);
+                    }
+                }
+                rowsScanned += scanned;
+                long now = System.nanoTime();
+                if (partial != null && now - lastPublish >= PUBLISH_INTERVAL_MILLIS * 1_000_000) {
+                    lastPublish = now;
+                    update = snapshot(false);
+                }
+            }
+            if (update != null) {
+                partial.accept(update);
+            }
+        }
+
+        synchronized Result snapshot(boolean complete) {
+            Map<String, Summary> copy = new LinkedHashMap<>();
+            for (int i = 0; i < total.length; i++) {
+                if (total[i] != null && total[i].count > 0) {
+                    copy.put(groupNames[i], new Summary(total[i]));
+                }
+            }
+            return new Result(copy, rowsScanned, totalRows, complete);
+        }
+    }
+
+    private static final class ChunkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Scan scan;
+        private final int from;
+        private final int to;
+
+        ChunkTask(Scan scan, int from, int to) {
+            this.scan = scan;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (scan.future.isDone()) {
+                return;
+            }
+            if (to - from <= CHUNK_ROWS) {
+                scan.scanChunk(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ChunkTask(scan, from, mid), new ChunkTask(scan, mid, to));
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package com.example.andromeda;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import org.json.JSONObject;
+
+/**
+ * Shared client for the Andromeda backend.
+ *
+ * One {@link HttpClient} (and therefore one connection pool, one TLS session cache and one
+ * executor) is reused by every screen. All calls go through {@code sendAsync}; callers decide
+ * whether to wait on the returned future. Settings can be overridden with system properties:
+ * {@code andromeda.api.url}, {@code andromeda.api.connectTimeoutMs},
+ * {@code andromeda.api.requestTimeoutMs} and {@code andromeda.api.threads}. Cached GETs
+ * (see {@link #getCached}) keep their last known data in memory, so screens still show it
+ * while offline; only the signed-in user's profile is also kept on disk under
+ * {@code andromeda.cache.dir}, and logging out deletes it.
+ */
+public final class ApiClient {
+
+    private static final Logger LOGGER = Logger.getLogger(ApiClient.class.getName());
+    private static final String DEFAULT_API_URL = "http://localhost:8080";
+
+    private static volatile ApiClient instance;
+
+    private final String baseUrl;
+    private final Duration requestTimeout;
+    private final ExecutorService executor;
+    // Streaming parsers block on the body; kept off the client's own executor, which delivers it
+    private final ExecutorService parsers = Executors.newCachedThreadPool(new DaemonThreadFactory("andromeda-json"));
+    private final HttpClient client;
+    private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+    private final ResponseCache cache;
+    private volatile String accessToken;
+    // Identical GETs on the wire, shared with everyone who asks for the same thing meanwhile
+    private final Map<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+
+    private ApiClient(String baseUrl, Duration connectTimeout, Duration requestTimeout, int threads) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.requestTimeout = requestTimeout;
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(256), new DaemonThreadFactory("andromeda-http"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        ((ThreadPoolExecutor) executor).allowCoreThreadTimeOut(true);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+        this.cache = new ResponseCache(Integer.getInteger("andromeda.cache.maxEntries", 500),
+                Path.of(System.getProperty("andromeda.cache.dir",
+                        System.getProperty("user.home") + "/.andromeda/cache")),
+                // Patient and vitals data are never written to disk; only the user's own profile is
+                path -> path.startsWith("/api/user/"));
+        LOGGER.fine("API client created for " + this.baseUrl);
+    }
+
+    public static ApiClient getInstance() {
+        ApiClient local = instance;
+        if (local == null) {
+            synchronized (ApiClient.class) {
+                local = instance;
+                if (local == null) {
+                    local = new ApiClient(
+                            System.getProperty("andromeda.api.url", DEFAULT_API_URL),
+                            Duration.ofMillis(Long.getLong("andromeda.api.connectTimeoutMs", 5_000)),
+                            Duration.ofMillis(Long.getLong("andromeda.api.requestTimeoutMs", 15_000)),
+                            Integer.getInteger("andromeda.api.threads", 4));
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public HttpRequest.Builder newRequest(String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + path))
+                .timeout(requestTimeout)
+                .header("Content-Type", "application/json");
+        String token = accessToken;
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    /**
+     * Sets the bearer token sent with every request built by {@link #newRequest}; null sends none.
+     */
+    public void setAccessToken(String token) {
+        accessToken = token;
+    }
+
+    public CompletableFuture<HttpResponse<String>> get(String path) {
+        return singleFlight("GET " + path, path, () -> send(path, newRequest(path).GET().build()));
+    }
+
+    public CompletableFuture<HttpResponse<String>> postJson(String path, JSONObject body) {
+        HttpRequest request = newRequest(path)
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+        return send(path, request);
+    }
+
+    /**
+     * GETs {@code path} through the response cache. A fresh entry is returned without touching
+     * the network; an expired one is revalidated with {@code If-None-Match} and reused on 304, or
+     * served as is when the backend is unreachable or failing (5xx). Only 200 responses are
+     * cached; any other status fails the future with an IOException. Callers asking for a path
+     * that is already being loaded share that load.
+     */
+    public CompletableFuture<String> getCached(String path, Duration ttl) {
+        ResponseCache.Entry cached = cache.peek(path);
+        if (cached != null && cached.isFresh()) {
+            cache.recordHit();
+            return CompletableFuture.completedFuture(cached.getBody());
+        }
+        return singleFlight("CACHED " + path, endpointOf(path), () -> load(path, ttl, cached));
+    }
+
+    private CompletableFuture<String> load(String path, Duration ttl, ResponseCache.Entry cached) {
+        return CompletableFuture.supplyAsync(() -> cached != null ? cached : cache.lookup(path), executor)
+                .thenCompose(entry -> {
+                    if (entry != null && entry.isFresh()) {
+                        cache.recordHit();
+                        return CompletableFuture.completedFuture(entry.getBody());
+                    }
+                    cache.recordMiss();
+                    HttpRequest.Builder builder = newRequest(path).GET();
+                    if (entry != null && entry.getEtag() != null) {
+                        builder.header("If-None-Match", entry.getEtag());
+                    }
+                    return send(endpointOf(path), builder.build()).handle((response, error) -> {
+                        // Offline or server trouble: an old copy beats no data
+                        if (entry != null && (error != null || response.statusCode() >= 500)) {
+                            cache.recordStaleHit();
+                            LOGGER.fine("Serving stale " + path + ": "
+                                    + (error != null ? error : "status " + response.statusCode()));
+                            return entry.getBody();
+                        }
+                        if (error != null) {
+                            throw error instanceof CompletionException
+                                    ? (CompletionException) error : new CompletionException(error);
+                        }
+                        if (response.statusCode() == 304 && entry != null) {
+                            return cache.revalidated(path, entry, ttl.toMillis()).getBody();
+                        }
+                        if (response.statusCode() != 200) {
+                            throw new CompletionException(new IOException(
+                                    "GET " + path + " failed. Status code: " + response.statusCode()));
+                        }
+                        cache.put(path, response.body(), response.headers().firstValue("ETag").orElse(null),
+                                ttl.toMillis());
+                        return response.body();
+                    });
+                });
+    }
+
+    /**
+     * Like {@link #getCached}, but a 200 body is streamed through {@code parser} and only the
+     * parsed value is cached, in memory: the body is never held as a String or written to disk.
+     * An expired value is revalidated with its ETag and reused on 304, or while the backend is
+     * unreachable or failing. Each path must always be read with the same parser.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> getCachedJson(String path, Duration ttl, Function<JsonStreamReader, T> parser) {
+        ResponseCache.Entry cached = cache.peek(path);
+        if (cached != null && cached.isFresh() && cached.getValue() != null) {
+            cache.recordHit();
+            return CompletableFuture.completedFuture((T) cached.getValue());
+        }
+        ResponseCache.Entry entry = cached != null && cached.getValue() != null ? cached : null;
+        return singleFlight("JSON " + path, endpointOf(path), () -> loadJson(path, ttl, entry, parser));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> loadJson(String path, Duration ttl, ResponseCache.Entry entry,
+                                              Function<JsonStreamReader, T> parser) {
+        cache.recordMiss();
+        HttpRequest.Builder builder = newRequest(path).GET();
+        if (entry != null && entry.getEtag() != null) {
+            builder.header("If-None-Match", entry.getEtag());
+        }
+        return send(endpointOf(path), builder.build(), HttpResponse.BodyHandlers.ofInputStream())
+                .handleAsync((response, error) -> {
+                    if (error != null && entry == null) {
+                        throw error instanceof CompletionException
+                                ? (CompletionException) error : new CompletionException(error);
+                    }
+                    try (InputStream body = response != null ? response.body() : InputStream.nullInputStream()) {
+                        // Offline or server trouble: an old copy beats no data
+                        if (entry != null && (error != null || response.statusCode() >= 500)) {
+                            cache.recordStaleHit();
+                            LOGGER.fine("Serving stale " + path + ": "
+                                    + (error != null ? error : "status " + response.statusCode()));
+                            return (T) entry.getValue();
+                        }
+                        if (response.statusCode() == 304 && entry != null) {
+                            return (T) cache.revalidated(path, entry, ttl.toMillis()).getValue();
+                        }
+                        if (response.statusCode() != 200) {
+                            throw new CompletionException(new IOException(
+                                    "GET " + path + " failed. Status code: " + response.statusCode()));
+                        }
+                        T value = parser.apply(new JsonStreamReader(new InputStreamReader(body, StandardCharsets.UTF_8)));
+                        cache.putParsed(path, value, response.headers().firstValue("ETag").orElse(null),
+                                ttl.toMillis());
+                        return value;
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, parsers);
+    }
+
+    /**
+     * Returns whatever body is cached in memory for {@code path}, even if expired, so a screen
+     * can render immediately while {@link #getCached} refreshes it.
+     */
+    public String peekCached(String path) {
+        ResponseCache.Entry entry = cache.peek(path);
+        return entry == null ? null : entry.getBody();
+    }
+
+    public ResponseCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Starts {@code call} unless one with the same {@code key} is already in flight, in which
+     * case that one's result is shared and a saved call is counted for {@code endpoint}. Every
+     * caller gets its own copy, so cancelling it does not affect the others.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> singleFlight(String key, String endpoint, Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> shared = new CompletableFuture<>();
+        CompletableFuture<T> existing = (CompletableFuture<T>) inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            recordSaved(endpoint, 1);
+            return existing.copy();
+        }
+        CompletableFuture<T> started;
+        try {
+            started = call.get();
+        } catch (RuntimeException e) {
+            started = CompletableFuture.failedFuture(e);
+        }
+        started.whenComplete((value, error) -> {
+            inFlight.remove(key, shared);
+            if (error != null) {
+                shared.completeExceptionally(error);
+            } else {
+                shared.complete(value);
+            }
+        });
+        return shared.copy();
+    }
+
+    /**
+     * Counts calls to {@code endpoint} that were avoided by sharing or batching.
+     */
+    void recordSaved(String endpoint, int calls) {
+        if (calls > 0) {
+            stats.computeIfAbsent(endpoint, EndpointStats::new).recordSaved(calls);
+        }
+    }
+
+    private static String endpointOf(String path) {
+        int query = path.indexOf('?');
+        return query < 0 ? path : path.substring(0, query);
+    }
+
+    /**
+     * Sends {@code request} asynchronously and records its latency under {@code endpoint}.
+     */
+    public CompletableFuture<HttpResponse<String>> send(String endpoint, HttpRequest request) {
+        return send(endpoint, request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    public <T> CompletableFuture<HttpResponse<T>> send(String endpoint, HttpRequest request,
+                                                       HttpResponse.BodyHandler<T> handler) {
+        EndpointStats endpointStats = stats.computeIfAbsent(endpoint, EndpointStats::new);
+        long start = System.nanoTime();
+        return client.sendAsync(request, handler)
+                .whenComplete((response, error) -> endpointStats.record(System.nanoTime() - start,
+                        error != null || response.statusCode() >= 400));
+    }
+
+    /**
+     * Sends {@code request} and maps the body with {@code parser} while it is still arriving,
+     * so neither the body as a String nor a JSON tree is ever held in memory. A status other
+     * than 200 fails the future with an IOException.
+     */
+    public <T> CompletableFuture<T> sendForJson(String endpoint, HttpRequest request,
+                                                Function<JsonStreamReader, T> parser) {
+        return send(endpoint, request, HttpResponse.BodyHandlers.ofInputStream())
+                .thenApplyAsync(response -> {
+                    try (InputStream body = response.body()) {
+                        if (response.statusCode() != 200) {
+                            throw new CompletionException(new IOException(request.method() + " "
+                                    + request.uri().getPath() + " failed. Status code: " + response.statusCode()));
+                        }
+                        return parser.apply(new JsonStreamReader(new InputStreamReader(body, StandardCharsets.UTF_8)));
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, parsers);
+    }
+
+    public Map<String, EndpointStats> getStats() {
+        return Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * Call counters and a latency histogram for one backend endpoint.
+     */
+    public static final class EndpointStats {
+
+        private final String endpoint;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder saved = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        EndpointStats(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        void record(long nanos, boolean failed) {
+            calls.increment();
+            latency.recordNanos(nanos);
+            if (failed) {
+                failures.increment();
+            }
+        }
+
+        void recordSaved(int calls) {
+            saved.add(calls);
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        /**
+         * Calls that were not made because an identical one was in flight or they were batched.
+         */
+        public long getSaved() {
+            return saved.sum();
+        }
+
+        public double getAverageMillis() {
+            return latency.getMeanMillis();
+        }
+
+        public double getMaxMillis() {
+            return latency.getMaxMillis();
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s calls=%d failures=%d saved=%d avg=%.1fms p99=%.1fms max=%.1fms",
+                    endpoint, getCalls(), getFailures(), getSaved(), getAverageMillis(),
+                    latency.getPercentileMillis(99), getMaxMillis());
+        }
+    }
+
+    static final class DaemonThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
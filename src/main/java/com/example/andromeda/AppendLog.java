@@ -0,0 +1,134 @@
+package com.example.andromeda;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of length-prefixed, checksummed records.
+ *
+ * Each record is {@code [int length][int crc32][payload]}. {@link #replay} maps the file and
+ * walks it front to back; a torn or corrupt tail (from a crash mid-write) ends the replay and
+ * is overwritten by the next append. {@link #rewrite} replaces the whole file atomically, which
+ * is how callers compact away superseded records. Not thread-safe; callers synchronize.
+ */
+public class AppendLog implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(AppendLog.class.getName());
+    private static final int HEADER_BYTES = 8;
+
+    private final Path file;
+    private final CRC32 crc = new CRC32();
+    private FileChannel channel;
+
+    public AppendLog(Path file) throws IOException {
+        this.file = file;
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        this.channel = open(file);
+    }
+
+    /**
+     * Passes every intact record to {@code reader}, oldest first, and positions the log for
+     * appending after the last one. Returns the number of records read.
+     */
+    public int replay(Consumer<ByteBuffer> reader) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Log too large to map: " + file);
+        }
+        int count = 0;
+        int end = 0;
+        if (size > 0) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            while (map.remaining() >= HEADER_BYTES) {
+                int length = map.getInt();
+                int checksum = map.getInt();
+                if (length < 0 || length > map.remaining()) {
+                    break;
+                }
+                ByteBuffer payload = map.slice(map.position(), length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                reader.accept(payload.asReadOnlyBuffer());
+                map.position(map.position() + length);
+                end = map.position();
+                count++;
+            }
+        }
+        if (end < size) {
+            LOGGER.warning("Discarding " + (size - end) + " bytes of incomplete records at the end of " + file);
+            try {
+                channel.truncate(end);
+            } catch (IOException e) {
+                // Some platforms refuse while the file is still mapped; the next append overwrites it
+                LOGGER.log(Level.FINE, "Could not truncate " + file, e);
+            }
+        }
+        channel.position(end);
+        return count;
+    }
+
+    public void append(byte[] payload) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        crc.reset();
+        crc.update(payload);
+        buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Flushes appended records to the storage device.
+     */
+    public void force() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Replaces the log with exactly {@code records}.
+     */
+    public void rewrite(Iterable<byte[]> records) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (AppendLog compacted = new AppendLog(temp)) {
+            compacted.channel.truncate(0);
+            for (byte[] record : records) {
+                compacted.append(record);
+            }
+            compacted.force();
+        }
+        channel.close();
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            channel = open(file);
+            channel.position(channel.size());
+        }
+    }
+
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+}
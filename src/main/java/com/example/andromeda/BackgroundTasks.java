@@ -0,0 +1,157 @@
+package com.example.andromeda;
+
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.concurrent.Task;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs slow work (backend calls, decoding, disk I/O) off the JavaFX Application Thread.
+ *
+ * Work is wrapped in a {@link Task}, so callers get progress, cancellation and success/failure
+ * callbacks that are always delivered on the FX thread.
+ */
+public final class BackgroundTasks {
+
+    private static final Logger LOGGER = Logger.getLogger(BackgroundTasks.class.getName());
+
+    private static final ExecutorService EXECUTOR;
+
+    static {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new ApiClient.DaemonThreadFactory("andromeda-task"));
+        executor.allowCoreThreadTimeOut(true);
+        EXECUTOR = executor;
+    }
+
+    private BackgroundTasks() {
+    }
+
+    /**
+     * A unit of background work that may report progress and should check for cancellation.
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        T run(Progress progress) throws Exception;
+    }
+
+    /**
+     * Handle given to {@link Work} to publish progress back to the owning task.
+     */
+    public interface Progress {
+        void update(double done, double total);
+
+        void message(String message);
+
+        boolean isCancelled();
+    }
+
+    public static <T> Task<T> submit(Work<T> work, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        return submit(new WorkTask<>(work), onSuccess, onFailure);
+    }
+
+    /**
+     * Waits on an asynchronous request in the background. Cancelling the task also cancels the
+     * underlying future.
+     */
+    public static <T> Task<T> submitAsync(Supplier<CompletableFuture<T>> request,
+                                          Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        return submit(progress -> {
+            CompletableFuture<T> future = request.get();
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                throw e;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof Exception ? (Exception) cause : e;
+            }
+        }, onSuccess, onFailure);
+    }
+
+    public static <T> Task<T> submit(Task<T> task, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        task.setOnSucceeded(e -> onSuccess.accept(task.getValue()));
+        task.setOnFailed(e -> {
+            Throwable error = task.getException();
+            LOGGER.log(Level.FINE, "Background task failed", error);
+            onFailure.accept(error);
+        });
+        EXECUTOR.execute(task);
+        return task;
+    }
+
+    private static final class WorkTask<T> extends Task<T> implements Progress {
+
+        private final Work<T> work;
+
+        WorkTask(Work<T> work) {
+            this.work = work;
+        }
+
+        @Override
+        protected T call() throws Exception {
+            return work.run(this);
+        }
+
+        @Override
+        public void update(double done, double total) {
+            updateProgress(done, total);
+        }
+
+        @Override
+        public void message(String message) {
+            updateMessage(message);
+        }
+    }
+
+    public static void runOnFxThread(Runnable runnable) {
+        if (Platform.isFxApplicationThread()) {
+            runnable.run();
+        } else {
+            Platform.runLater(runnable);
+        }
+    }
+
+    /**
+     * Runs {@code action} on the FX thread once the next pulse of the scene {@code node} is (or
+     * will be) part of has completed, so work that is not needed for that frame does not delay it.
+     */
+    public static void runAfterNextPulse(Node node, Runnable action) {
+        Scene scene = node.getScene();
+        if (scene == null) {
+            node.sceneProperty().addListener(new ChangeListener<>() {
+                @Override
+                public void changed(ObservableValue<? extends Scene> obs, Scene oldScene, Scene newScene) {
+                    if (newScene != null) {
+                        obs.removeListener(this);
+                        runAfterNextPulse(node, action);
+                    }
+                }
+            });
+            return;
+        }
+        Runnable[] listener = new Runnable[1];
+        listener[0] = () -> {
+            scene.removePostLayoutPulseListener(listener[0]);
+            // Queued behind the rest of the pulse, including rendering
+            Platform.runLater(action);
+        };
+        scene.addPostLayoutPulseListener(listener[0]);
+        Platform.requestNextPulse();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.andromeda;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Turns point lookups (one patient, one user, ...) made close together into bulk requests.
+ *
+ * The first {@link #load} starts a window of {@code windowMillis}; every key asked for until it
+ * closes, or until {@code maxBatch} keys are pending, goes out in a single call to {@code bulk},
+ * and a key asked for twice in the same window is fetched once. The calls this saves are
+ * recorded on the endpoint's {@link ApiClient.EndpointStats}.
+ */
+public final class BatchLoader<K, V> {
+
+    private static final ScheduledExecutorService SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(new ApiClient.DaemonThreadFactory("andromeda-batch"));
+
+    private final ApiClient apiClient;
+    private final String endpoint;
+    private final long windowMillis;
+    private final int maxBatch;
+    private final Function<List<K>, CompletableFuture<Map<K, V>>> bulk;
+
+    private Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();
+    private int pendingRequests;
+
+    /**
+     * {@code bulk} fetches the given keys; keys missing from its result resolve to null.
+     */
+    public BatchLoader(ApiClient apiClient, String endpoint, long windowMillis, int maxBatch,
+                       Function<List<K>, CompletableFuture<Map<K, V>>> bulk) {
+        this.apiClient = apiClient;
+        this.endpoint = endpoint;
+        this.windowMillis = windowMillis;
+        this.maxBatch = maxBatch;
+        this.bulk = bulk;
+    }
+
+    /**
+     * The value for {@code key}, fetched with whatever else is asked for in the same window.
+     * Cancelling the returned future only detaches this caller.
+     */
+    public CompletableFuture<V> load(K key) {
+        CompletableFuture<V> future;
+        Map<K, CompletableFuture<V>> full = null;
+        int requests = 0;
+        synchronized (this) {
+            pendingRequests++;
+            future = pending.get(key);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                pending.put(key, future);
+                if (pending.size() == 1) {
+                    SCHEDULER.schedule(this::dispatchPending, windowMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+            if (pending.size() >= maxBatch) {
+                full = pending;
+                requests = pendingRequests;
+                pending = new LinkedHashMap<>();
+                pendingRequests = 0;
+            }
+        }
+        if (full != null) {
+            Map<K, CompletableFuture<V>> batch = full;
+            int batchRequests = requests;
+            SCHEDULER.execute(() -> dispatch(batch, batchRequests));
+        }
+        return future.copy();
+    }
+
+    private void dispatchPending() {
+        Map<K, CompletableFuture<V>> batch;
+        int requests;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            requests = pendingRequests;
+            pending = new LinkedHashMap<>();
+            pendingRequests = 0;
+        }
+        dispatch(batch, requests);
+    }
+
+    private void dispatch(Map<K, CompletableFuture<V>> batch, int requests) {
+        apiClient.recordSaved(endpoint, requests - 1);
+        CompletableFuture<Map<K, V>> results;
+        try {
+            results = bulk.apply(new ArrayList<>(batch.keySet()));
+        } catch (RuntimeException e) {
+            results = CompletableFuture.failedFuture(e);
+        }
+        results.whenComplete((values, error) -> batch.forEach((key, future) -> {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(values.get(key));
+            }
+        }));
+    }
+}
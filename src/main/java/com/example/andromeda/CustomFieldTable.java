@@ -0,0 +1,470 @@
+package com.example.andromeda;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column store for the free-form custom fields of every patient.
+ *
+ * Field names are interned once in a shared dictionary and each field is one column indexed by
+ * row (a patient's slot in the {@link LocalPatientStore}). A column starts out typed by its first
+ * value: numbers live in a {@code double[]}, ISO dates ({@code yyyy-MM-dd}) as epoch days in an
+ * {@code int[]}, and anything else as codes into a per-column dictionary of distinct strings.
+ * Values are only stored in a typed column when they print back exactly as entered, so
+ * {@link #get} returns the original text; a value that does not fit turns the column into a
+ * string column. Empty values and unnamed fields are not stored. When values are removed or
+ * replaced, the affected columns are retyped from the rows still present before the next query,
+ * so a stray value stops downgrading a number column once it is corrected, and a column left
+ * without rows is dropped. {@link #where} scans a single primitive array and returns the
+ * matching rows, without building any per-patient map. Not thread-safe; the store synchronizes.
+ */
+public class CustomFieldTable {
+
+    /**
+     * How a column's values are held.
+     */
+    public enum Type {
+        NUMBER, DATE, STRING
+    }
+
+    /**
+     * Comparison operators for {@link #where}.
+     */
+    public enum Comparison {
+        EQ("="), LT("<"), LE("<="), GT(">"), GE(">=");
+
+        private final String symbol;
+
+        Comparison(String symbol) {
+            this.symbol = symbol;
+        }
+
+        public static Comparison fromSymbol(String symbol) {
+            for (Comparison comparison : values()) {
+                if (comparison.symbol.equals(symbol)) {
+                    return comparison;
+                }
+            }
+            throw new IllegalArgumentException("Unknown comparison " + symbol);
+        }
+
+        boolean test(int order) {
+            switch (this) {
+                case EQ:
+                    return order == 0;
+                case LT:
+                    return order < 0;
+                case LE:
+                    return order <= 0;
+                case GT:
+                    return order > 0;
+                default:
+                    return order >= 0;
+            }
+        }
+    }
+
+    private static final int INITIAL_ROWS = 1024;
+
+    private final Map<String, Integer> fieldIds = new HashMap<>();
+    private final List<Column> columns = new ArrayList<>();
+    // Whether some column lost or changed a value since the last settle()
+    private boolean unsettled;
+
+    /**
+     * Replaces all custom fields of {@code row} with {@code values}. Fields with a blank name or
+     * value are left out.
+     */
+    public void set(int row, Map<String, String> values) {
+        for (Column column : columns) {
+            if (column.present.get(row) && !column.get(row).equals(values.get(column.name))) {
+                remove(column, row);
+            }
+        }
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            String name = value.getKey();
+            String text = value.getValue();
+            if (name == null || name.isBlank() || text == null || text.isBlank()) {
+                continue;
+            }
+            Integer id = fieldIds.get(name);
+            if (id == null) {
+                id = columns.size();
+                fieldIds.put(name, id);
+                columns.add(new Column(name, typeOf(text)));
+            }
+            Column column = columns.get(id);
+            if (!column.present.get(row)) {
+                column.set(row, text);
+            }
+        }
+    }
+
+    public void clear(int row) {
+        for (Column column : columns) {
+            if (column.present.get(row)) {
+                remove(column, row);
+            }
+        }
+    }
+
+    private void remove(Column column, int row) {
+        column.present.clear(row);
+        column.changed = true;
+        unsettled = true;
+    }
+
+    /**
+     * Drops columns that no row has a value for any more and retypes string columns from the
+     * values still present, since the value that made them strings may be gone. Deferred to the
+     * next query so replaying the store's log does not rescan a column per entry.
+     */
+    private void settle() {
+        if (!unsettled) {
+            return;
+        }
+        unsettled = false;
+        boolean dropped = false;
+        for (int id = 0; id < columns.size(); id++) {
+            Column column = columns.get(id);
+            if (!column.changed) {
+                continue;
+            }
+            column.changed = false;
+            if (column.present.isEmpty()) {
+                dropped = true;
+            } else if (column.type == Type.STRING) {
+                columns.set(id, column.retyped());
+            }
+        }
+        if (dropped) {
+            columns.removeIf(column -> column.present.isEmpty());
+            fieldIds.clear();
+            for (int id = 0; id < columns.size(); id++) {
+                fieldIds.put(columns.get(id).name, id);
+            }
+        }
+    }
+
+    /**
+     * Materializes the fields of one row, in field-creation order.
+     */
+    public Map<String, String> get(int row) {
+        Map<String, String> values = null;
+        for (Column column : columns) {
+            if (column.present.get(row)) {
+                if (values == null) {
+                    values = new LinkedHashMap<>();
+                }
+                values.put(column.name, column.get(row));
+            }
+        }
+        return values == null ? Collections.emptyMap() : values;
+    }
+
+    public boolean hasField(String field) {
+        settle();
+        return fieldIds.containsKey(field);
+    }
+
+    public Type getType(String field) {
+        settle();
+        Integer id = fieldIds.get(field);
+        return id == null ? null : columns.get(id).type;
+    }
+
+    /**
+     * Names of the fields whose column is of {@code type}, in creation order.
+     */
+    public List<String> getFieldNames(Type type) {
+        settle();
+        List<String> names = new ArrayList<>();
+        for (Column column : columns) {
+            if (column.type == type) {
+                names.add(column.name);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Copies the number column {@code valueField}, grouped by the string column
+     * {@code groupField}, for the {@link AnalyticsEngine}. Only rows with both fields take
+     * part. Returns null if either field is missing or of another type.
+     */
+    public AnalyticsEngine.Columns cohorts(String groupField, String valueField) {
+        settle();
+        Integer groupId = fieldIds.get(groupField);
+        Integer valueId = fieldIds.get(valueField);
+        if (groupId == null || valueId == null) {
+            return null;
+        }
+        Column group = columns.get(groupId);
+        Column value = columns.get(valueId);
+        if (group.type != Type.STRING || value.type != Type.NUMBER) {
+            return null;
+        }
+        BitSet rows = (BitSet) value.present.clone();
+        rows.and(group.present);
+        int length = rows.length();
+        // Histogram bounds from the rows taking part, not from values since overwritten
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            min = Math.min(min, value.numbers[row]);
+            max = Math.max(max, value.numbers[row]);
+        }
+        if (rows.isEmpty()) {
+            min = 0;
+            max = 0;
+        }
+        return new AnalyticsEngine.Columns(Arrays.copyOf(value.numbers, length), Arrays.copyOf(group.ints, length),
+                group.dictionary.toArray(new String[0]), rows, min, max);
+    }
+
+    /**
+     * Rows whose {@code field} compares to {@code operand} as requested. Number and date columns
+     * compare by value (an operand of the wrong kind matches nothing); string columns compare
+     * text, evaluating the operator once per distinct value rather than once per row.
+     */
+    public BitSet where(String field, Comparison comparison, String operand) {
+        settle();
+        Integer id = fieldIds.get(field);
+        BitSet matches = new BitSet();
+        if (id == null) {
+            return matches;
+        }
+        Column column = columns.get(id);
+        BitSet present = column.present;
+        switch (column.type) {
+            case NUMBER: {
+                double target;
+                try {
+                    target = Double.parseDouble(operand.trim());
+                } catch (NumberFormatException e) {
+                    return matches;
+                }
+                double[] numbers = column.numbers;
+                for (int row = present.nextSetBit(0); row >= 0; row = present.nextSetBit(row + 1)) {
+                    if (comparison.test(Double.compare(numbers[row], target))) {
+                        matches.set(row);
+                    }
+                }
+                return matches;
+            }
+            case DATE: {
+                int target;
+                try {
+                    target = (int) LocalDate.parse(operand.trim()).toEpochDay();
+                } catch (DateTimeParseException e) {
+                    return matches;
+                }
+                int[] days = column.ints;
+                for (int row = present.nextSetBit(0); row >= 0; row = present.nextSetBit(row + 1)) {
+                    if (comparison.test(Integer.compare(days[row], target))) {
+                        matches.set(row);
+                    }
+                }
+                return matches;
+            }
+            default: {
+                boolean[] codeMatches = new boolean[column.dictionary.size()];
+                for (int code = 0; code < codeMatches.length; code++) {
+                    codeMatches[code] = comparison.test(column.dictionary.get(code).compareToIgnoreCase(operand));
+                }
+                int[] codes = column.ints;
+                for (int row = present.nextSetBit(0); row >= 0; row = present.nextSetBit(row + 1)) {
+                    if (codeMatches[codes[row]]) {
+                        matches.set(row);
+                    }
+                }
+                return matches;
+            }
+        }
+    }
+
+    /**
+     * Rough heap footprint of the column arrays and dictionaries, for diagnostics.
+     */
+    public long estimatedBytes() {
+        long bytes = 0;
+        for (Column column : columns) {
+            bytes += column.present.size() / 8;
+            bytes += column.numbers == null ? 0 : 8L * column.numbers.length;
+            bytes += column.ints == null ? 0 : 4L * column.ints.length;
+            if (column.dictionary != null) {
+                for (String value : column.dictionary) {
+                    bytes += 56 + value.length();
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static Type typeOf(String value) {
+        if (isNumber(value)) {
+            return Type.NUMBER;
+        }
+        if (isDate(value)) {
+            return Type.DATE;
+        }
+        return Type.STRING;
+    }
+
+    private static boolean isNumber(String value) {
+        if (value.isEmpty() || !(Character.isDigit(value.charAt(0)) || value.charAt(0) == '-')) {
+            return false;
+        }
+        try {
+            return formatNumber(Double.parseDouble(value)).equals(value);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static String formatNumber(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static boolean isDate(String value) {
+        if (value.length() != 10 || value.charAt(4) != '-' || value.charAt(7) != '-') {
+            return false;
+        }
+        try {
+            return LocalDate.parse(value).toString().equals(value);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private static final class Column {
+
+        private final String name;
+        private final BitSet present = new BitSet();
+        private Type type;
+        private double[] numbers;
+        // Epoch days for DATE, dictionary codes for STRING
+        private int[] ints;
+        private List<String> dictionary;
+        private Map<String, Integer> codes;
+        // A value was removed or replaced since the last settle()
+        private boolean changed;
+
+        Column(String name, Type type) {
+            this.name = name;
+            this.type = type;
+            if (type == Type.NUMBER) {
+                numbers = new double[INITIAL_ROWS];
+            } else {
+                ints = new int[INITIAL_ROWS];
+            }
+            if (type == Type.STRING) {
+                dictionary = new ArrayList<>();
+                codes = new HashMap<>();
+            }
+        }
+
+        String get(int row) {
+            switch (type) {
+                case NUMBER:
+                    return formatNumber(numbers[row]);
+                case DATE:
+                    return LocalDate.ofEpochDay(ints[row]).toString();
+                default:
+                    return dictionary.get(ints[row]);
+            }
+        }
+
+        void set(int row, String value) {
+            if ((type == Type.NUMBER && !isNumber(value)) || (type == Type.DATE && !isDate(value))) {
+                convertToStrings();
+            }
+            switch (type) {
+                case NUMBER:
+                    if (row >= numbers.length) {
+                        numbers = Arrays.copyOf(numbers, grow(numbers.length, row));
+                    }
+                    numbers[row] = Double.parseDouble(value);
+                    break;
+                case DATE:
+                    ensureInts(row);
+                    ints[row] = (int) LocalDate.parse(value).toEpochDay();
+                    break;
+                default:
+                    ensureInts(row);
+                    ints[row] = encode(value);
+            }
+            present.set(row);
+        }
+
+        private int encode(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        private void ensureInts(int row) {
+            if (ints == null) {
+                ints = new int[Math.max(INITIAL_ROWS, row + 1)];
+            } else if (row >= ints.length) {
+                ints = Arrays.copyOf(ints, grow(ints.length, row));
+            }
+        }
+
+        /**
+         * A copy typed by the values present now: number or date if all of them are, else
+         * string with a dictionary of just those values.
+         */
+        Column retyped() {
+            List<String> values = new ArrayList<>(present.cardinality());
+            Type narrowest = null;
+            for (int row = present.nextSetBit(0); row >= 0; row = present.nextSetBit(row + 1)) {
+                String value = get(row);
+                values.add(value);
+                Type valueType = typeOf(value);
+                narrowest = narrowest == null || narrowest == valueType ? valueType : Type.STRING;
+            }
+            Column column = new Column(name, narrowest);
+            int i = 0;
+            for (int row = present.nextSetBit(0); row >= 0; row = present.nextSetBit(row + 1)) {
+                column.set(row, values.get(i++));
+            }
+            return column;
+        }
+
+        private void convertToStrings() {
+            int rows = type == Type.NUMBER ? numbers.length : ints.length;
+            String[] text = new String[rows];
+            for (int row = present.nextSetBit(0); row >= 0; row = present.nextSetBit(row + 1)) {
+                text[row] = get(row);
+            }
+            type = Type.STRING;
+            numbers = null;
+            ints = new int[rows];
+            dictionary = new ArrayList<>();
+            codes = new HashMap<>();
+            for (int row = present.nextSetBit(0); row >= 0; row = present.nextSetBit(row + 1)) {
+                ints[row] = encode(text[row]);
+            }
+        }
+
+        private static int grow(int length, int row) {
+            return Math.max(row + 1, length + (length >> 1));
+        }
+    }
+}
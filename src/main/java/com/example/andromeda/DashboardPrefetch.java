@@ -0,0 +1,126 @@
+package com.example.andromeda;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.json.JSONObject;
+
+/**
+ * Overlaps getting the dashboard ready with the login request.
+ *
+ * Created when the credentials are submitted: {@link LoginApp} builds the {@link MainHome}
+ * scene graph in the background while the request is in flight, and once the session token is
+ * set {@link #authenticated(ApiClient)} starts the dashboard's requests (current user, heart
+ * rate history) concurrently instead of after the window is shown. {@link MainHome} takes the
+ * pending responses with {@link #takeUser()} and {@link #takeHeartRate()}. Every phase is
+ * timed from submission; {@link #shown()} logs the breakdown and hands it to {@link Telemetry}.
+ */
+public final class DashboardPrefetch {
+
+    private static final Logger LOGGER = Logger.getLogger(DashboardPrefetch.class.getName());
+
+    private final long submittedAt = System.nanoTime();
+    private volatile long sceneStartedAt;
+    private volatile long sceneBuiltAt;
+    private volatile long authenticatedAt;
+    private volatile long userAt;
+    private volatile long heartRateAt;
+    private volatile long shownAt;
+    private CompletableFuture<String> user;
+    private CompletableFuture<String> heartRate;
+
+    void sceneStarted() {
+        sceneStartedAt = System.nanoTime();
+    }
+
+    void sceneBuilt() {
+        sceneBuiltAt = System.nanoTime();
+    }
+
+    /**
+     * Starts the dashboard's requests; call once the session token is in place.
+     */
+    public synchronized void authenticated(ApiClient apiClient) {
+        authenticatedAt = System.nanoTime();
+        user = apiClient.getCached(SessionManager.CURRENT_USER_PATH, SessionManager.CURRENT_USER_TTL)
+                .whenComplete((body, e) -> userAt = System.nanoTime());
+        heartRate = apiClient.getCached(MainHome.HEART_RATE_PATH, MainHome.HEART_RATE_TTL)
+                .whenComplete((body, e) -> heartRateAt = System.nanoTime());
+    }
+
+    public boolean isAuthenticated() {
+        return authenticatedAt != 0;
+    }
+
+    /**
+     * The prefetched current-user response, or null if it was never started or already taken,
+     * so later refreshes go through the cache as usual.
+     */
+    public synchronized CompletableFuture<String> takeUser() {
+        CompletableFuture<String> pending = user;
+        user = null;
+        return pending;
+    }
+
+    public synchronized CompletableFuture<String> takeHeartRate() {
+        CompletableFuture<String> pending = heartRate;
+        heartRate = null;
+        return pending;
+    }
+
+    /**
+     * Records that the main window is on screen and logs how the phases overlapped.
+     */
+    public void shown() {
+        shownAt = System.nanoTime();
+        JSONObject breakdown = toJson();
+        LOGGER.info("Login to dashboard: login " + breakdown.optLong("loginMs", -1)
+                + " ms, scene " + span("sceneStartMs", "sceneEndMs", breakdown)
+                + ", user " + span("loginMs", "userMs", breakdown)
+                + ", heart rate " + span("loginMs", "heartRateMs", breakdown)
+                + ", shown at " + breakdown.optLong("shownMs", -1)
+                + " ms (" + breakdown.optLong("sequentialMs", -1) + " ms if run one after another)");
+        Telemetry.getInstance().recordLogin(breakdown);
+    }
+
+    /**
+     * Phase offsets in ms since submission; phases that have not happened yet are omitted.
+     * {@code sequentialMs} adds up the phase durations, i.e. what the same work would take
+     * without overlap.
+     */
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        putOffset(json, "sceneStartMs", sceneStartedAt);
+        putOffset(json, "sceneEndMs", sceneBuiltAt);
+        putOffset(json, "loginMs", authenticatedAt);
+        putOffset(json, "userMs", userAt);
+        putOffset(json, "heartRateMs", heartRateAt);
+        putOffset(json, "shownMs", shownAt);
+        long sequential = millis(authenticatedAt - submittedAt)
+                + millis(sceneBuiltAt - sceneStartedAt)
+                + Math.max(millis(userAt - authenticatedAt), 0)
+                + Math.max(millis(heartRateAt - authenticatedAt), 0);
+        if (authenticatedAt != 0 && sceneBuiltAt != 0) {
+            json.put("sequentialMs", sequential);
+        }
+        return json;
+    }
+
+    private void putOffset(JSONObject json, String key, long at) {
+        if (at != 0) {
+            json.put(key, millis(at - submittedAt));
+        }
+    }
+
+    private static String span(String from, String to, JSONObject breakdown) {
+        if (!breakdown.has(from) || !breakdown.has(to)) {
+            return "pending";
+        }
+        return breakdown.getLong(from) + "-" + breakdown.getLong(to) + " ms";
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.andromeda;
+
+/**
+ * Fixed-capacity time series stored in two primitive arrays.
+ *
+ * Samples are kept in non-decreasing time order: {@link #add} drops a sample older than the
+ * newest one, while {@link #addAll} merges an older series (history loaded after live samples
+ * started arriving) into place. Once full, the oldest samples are overwritten. Index 0 is
+ * always the oldest retained sample. Not thread-safe.
+ */
+public class DoubleRingBuffer {
+
+    private final double[] times;
+    private final double[] values;
+    private int head;
+    private int size;
+
+    public DoubleRingBuffer(int capacity) {
+        times = new double[capacity];
+        values = new double[capacity];
+    }
+
+    public boolean add(double time, double value) {
+        if (size > 0 && time < timeAt(size - 1)) {
+            return false;
+        }
+        int slot = (head + size) % times.length;
+        times[slot] = time;
+        values[slot] = value;
+        if (size < times.length) {
+            size++;
+        } else {
+            head = (head + 1) % times.length;
+        }
+        return true;
+    }
+
+    /**
+     * Merges {@code count} samples, in non-decreasing time order, with the ones already held,
+     * keeping the newest {@link #capacity()} of the combined series.
+     */
+    public void addAll(double[] newTimes, double[] newValues, int count) {
+        if (count == 0) {
+            return;
+        }
+        if (size == 0 || newTimes[0] >= timeAt(size - 1)) {
+            for (int i = 0; i < count; i++) {
+                add(newTimes[i], newValues[i]);
+            }
+            return;
+        }
+        int total = size + count;
+        double[] mergedTimes = new double[total];
+        double[] mergedValues = new double[total];
+        int held = 0;
+        int added = 0;
+        for (int i = 0; i < total; i++) {
+            if (added == count || (held < size && timeAt(held) <= newTimes[added])) {
+                mergedTimes[i] = timeAt(held);
+                mergedValues[i] = valueAt(held);
+                held++;
+            } else {
+                mergedTimes[i] = newTimes[added];
+                mergedValues[i] = newValues[added];
+                added++;
+            }
+        }
+        int keep = Math.min(total, times.length);
+        System.arraycopy(mergedTimes, total - keep, times, 0, keep);
+        System.arraycopy(mergedValues, total - keep, values, 0, keep);
+        head = 0;
+        size = keep;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return times.length;
+    }
+
+    public double timeAt(int index) {
+        return times[(head + index) % times.length];
+    }
+
+    public double valueAt(int index) {
+        return values[(head + index) % values.length];
+    }
+
+    /**
+     * Index of the first sample with {@code time >= t}, or {@link #size()} if there is none.
+     */
+    public int lowerBound(double t) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timeAt(mid) < t) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,469 @@
+package com.example.andromeda;
+
+import javafx.concurrent.Task;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Downloads report documents to {@code andromeda.downloads.dir} (default
+ * {@code ~/Downloads}).
+ *
+ * Bodies are streamed by a {@link Flow.Subscriber} straight into a {@link FileChannel} at their
+ * file offset, so no file is ever held in the heap. Files of {@value #SEGMENT_THRESHOLD} bytes
+ * or more, from a server that accepts ranges, are fetched as up to {@value #MAX_SEGMENTS}
+ * parallel {@code Range} requests. Data goes to {@code <name>.part}, and how far each segment
+ * got is kept in {@code <name>.part.json}, so a cancelled or failed download resumes where it
+ * stopped (guarded by {@code If-Range} with the ETag). When the server sends a
+ * {@code Digest: sha-256=...} header the finished file is verified before it replaces the
+ * target. At most {@code andromeda.downloads.maxConcurrent} (default 2) downloads run at once;
+ * further ones wait with indeterminate progress.
+ */
+public class DownloadManager {
+
+    private static final Logger LOGGER = Logger.getLogger(DownloadManager.class.getName());
+    static final String REPORTS_ENDPOINT = "/api/reports/";
+    private static final long SEGMENT_THRESHOLD = 8L << 20;
+    private static final long MIN_SEGMENT_BYTES = 4L << 20;
+    private static final int MAX_SEGMENTS = 4;
+    // Resume state is saved (after forcing the data) every this many bytes per segment
+    private static final long STATE_SAVE_BYTES = 4L << 20;
+
+    private static volatile DownloadManager instance;
+
+    private final ApiClient apiClient;
+    private final Path dir;
+    private final ThreadPoolExecutor slots;
+    private final Map<String, Download> active = new ConcurrentHashMap<>();
+
+    public DownloadManager(ApiClient apiClient, Path dir, int maxConcurrent) {
+        this.apiClient = apiClient;
+        this.dir = dir;
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new ApiClient.DaemonThreadFactory("andromeda-download"));
+        executor.allowCoreThreadTimeOut(true);
+        this.slots = executor;
+    }
+
+    public static DownloadManager getInstance() {
+        DownloadManager local = instance;
+        if (local == null) {
+            synchronized (DownloadManager.class) {
+                local = instance;
+                if (local == null) {
+                    local = new DownloadManager(ApiClient.getInstance(),
+                            Path.of(System.getProperty("andromeda.downloads.dir",
+                                    System.getProperty("user.home") + "/Downloads")),
+                            Integer.getInteger("andromeda.downloads.maxConcurrent", 2));
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * Starts (or resumes) downloading {@code path} to {@code fileName} in the download
+     * directory. Returns the running download if that path is already being fetched. A
+     * download that was just cancelled stays registered until its worker has returned, and
+     * the new one only starts after that, so the two never write the same part file.
+     */
+    public Download download(String path, String fileName) {
+        return active.compute(path, (p, existing) -> {
+            if (existing != null && !existing.isDone()) {
+                return existing;
+            }
+            Download download = new Download(p, dir.resolve(Path.of(fileName).getFileName()));
+            if (existing == null || slots.remove(existing.job)) {
+                // Nothing left running; a download cancelled while still queued is simply dropped
+                slots.execute(download.job);
+            } else {
+                // Still unwinding (saving its resume state); take over once it has returned
+                existing.finished.thenRun(() -> slots.execute(download.job));
+            }
+            return download;
+        });
+    }
+
+    /**
+     * One file transfer. Progress is bytes on disk over the file size; cancelling keeps what
+     * was fetched for the next attempt.
+     */
+    public final class Download extends Task<Path> {
+
+        private final String path;
+        private final Path target;
+        private final Path part;
+        private final Path stateFile;
+        private final AtomicLong written = new AtomicLong();
+        private final List<CompletableFuture<Void>> transfers = new CopyOnWriteArrayList<>();
+        // Completes once the worker is out of call(), which Task.isDone() does not wait for
+        private final CompletableFuture<Void> finished = new CompletableFuture<>();
+        private final Runnable job = this::runInSlot;
+        private Probe probe;
+        private List<Segment> segments;
+
+        Download(String path, Path target) {
+            this.path = path;
+            this.target = target;
+            this.part = target.resolveSibling(target.getFileName() + ".part");
+            this.stateFile = target.resolveSibling(target.getFileName() + ".part.json");
+        }
+
+        public Path getTarget() {
+            return target;
+        }
+
+        private void runInSlot() {
+            try {
+                run();
+            } finally {
+                active.remove(path, this);
+                finished.complete(null);
+            }
+        }
+
+        @Override
+        protected Path call() throws Exception {
+            Files.createDirectories(target.getParent());
+            probe = probe();
+            segments = loadState();
+            if (segments == null) {
+                Files.deleteIfExists(part);
+                segments = plan();
+            }
+            for (Segment segment : segments) {
+                written.addAndGet(segment.done.get());
+            }
+            reportProgress();
+            long start = System.nanoTime();
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                fetchAll(channel);
+                channel.force(true);
+            }
+            verify();
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.deleteIfExists(stateFile);
+            LOGGER.fine(String.format("Downloaded %s (%d bytes, %d segments) in %.1f ms", path, written.get(),
+                    segments.size(), (System.nanoTime() - start) / 1_000_000.0));
+            return target;
+        }
+
+        private void fetchAll(FileChannel channel) throws Exception {
+            List<CompletableFuture<Void>> fetches = new ArrayList<>();
+            for (Segment segment : segments) {
+                if (!segment.isComplete()) {
+                    fetches.add(fetch(segment, channel));
+                }
+            }
+            try {
+                CompletableFuture.allOf(fetches.toArray(new CompletableFuture<?>[0])).get();
+            } catch (InterruptedException | ExecutionException e) {
+                // Each writer notices on its next buffer and cancels its subscription
+                transfers.forEach(transfer -> transfer.cancel(true));
+                saveState(channel);
+                if (e instanceof ExecutionException && e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * Fetches the rest of {@code segment}.
+         */
+        private CompletableFuture<Void> fetch(Segment segment, FileChannel channel) {
+            HttpRequest.Builder request = apiClient.newRequest(path).GET();
+            boolean ranged = segment.position() > 0 || segments.size() > 1;
+            if (ranged) {
+                request.header("Range", "bytes=" + segment.position() + "-" + segment.end);
+                if (probe.etag != null) {
+                    request.header("If-Range", probe.etag);
+                }
+            }
+            int expected = ranged ? 206 : 200;
+            SegmentWriter writer = new SegmentWriter(segment, channel);
+            transfers.add(writer.result);
+            apiClient.send(REPORTS_ENDPOINT, request.build(), info -> {
+                if (info.statusCode() != expected) {
+                    writer.result.completeExceptionally(new IOException("GET " + path + " returned status "
+                            + info.statusCode() + (ranged ? " for a range request" : "")));
+                    return HttpResponse.BodySubscribers.replacing(null);
+                }
+                return HttpResponse.BodySubscribers.fromSubscriber(writer);
+            }).whenComplete((response, error) -> {
+                if (error != null) {
+                    writer.result.completeExceptionally(error);
+                }
+            });
+            return writer.result.thenRun(() -> {
+                if (segment.end >= 0 && !segment.isComplete()) {
+                    throw new IllegalStateException("GET " + path + " ended at byte " + segment.position()
+                            + " of segment ending at " + segment.end);
+                }
+                saveState(channel);
+            });
+        }
+
+        /**
+         * HEAD for size, range support, ETag and digest. Servers without HEAD get a single
+         * plain GET.
+         */
+        private Probe probe() throws Exception {
+            HttpRequest request = apiClient.newRequest(path).method("HEAD", HttpRequest.BodyPublishers.noBody()).build();
+            HttpResponse<Void> response = apiClient.send(REPORTS_ENDPOINT, request,
+                    HttpResponse.BodyHandlers.discarding()).get();
+            if (response.statusCode() == 404) {
+                throw new IOException(path + " does not exist");
+            }
+            if (response.statusCode() != 200) {
+                return new Probe(-1, false, null, null);
+            }
+            String digest = null;
+            for (String value : response.headers().allValues("Digest")) {
+                for (String entry : value.split(",")) {
+                    String trimmed = entry.trim();
+                    if (trimmed.regionMatches(true, 0, "sha-256=", 0, 8)) {
+                        digest = trimmed.substring(8);
+                    }
+                }
+            }
+            return new Probe(response.headers().firstValueAsLong("Content-Length").orElse(-1),
+                    response.headers().firstValue("Accept-Ranges").map("bytes"::equalsIgnoreCase).orElse(false),
+                    response.headers().firstValue("ETag").orElse(null), digest);
+        }
+
+        private List<Segment> plan() {
+            List<Segment> planned = new ArrayList<>();
+            if (probe.length < 0) {
+                planned.add(new Segment(0, -1, 0));
+                return planned;
+            }
+            int count = probe.acceptsRanges && probe.length >= SEGMENT_THRESHOLD
+                    ? (int) Math.min(MAX_SEGMENTS, probe.length / MIN_SEGMENT_BYTES) : 1;
+            long size = probe.length / count;
+            for (int i = 0; i < count; i++) {
+                long start = i * size;
+                long end = i == count - 1 ? probe.length - 1 : start + size - 1;
+                planned.add(new Segment(start, end, 0));
+            }
+            return planned;
+        }
+
+        /**
+         * Segments of an earlier attempt, if the part file still matches the server's copy.
+         */
+        private List<Segment> loadState() {
+            if (probe.length < 0 || probe.etag == null || !probe.acceptsRanges
+                    || !Files.exists(stateFile) || !Files.exists(part)) {
+                return null;
+            }
+            try {
+                JSONObject state = new JSONObject(Files.readString(stateFile, StandardCharsets.UTF_8));
+                if (state.getLong("length") != probe.length || !probe.etag.equals(state.optString("etag"))) {
+                    return null;
+                }
+                List<Segment> saved = new ArrayList<>();
+                JSONArray items = state.getJSONArray("segments");
+                for (int i = 0; i < items.length(); i++) {
+                    JSONArray item = items.getJSONArray(i);
+                    saved.add(new Segment(item.getLong(0), item.getLong(1), item.getLong(2)));
+                }
+                LOGGER.fine("Resuming " + path + " from " + stateFile);
+                return saved;
+            } catch (IOException | JSONException e) {
+                LOGGER.log(Level.FINE, "Ignoring unreadable download state " + stateFile, e);
+                return null;
+            }
+        }
+
+        /**
+         * Forces the data written so far, then records it; the state never claims bytes that
+         * are not on disk.
+         */
+        private synchronized void saveState(FileChannel channel) {
+            if (probe.length < 0 || probe.etag == null || !probe.acceptsRanges) {
+                return;
+            }
+            JSONArray items = new JSONArray();
+            for (Segment segment : segments) {
+                items.put(new JSONArray().put(segment.start).put(segment.end).put(segment.done.get()));
+            }
+            try {
+                if (channel.isOpen()) {
+                    channel.force(false);
+                }
+                Path temp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+                Files.writeString(temp, new JSONObject().put("length", probe.length).put("etag", probe.etag)
+                        .put("segments", items).toString(), StandardCharsets.UTF_8);
+                Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to save download state " + stateFile, e);
+            }
+        }
+
+        private void verify() throws IOException {
+            if (probe.digest == null) {
+                return;
+            }
+            MessageDigest sha256;
+            try {
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.READ)) {
+                while (channel.read(buffer) >= 0) {
+                    buffer.flip();
+                    sha256.update(buffer);
+                    buffer.clear();
+                }
+            }
+            String actual = Base64.getEncoder().encodeToString(sha256.digest());
+            if (!actual.equals(probe.digest)) {
+                Files.deleteIfExists(part);
+                Files.deleteIfExists(stateFile);
+                throw new IOException("Checksum mismatch for " + path + ": expected sha-256=" + probe.digest
+                        + ", got " + actual);
+            }
+        }
+
+        private void reportProgress() {
+            if (probe.length > 0) {
+                updateProgress(written.get(), probe.length);
+            }
+        }
+
+        /**
+         * Writes one response body at the segment's offset, one buffer list at a time.
+         */
+        private final class SegmentWriter implements Flow.Subscriber<List<ByteBuffer>> {
+
+            private final CompletableFuture<Void> result = new CompletableFuture<>();
+            private final Segment segment;
+            private final FileChannel channel;
+            private Flow.Subscription subscription;
+            private long unsaved;
+
+            SegmentWriter(Segment segment, FileChannel channel) {
+                this.segment = segment;
+                this.channel = channel;
+            }
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(List<ByteBuffer> buffers) {
+                // Failed, or cancelled along with the download: stop the transfer
+                if (result.isDone() || isCancelled()) {
+                    subscription.cancel();
+                    return;
+                }
+                try {
+                    for (ByteBuffer buffer : buffers) {
+                        while (buffer.hasRemaining()) {
+                            int count = channel.write(buffer, segment.position());
+                            segment.done.addAndGet(count);
+                            written.addAndGet(count);
+                            unsaved += count;
+                        }
+                    }
+                } catch (IOException e) {
+                    result.completeExceptionally(e);
+                    subscription.cancel();
+                    return;
+                }
+                reportProgress();
+                if (unsaved >= STATE_SAVE_BYTES) {
+                    unsaved = 0;
+                    saveState(channel);
+                }
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                result.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                result.complete(null);
+            }
+        }
+    }
+
+    private static final class Probe {
+
+        private final long length;
+        private final boolean acceptsRanges;
+        private final String etag;
+        private final String digest;
+
+        Probe(long length, boolean acceptsRanges, String etag, String digest) {
+            this.length = length;
+            this.acceptsRanges = acceptsRanges;
+            this.etag = etag;
+            this.digest = digest;
+        }
+    }
+
+    /**
+     * Bytes {@code start..end} (inclusive; {@code end} is -1 when the size is unknown), of
+     * which the first {@code done} are on disk.
+     */
+    private static final class Segment {
+
+        private final long start;
+        private final long end;
+        private final AtomicLong done;
+
+        Segment(long start, long end, long done) {
+            this.start = start;
+            this.end = end;
+            this.done = new AtomicLong(done);
+        }
+
+        long position() {
+            return start + done.get();
+        }
+
+        boolean isComplete() {
+            return end >= 0 && position() > end;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.andromeda;
+
+/**
+ * Reduces a time series to what can actually be drawn: one min/max pair per pixel column.
+ *
+ * Unlike averaging, min/max keeps every spike visible, and the output is at most
+ * {@code 2 * columns} points however many samples the range holds.
+ */
+public final class Downsampler {
+
+    private Downsampler() {
+    }
+
+    /**
+     * Downsamples samples {@code [from, to)} of {@code buffer}, covering times
+     * {@code [startTime, endTime)}, into {@code columns} pixel columns. Points are written to
+     * {@code outTimes}/{@code outValues}, which must hold {@code 2 * columns} entries.
+     *
+     * @return the number of points written
+     */
+    public static int minMax(DoubleRingBuffer buffer, int from, int to, double startTime, double endTime,
+                             int columns, double[] outTimes, double[] outValues) {
+        if (to - from <= 2 * columns) {
+            int n = 0;
+            for (int i = from; i < to; i++) {
+                outTimes[n] = buffer.timeAt(i);
+                outValues[n] = buffer.valueAt(i);
+                n++;
+            }
+            return n;
+        }
+        double columnWidth = (endTime - startTime) / columns;
+        int n = 0;
+        int i = from;
+        for (int column = 0; column < columns && i < to; column++) {
+            double columnEnd = startTime + (column + 1) * columnWidth;
+            double minValue = Double.POSITIVE_INFINITY;
+            double maxValue = Double.NEGATIVE_INFINITY;
+            double minTime = 0;
+            double maxTime = 0;
+            boolean any = false;
+            while (i < to && (buffer.timeAt(i) < columnEnd || column == columns - 1)) {
+                double value = buffer.valueAt(i);
+                if (value < minValue) {
+                    minValue = value;
+                    minTime = buffer.timeAt(i);
+                }
+                if (value > maxValue) {
+                    maxValue = value;
+                    maxTime = buffer.timeAt(i);
+                }
+                any = true;
+                i++;
+            }
+            if (!any) {
+                continue;
+            }
+            // Emit in time order so the polyline does not double back
+            if (minTime <= maxTime) {
+                outTimes[n] = minTime;
+                outValues[n++] = minValue;
+                if (maxTime != minTime) {
+                    outTimes[n] = maxTime;
+                    outValues[n++] = maxValue;
+                }
+            } else {
+                outTimes[n] = maxTime;
+                outValues[n++] = maxValue;
+                outTimes[n] = minTime;
+                outValues[n++] = minValue;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.andromeda;
+
+import javafx.application.Platform;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Watches the JavaFX Application Thread for stalls.
+ *
+ * A daemon thread keeps one probe queued on the FX thread at a time. A probe that waits longer
+ * than the threshold means the thread was busy with one long pulse or event handler; the
+ * watchdog samples the FX thread's stack while it is still stuck and the stall is recorded
+ * (with that stack) once the probe finally runs. Idle cost is one {@code runLater} every
+ * {@value #PROBE_INTERVAL_MILLIS} ms.
+ */
+public class FxStallDetector {
+
+    private static final Logger LOGGER = Logger.getLogger(FxStallDetector.class.getName());
+    private static final long PROBE_INTERVAL_MILLIS = 20;
+    private static final int MAX_RECENT_STALLS = 20;
+
+    private final long thresholdNanos;
+    private final LatencyHistogram stalls = new LatencyHistogram();
+    private final Deque<Stall> recent = new ArrayDeque<>();
+
+    private volatile boolean running;
+    private volatile Thread fxThread;
+    private Thread watchdog;
+
+    public FxStallDetector(long thresholdMillis) {
+        this.thresholdNanos = thresholdMillis * 1_000_000;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        watchdog = new Thread(this::watch, "andromeda-fx-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (watchdog != null) {
+            watchdog.interrupt();
+        }
+    }
+
+    /**
+     * Durations of all stalls over the threshold.
+     */
+    public LatencyHistogram getStalls() {
+        return stalls;
+    }
+
+    public List<Stall> getRecentStalls() {
+        synchronized (recent) {
+            return new ArrayList<>(recent);
+        }
+    }
+
+    private void watch() {
+        while (running) {
+            long posted = System.nanoTime();
+            Probe probe = new Probe();
+            Platform.runLater(probe);
+            StackTraceElement[] sample = null;
+            try {
+                // Sample the stack once, while the FX thread is still stuck
+                if (!probe.await(thresholdNanos)) {
+                    Thread thread = fxThread;
+                    sample = thread != null ? thread.getStackTrace() : new StackTraceElement[0];
+                    probe.await(Long.MAX_VALUE);
+                }
+                if (sample != null) {
+                    record(probe.ranAt - posted, sample);
+                }
+                Thread.sleep(PROBE_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void record(long nanos, StackTraceElement[] sample) {
+        stalls.recordNanos(nanos);
+        Stall stall = new Stall(System.currentTimeMillis(), nanos / 1_000_000.0, sample);
+        synchronized (recent) {
+            if (recent.size() == MAX_RECENT_STALLS) {
+                recent.removeFirst();
+            }
+            recent.addLast(stall);
+        }
+        LOGGER.warning(String.format("FX thread stalled for %.0f ms%n%s", stall.getMillis(), stall.getStackText()));
+    }
+
+    private final class Probe implements Runnable {
+
+        private volatile long ranAt;
+        private boolean done;
+
+        @Override
+        public void run() {
+            fxThread = Thread.currentThread();
+            ranAt = System.nanoTime();
+            synchronized (this) {
+                done = true;
+                notifyAll();
+            }
+        }
+
+        /**
+         * Waits up to {@code nanos} for the probe to run and tells whether it did.
+         */
+        synchronized boolean await(long nanos) throws InterruptedException {
+            long deadline = System.nanoTime() + nanos;
+            while (!done) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(Math.max(1, remaining / 1_000_000));
+            }
+            return true;
+        }
+    }
+
+    /**
+     * One stall with the FX thread's stack as sampled while it was blocked.
+     */
+    public static final class Stall {
+
+        private final long timestamp;
+        private final double millis;
+        private final StackTraceElement[] stack;
+
+        Stall(long timestamp, double millis, StackTraceElement[] stack) {
+            this.timestamp = timestamp;
+            this.millis = millis;
+            this.stack = stack;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public double getMillis() {
+            return millis;
+        }
+
+        public StackTraceElement[] getStack() {
+            return stack.clone();
+        }
+
+        public String getStackText() {
+            StringBuilder text = new StringBuilder();
+            for (StackTraceElement frame : stack) {
+                text.append("\tat ").append(frame).append(System.lineSeparator());
+            }
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.andromeda;
+
+import javafx.scene.image.Image;
+
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.net.URL;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads and caches images for all screens.
+ *
+ * Images are decoded at the size they are displayed at rather than at full resolution, loaded in
+ * the background where JavaFX allows it, and kept in a bounded cache of soft references keyed by
+ * URL and target size, so the JVM can still reclaim them under memory pressure.
+ */
+public final class ImageService {
+
+    private static final Logger LOGGER = Logger.getLogger(ImageService.class.getName());
+    private static final int MAX_ENTRIES = 128;
+
+    private static final ImageService INSTANCE = new ImageService();
+
+    private final Map<String, SoftReference<Image>> cache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SoftReference<Image>> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private ImageService() {
+    }
+
+    public static ImageService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Loads a classpath image decoded to fit {@code width} x {@code height} (0 leaves that side
+     * unconstrained). Returns {@code null} if the resource does not exist.
+     */
+    public Image loadResource(String resourcePath, double width, double height) {
+        URL url = ImageService.class.getResource(resourcePath);
+        if (url == null) {
+            LOGGER.fine("Image resource not found: " + resourcePath);
+            return null;
+        }
+        return load(url.toExternalForm(), width, height);
+    }
+
+    /**
+     * Loads an image by URL in the background. The returned image may still be loading; an
+     * {@link javafx.scene.image.ImageView} shows it as soon as decoding finishes.
+     */
+    public Image load(String url, double width, double height) {
+        String key = key(url, width, height);
+        Image image = get(key);
+        if (image == null) {
+            image = new Image(url, width, height, true, true, true);
+            put(key, image);
+            // Do not keep serving an image whose background load failed
+            image.errorProperty().addListener((obs, wasError, isError) -> {
+                if (isError) {
+                    remove(key);
+                }
+            });
+        }
+        return image;
+    }
+
+    /**
+     * Fetches a patient's photo from {@code GET /api/patients/{id}/photo} through the shared API
+     * client and decodes it off the FX thread. Completes with {@code null} if the patient has no
+     * photo.
+     */
+    public CompletableFuture<Image> loadPatientPhoto(String patientId, double width, double height) {
+        String path = RemotePatientDataSource.PATIENTS_ENDPOINT + "/" + patientId + "/photo";
+        String key = key(path, width, height);
+        Image cached = get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        ApiClient api = ApiClient.getInstance();
+        return api.send(RemotePatientDataSource.PATIENTS_ENDPOINT + "/photo", api.newRequest(path).GET().build(),
+                        HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(response -> {
+                    try (InputStream body = response.body()) {
+                        if (response.statusCode() != 200) {
+                            return null;
+                        }
+                        Image image = new Image(body, width, height, true, true);
+                        if (image.isError()) {
+                            LOGGER.log(Level.WARNING, "Failed to decode photo for patient " + patientId,
+                                    image.getException());
+                            return null;
+                        }
+                        put(key, image);
+                        return image;
+                    } catch (Exception e) {
+                        LOGGER.log(Level.WARNING, "Failed to load photo for patient " + patientId, e);
+                        return null;
+                    }
+                });
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private Image get(String key) {
+        synchronized (cache) {
+            SoftReference<Image> ref = cache.get(key);
+            Image image = ref == null ? null : ref.get();
+            if (ref != null && image == null) {
+                cache.remove(key);
+            }
+            return image;
+        }
+    }
+
+    private void put(String key, Image image) {
+        synchronized (cache) {
+            cache.put(key, new SoftReference<>(image));
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (cache) {
+            cache.remove(key);
+        }
+    }
+
+    private static String key(String url, double width, double height) {
+        return url + "@" + width + "x" + height;
+    }
+}
@@ -0,0 +1,469 @@
+package com.example.andromeda;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+import org.json.JSONException;
+
+/**
+ * Pull parser that reads JSON token by token from a {@link Reader}.
+ *
+ * Unlike {@code new JSONObject(body)}, nothing but the current token is held in memory, so a
+ * response can be mapped straight into DTOs while it is still arriving and the peak footprint
+ * is one record rather than the whole body plus its tree. Callers walk the document with
+ * {@link #beginObject()}, {@link #nextName()}, {@link #skipValue()} and friends; numbers and
+ * booleans may be read as strings. Malformed input throws {@link JSONException}, I/O failures
+ * {@link UncheckedIOException}. Not thread-safe.
+ */
+public final class JsonStreamReader implements Closeable {
+
+    /**
+     * What {@link #peek()} found next.
+     */
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5;
+    private static final int NONEMPTY_OBJECT = 6;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder text = new StringBuilder();
+    private int pos;
+    private int limit;
+    private long consumed;
+    private int[] scopes = new int[32];
+    private int depth = 1;
+    private Token peeked;
+    // Text of a peeked NAME, STRING, NUMBER or BOOLEAN
+    private String value;
+
+    public JsonStreamReader(Reader in) {
+        this.in = in;
+        scopes[0] = EMPTY_DOCUMENT;
+    }
+
+    public Token peek() {
+        if (peeked != null) {
+            return peeked;
+        }
+        int scope = scopes[depth - 1];
+        switch (scope) {
+            case EMPTY_ARRAY:
+            case NONEMPTY_ARRAY: {
+                scopes[depth - 1] = NONEMPTY_ARRAY;
+                int c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                if (scope == NONEMPTY_ARRAY) {
+                    if (c != ',') {
+                        throw syntaxError("Expected ',' or ']'");
+                    }
+                } else {
+                    pos--;
+                }
+                break;
+            }
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT: {
+                scopes[depth - 1] = DANGLING_NAME;
+                int c = nextNonWhitespace();
+                if (c == '}') {
+                    return peeked = Token.END_OBJECT;
+                }
+                if (scope == NONEMPTY_OBJECT) {
+                    if (c != ',') {
+                        throw syntaxError("Expected ',' or '}'");
+                    }
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw syntaxError("Expected a name");
+                }
+                value = readString();
+                return peeked = Token.NAME;
+            }
+            case DANGLING_NAME:
+                scopes[depth - 1] = NONEMPTY_OBJECT;
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                break;
+            case EMPTY_DOCUMENT:
+                scopes[depth - 1] = NONEMPTY_DOCUMENT;
+                break;
+            default:
+                if (nextNonWhitespaceOrEnd() != -1) {
+                    throw syntaxError("Unexpected data after the document");
+                }
+                return peeked = Token.END_DOCUMENT;
+        }
+        return peeked = readValueToken();
+    }
+
+    public void beginObject() {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() {
+        expect(Token.END_OBJECT);
+        depth--;
+    }
+
+    public void beginArray() {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() {
+        expect(Token.END_ARRAY);
+        depth--;
+    }
+
+    /**
+     * Whether the current object or array has another element.
+     */
+    public boolean hasNext() {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    public String nextName() {
+        expect(Token.NAME);
+        return value;
+    }
+
+    /**
+     * The next string, number or boolean as text, or null for a JSON null.
+     */
+    public String nextString() {
+        Token token = peek();
+        if (token == Token.NULL) {
+            peeked = null;
+            return null;
+        }
+        if (token != Token.STRING && token != Token.NUMBER && token != Token.BOOLEAN) {
+            throw syntaxError("Expected a string but was " + token);
+        }
+        peeked = null;
+        return value;
+    }
+
+    public long nextLong() {
+        String number = nextNumberText();
+        try {
+            return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            double parsed = parseDouble(number);
+            if (parsed != Math.rint(parsed)) {
+                throw syntaxError("Expected a long but was " + number);
+            }
+            return (long) parsed;
+        }
+    }
+
+    public int nextInt() {
+        long number = nextLong();
+        if (number != (int) number) {
+            throw syntaxError("Expected an int but was " + number);
+        }
+        return (int) number;
+    }
+
+    public double nextDouble() {
+        return parseDouble(nextNumberText());
+    }
+
+    public boolean nextBoolean() {
+        Token token = peek();
+        if (token != Token.BOOLEAN && token != Token.STRING) {
+            throw syntaxError("Expected a boolean but was " + token);
+        }
+        peeked = null;
+        return Boolean.parseBoolean(value);
+    }
+
+    public void nextNull() {
+        expect(Token.NULL);
+    }
+
+    /**
+     * Reads an array of numbers; nulls and non-numeric strings become NaN.
+     */
+    public double[] nextDoubleArray() {
+        double[] values = new double[64];
+        int count = 0;
+        beginArray();
+        while (hasNext()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            Token token = peek();
+            if (token == Token.NUMBER) {
+                values[count++] = nextDouble();
+            } else if (token == Token.BEGIN_OBJECT || token == Token.BEGIN_ARRAY) {
+                throw syntaxError("Expected a number but was " + token);
+            } else {
+                String text = nextString();
+                values[count++] = text == null ? Double.NaN : parseDoubleOrNaN(text);
+            }
+        }
+        endArray();
+        return Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Skips the next value, including everything nested in it.
+     */
+    public void skipValue() {
+        int nesting = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    nesting++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    nesting++;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    nesting--;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    nesting--;
+                    break;
+                case END_DOCUMENT:
+                    throw syntaxError("Unexpected end of document");
+                default:
+                    peeked = null;
+            }
+        } while (nesting > 0);
+    }
+
+    @Override
+    public void close() {
+        try {
+            in.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Token readValueToken() {
+        int c = nextNonWhitespace();
+        switch (c) {
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case '"':
+                value = readString();
+                return Token.STRING;
+            case 't':
+            case 'f':
+            case 'n': {
+                pos--;
+                String literal = readWhile(false);
+                if (literal.equals("null")) {
+                    return Token.NULL;
+                }
+                if (!literal.equals("true") && !literal.equals("false")) {
+                    throw syntaxError("Unexpected literal " + literal);
+                }
+                value = literal;
+                return Token.BOOLEAN;
+            }
+            default:
+                if (c != '-' && (c < '0' || c > '9')) {
+                    throw syntaxError("Unexpected character '" + (char) c + "'");
+                }
+                pos--;
+                value = readWhile(true);
+                return Token.NUMBER;
+        }
+    }
+
+    private String nextNumberText() {
+        Token token = peek();
+        if (token != Token.NUMBER && token != Token.STRING) {
+            throw syntaxError("Expected a number but was " + token);
+        }
+        peeked = null;
+        return value;
+    }
+
+    private double parseDouble(String number) {
+        try {
+            return Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw syntaxError("Malformed number " + number);
+        }
+    }
+
+    private static double parseDoubleOrNaN(String number) {
+        try {
+            return Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private void expect(Token expected) {
+        Token token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but was " + token);
+        }
+        peeked = null;
+    }
+
+    private void push(int scope) {
+        if (depth == scopes.length) {
+            scopes = Arrays.copyOf(scopes, depth * 2);
+        }
+        scopes[depth++] = scope;
+    }
+
+    /**
+     * Reads a string whose opening quote has been consumed, resolving escapes.
+     */
+    private String readString() {
+        text.setLength(0);
+        while (true) {
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos++];
+                if (c == '"') {
+                    text.append(buffer, start, pos - 1 - start);
+                    return text.toString();
+                }
+                if (c == '\\') {
+                    text.append(buffer, start, pos - 1 - start);
+                    text.append(readEscape());
+                    start = pos;
+                }
+            }
+            text.append(buffer, start, pos - start);
+            if (!fill()) {
+                throw syntaxError("Unterminated string");
+            }
+        }
+    }
+
+    private char readEscape() {
+        int c = nextChar();
+        switch (c) {
+            case 'u': {
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(nextChar(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("Malformed unicode escape");
+                    }
+                    code = (code << 4) | digit;
+                }
+                return (char) code;
+            }
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            default:
+                throw syntaxError("Invalid escape \\" + (char) c);
+        }
+    }
+
+    /**
+     * Reads a bare literal (letters) or number (digits, sign, point, exponent).
+     */
+    private String readWhile(boolean number) {
+        text.setLength(0);
+        while (pos < limit || fill()) {
+            char c = buffer[pos];
+            boolean part = number
+                    ? (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E'
+                    : Character.isLetter(c);
+            if (!part) {
+                break;
+            }
+            text.append(c);
+            pos++;
+        }
+        return text.toString();
+    }
+
+    private int nextChar() {
+        if (pos == limit && !fill()) {
+            throw syntaxError("Unexpected end of input");
+        }
+        return buffer[pos++];
+    }
+
+    private int nextNonWhitespace() {
+        int c = nextNonWhitespaceOrEnd();
+        if (c == -1) {
+            throw syntaxError("Unexpected end of input");
+        }
+        return c;
+    }
+
+    private int nextNonWhitespaceOrEnd() {
+        while (pos < limit || fill()) {
+            char c = buffer[pos++];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    private boolean fill() {
+        if (pos < limit) {
+            return true;
+        }
+        try {
+            consumed += limit;
+            pos = 0;
+            limit = 0;
+            int read;
+            do {
+                read = in.read(buffer, 0, buffer.length);
+            } while (read == 0);
+            if (read < 0) {
+                return false;
+            }
+            limit = read;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read JSON", e);
+        }
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " at character " + (consumed + pos));
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.andromeda;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.json.JSONObject;
+
+/**
+ * Lock-free latency histogram with HdrHistogram-style log-linear buckets.
+ *
+ * Values are kept in microseconds. Below 128 µs every value has its own bucket; above that each
+ * power of two is split into 64 buckets, so any recorded value is reported within about 1.6%.
+ * Values above one hour are clamped into the top bucket. Recording is a couple of atomic adds,
+ * cheap enough for every request and every FX stall.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int HALF_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final long MAX_MICROS = 3_600_000_000L;
+    private static final int BUCKETS = indexOf(MAX_MICROS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1_000);
+    }
+
+    public void recordMicros(long micros) {
+        long value = Math.max(0, Math.min(micros, MAX_MICROS));
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        totalMicros.add(value);
+        maxMicros.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalMicros.sum() / (n * 1_000.0);
+    }
+
+    public double getMaxMillis() {
+        return maxMicros.get() / 1_000.0;
+    }
+
+    /**
+     * Returns the value below which {@code percentile} percent of the recorded values fall,
+     * as the upper bound of its bucket.
+     */
+    public double getPercentileMillis(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(total * Math.min(percentile, 100) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return Math.min(upperBoundOf(i), maxMicros.get()) / 1_000.0;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        totalMicros.reset();
+        maxMicros.set(0);
+    }
+
+    public JSONObject toJson() {
+        return new JSONObject()
+                .put("count", getCount())
+                .put("meanMs", getMeanMillis())
+                .put("p50Ms", getPercentileMillis(50))
+                .put("p90Ms", getPercentileMillis(90))
+                .put("p99Ms", getPercentileMillis(99))
+                .put("p999Ms", getPercentileMillis(99.9))
+                .put("maxMs", getMaxMillis());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d p50=%.1fms p99=%.1fms max=%.1fms",
+                getCount(), getPercentileMillis(50), getPercentileMillis(99), getMaxMillis());
+    }
+
+    private static int indexOf(long micros) {
+        if (micros < 2 * HALF_COUNT) {
+            return (int) micros;
+        }
+        // Shift the value so it lands in [HALF_COUNT, 2 * HALF_COUNT)
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        return HALF_COUNT * (shift + 1) + (int) (micros >>> shift) - HALF_COUNT;
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < 2 * HALF_COUNT) {
+            return index;
+        }
+        int shift = index / HALF_COUNT - 1;
+        long lower = (long) (HALF_COUNT + index % HALF_COUNT) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.andromeda;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Serves pages and searches from the {@link LocalPatientStore} once it holds a full copy of the
+ * directory, answering with already completed futures. Until the first sync has finished it
+ * falls back to {@code remote}, also for records not stored yet.
+ */
+public class LocalPatientDataSource implements PatientDataSource {
+
+    private final LocalPatientStore store;
+    private final PatientDataSource remote;
+
+    public LocalPatientDataSource(LocalPatientStore store, PatientDataSource remote) {
+        this.store = store;
+        this.remote = remote;
+    }
+
+    @Override
+    public CompletableFuture<Page> fetchPage(int offset, int limit) {
+        if (store.hasSynced()) {
+            return CompletableFuture.completedFuture(store.page(offset, limit));
+        }
+        return remote.fetchPage(offset, limit);
+    }
+
+    @Override
+    public CompletableFuture<List<Patient>> search(String query, int limit) {
+        if (store.hasSynced()) {
+            return CompletableFuture.completedFuture(store.search(query, limit));
+        }
+        return remote.search(query, limit);
+    }
+
+    @Override
+    public CompletableFuture<PatientRecord> fetchRecord(String id) {
+        PatientRecord record = store.get(id);
+        if (record != null || store.hasSynced()) {
+            return CompletableFuture.completedFuture(record);
+        }
+        return remote.fetchRecord(id);
+    }
+}
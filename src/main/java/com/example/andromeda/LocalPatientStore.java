@@ -0,0 +1,436 @@
+package com.example.andromeda;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.json.JSONObject;
+
+/**
+ * On-disk copy of the patient directory, so the patient screen reads at memory speed and keeps
+ * working while the backend is unreachable.
+ *
+ * Every change is appended to an {@link AppendLog} under {@code andromeda.store.dir} (default
+ * {@code ~/.andromeda/store}) and applied to an in-memory map; opening the store replays the
+ * log. Local edits are flagged as pending until {@link PatientSync} has pushed them. The store
+ * also keeps the sync token of the last pulled delta. All methods are thread-safe; call
+ * {@link #load()} off the FX thread.
+ *
+ * Custom fields are not kept in each record's own map but in a shared {@link CustomFieldTable},
+ * one typed column per field name with a row per patient, and are put back together only when
+ * a full record is read. {@link #search} accepts {@code field > value} style queries that are
+ * answered from those columns.
+ */
+public class LocalPatientStore {
+
+    private static final Logger LOGGER = Logger.getLogger(LocalPatientStore.class.getName());
+    private static final String LOG_FILE = "patients.log";
+    private static final Comparator<PatientRecord> BY_NAME = Comparator
+            .comparing(PatientRecord::getFullName, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(PatientRecord::getId);
+    private static final Pattern FIELD_QUERY = Pattern.compile("\\s*(.+?)\\s*(<=|>=|<|>|=)\\s*(.+?)\\s*");
+
+    private static volatile LocalPatientStore instance;
+
+    private final Path dir;
+    // Records without their custom fields, which live in fields under the row in rows
+    private final Map<String, PatientRecord> records = new HashMap<>();
+    private final Map<String, Integer> rows = new HashMap<>();
+    private final List<String> rowIds = new ArrayList<>();
+    private final Set<String> pending = new LinkedHashSet<>();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    private CustomFieldTable fields = new CustomFieldTable();
+    private AppendLog log;
+    private String syncToken;
+    // Live records in list order, rebuilt on the next read after a change
+    private List<PatientRecord> sorted;
+
+    public LocalPatientStore(Path dir) {
+        this.dir = dir;
+    }
+
+    public static LocalPatientStore getInstance() {
+        LocalPatientStore local = instance;
+        if (local == null) {
+            synchronized (LocalPatientStore.class) {
+                local = instance;
+                if (local == null) {
+                    local = new LocalPatientStore(Path.of(System.getProperty("andromeda.store.dir",
+                            System.getProperty("user.home") + "/.andromeda/store")));
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * Opens the log and replays it. Compacts the log when most of it is superseded records.
+     */
+    public synchronized void load() throws IOException {
+        if (log != null) {
+            return;
+        }
+        long start = System.nanoTime();
+        log = new AppendLog(dir.resolve(LOG_FILE));
+        int entries = log.replay(this::replay);
+        LOGGER.fine(String.format("Loaded %d patients (%d pending) from %d log entries in %.1f ms",
+                records.size(), pending.size(), entries, (System.nanoTime() - start) / 1_000_000.0));
+        if (entries > 2 * records.size() + 1_000) {
+            compact();
+        }
+        notifyListeners();
+    }
+
+    public synchronized boolean isLoaded() {
+        return log != null;
+    }
+
+    /**
+     * Whether a full copy of the directory has been pulled at least once, so local reads are
+     * complete.
+     */
+    public synchronized boolean hasSynced() {
+        return syncToken != null;
+    }
+
+    public synchronized String getSyncToken() {
+        return syncToken;
+    }
+
+    public synchronized int size() {
+        return sorted().size();
+    }
+
+    public synchronized PatientRecord get(String id) {
+        PatientRecord record = records.get(id);
+        return record == null || record.isDeleted() ? null : withFields(record);
+    }
+
+    public synchronized PatientDataSource.Page page(int offset, int limit) {
+        List<PatientRecord> all = sorted();
+        List<Patient> patients = new ArrayList<>(Math.max(0, Math.min(limit, all.size() - offset)));
+        for (int i = offset; i < all.size() && i < offset + limit; i++) {
+            patients.add(all.get(i).toPatient());
+        }
+        return new PatientDataSource.Page(offset, all.size(), patients);
+    }
+
+    /**
+     * Case-insensitive substring match on names, in list order. A query such as
+     * {@code weight > 80} or {@code admitted >= 2024-01-01} naming a known custom field is run
+     * as a {@link #filter} instead.
+     */
+    public synchronized List<Patient> search(String query, int limit) {
+        Matcher fieldQuery = FIELD_QUERY.matcher(query);
+        if (fieldQuery.matches() && fields.hasField(fieldQuery.group(1))) {
+            return filter(fieldQuery.group(1), CustomFieldTable.Comparison.fromSymbol(fieldQuery.group(2)),
+                    fieldQuery.group(3), limit);
+        }
+        String needle = query.toLowerCase(Locale.ROOT);
+        List<Patient> matches = new ArrayList<>();
+        for (PatientRecord record : sorted()) {
+            if (record.getFullName().toLowerCase(Locale.ROOT).contains(needle)) {
+                matches.add(record.toPatient());
+                if (matches.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Patients whose custom field {@code field} compares to {@code operand} as requested, in list
+     * order. Scans only that field's column.
+     */
+    public synchronized List<Patient> filter(String field, CustomFieldTable.Comparison comparison, String operand,
+                                             int limit) {
+        BitSet matching = fields.where(field, comparison, operand);
+        List<PatientRecord> matches = new ArrayList<>(matching.cardinality());
+        for (int row = matching.nextSetBit(0); row >= 0; row = matching.nextSetBit(row + 1)) {
+            PatientRecord record = records.get(rowIds.get(row));
+            if (!record.isDeleted()) {
+                matches.add(record);
+            }
+        }
+        matches.sort(BY_NAME);
+        List<Patient> patients = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            patients.add(matches.get(i).toPatient());
+        }
+        return patients;
+    }
+
+    /**
+     * Names of the custom fields of {@code type} seen so far.
+     */
+    public synchronized List<String> getFieldNames(CustomFieldTable.Type type) {
+        return fields.getFieldNames(type);
+    }
+
+    /**
+     * A copy of the custom-field columns needed to aggregate {@code valueField} per value of
+     * {@code groupField}; see {@link CustomFieldTable#cohorts}.
+     */
+    public synchronized AnalyticsEngine.Columns cohorts(String groupField, String valueField) {
+        return fields.cohorts(groupField, valueField);
+    }
+
+    /**
+     * Stores an edit made on this client and queues it for the next push.
+     */
+    public void saveLocal(PatientRecord record) {
+        saveAllLocal(List.of(record));
+    }
+
+    /**
+     * Stores several local edits with a single flush to disk.
+     */
+    public void saveAllLocal(List<PatientRecord> edits) {
+        synchronized (this) {
+            for (PatientRecord record : edits) {
+                put(record);
+                pending.add(record.getId());
+                write(new JSONObject().put("op", "put").put("pending", true).put("record", record.toJson()), false);
+            }
+            force();
+        }
+        notifyListeners();
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * The oldest {@code max} records that have local edits not yet accepted by the server.
+     */
+    public synchronized List<PatientRecord> pendingChanges(int max) {
+        List<PatientRecord> changes = new ArrayList<>(Math.min(max, pending.size()));
+        for (String id : pending) {
+            changes.add(withFields(records.get(id)));
+            if (changes.size() == max) {
+                break;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Records that the server accepted {@code pushed} as {@code version}. If the record was
+     * edited again while the push was in flight it stays pending, now based on that version.
+     */
+    public synchronized void acknowledge(PatientRecord pushed, long version) {
+        PatientRecord current = records.get(pushed.getId());
+        if (current == null) {
+            return;
+        }
+        boolean unchanged = current.getUpdatedAt() == pushed.getUpdatedAt();
+        PatientRecord acknowledged = withFields(current).withVersion(version);
+        put(acknowledged);
+        if (unchanged) {
+            pending.remove(pushed.getId());
+        }
+        write(new JSONObject().put("op", "put").put("pending", !unchanged).put("record", acknowledged.toJson()), true);
+    }
+
+    /**
+     * Applies records pulled from the server and remembers {@code token} (if not null) as the
+     * point to pull from next time.
+     *
+     * A record with a pending local edit is a conflict. The newer edit by {@code updatedAt}
+     * wins: the server copy replaces the local one, or the local edit is kept, rebased on the
+     * server version, and pushed again. Change listeners are only notified if a record was
+     * stored.
+     */
+    public void applyRemote(List<PatientRecord> remote, String token) {
+        boolean changed = false;
+        synchronized (this) {
+            for (PatientRecord incoming : remote) {
+                PatientRecord local = records.get(incoming.getId());
+                if (local != null && pending.contains(incoming.getId())) {
+                    if (incoming.getUpdatedAt() > local.getUpdatedAt()) {
+                        LOGGER.info("Patient " + incoming.getId() + " was changed on the server after the local edit; "
+                                + "keeping the server version");
+                        pending.remove(incoming.getId());
+                        put(incoming);
+                        write(new JSONObject().put("op", "put").put("record", incoming.toJson()), false);
+                        changed = true;
+                    } else {
+                        PatientRecord rebased = withFields(local).withVersion(incoming.getVersion());
+                        put(rebased);
+                        write(new JSONObject().put("op", "put").put("pending", true).put("record", rebased.toJson()),
+                                false);
+                    }
+                } else if (local == null || incoming.getVersion() >= local.getVersion()) {
+                    put(incoming);
+                    write(new JSONObject().put("op", "put").put("record", incoming.toJson()), false);
+                    changed = true;
+                }
+            }
+            if (token != null) {
+                syncToken = token;
+                write(new JSONObject().put("op", "token").put("token", token), false);
+            }
+            force();
+        }
+        // An empty pull only moves the token; listeners refresh whole lists, so do not wake them
+        if (changed) {
+            notifyListeners();
+        }
+    }
+
+    /**
+     * Closes the store and deletes its log, so no patient data stays on this workstation; used
+     * on logout once sync has stopped. Edits that were never pushed are lost. The next
+     * {@link #load()} starts from an empty store.
+     */
+    public void purge() throws IOException {
+        synchronized (this) {
+            if (!pending.isEmpty()) {
+                LOGGER.warning("Discarding " + pending.size() + " patient edits that were never synced");
+            }
+            if (log != null) {
+                log.close();
+                log = null;
+            }
+            Files.deleteIfExists(dir.resolve(LOG_FILE));
+            records.clear();
+            rows.clear();
+            rowIds.clear();
+            fields = new CustomFieldTable();
+            pending.clear();
+            syncToken = null;
+            sorted = null;
+        }
+        notifyListeners();
+    }
+
+    /**
+     * {@code listener} runs on the thread that made the change, outside the store's lock.
+     */
+    public void addChangeListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    private void replay(ByteBuffer entry) {
+        JSONObject json = new JSONObject(StandardCharsets.UTF_8.decode(entry).toString());
+        switch (json.getString("op")) {
+            case "put":
+                PatientRecord record = PatientRecord.fromJson(json.getJSONObject("record"));
+                put(record);
+                if (json.optBoolean("pending")) {
+                    pending.add(record.getId());
+                } else {
+                    pending.remove(record.getId());
+                }
+                break;
+            case "token":
+                syncToken = json.getString("token");
+                break;
+            default:
+                LOGGER.fine("Ignoring unknown store entry " + json.getString("op"));
+        }
+    }
+
+    private void put(PatientRecord record) {
+        Integer row = rows.get(record.getId());
+        if (row == null) {
+            row = rowIds.size();
+            rows.put(record.getId(), row);
+            rowIds.add(record.getId());
+        }
+        if (record.isDeleted()) {
+            fields.clear(row);
+        } else {
+            fields.set(row, record.getFields());
+        }
+        records.put(record.getId(), record.getFields().isEmpty() ? record : record.withFields(null));
+        sorted = null;
+    }
+
+    private PatientRecord withFields(PatientRecord record) {
+        Map<String, String> values = fields.get(rows.get(record.getId()));
+        return values.isEmpty() ? record : record.withFields(values);
+    }
+
+    private List<PatientRecord> sorted() {
+        if (sorted == null) {
+            List<PatientRecord> live = new ArrayList<>(records.size());
+            for (PatientRecord record : records.values()) {
+                if (!record.isDeleted()) {
+                    live.add(record);
+                }
+            }
+            live.sort(BY_NAME);
+            sorted = live;
+        }
+        return sorted;
+    }
+
+    private void compact() throws IOException {
+        List<byte[]> entries = new ArrayList<>(records.size() + 1);
+        for (PatientRecord record : records.values()) {
+            entries.add(new JSONObject().put("op", "put").put("pending", pending.contains(record.getId()))
+                    .put("record", withFields(record).toJson()).toString().getBytes(StandardCharsets.UTF_8));
+        }
+        if (syncToken != null) {
+            entries.add(new JSONObject().put("op", "token").put("token", syncToken).toString()
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        log.rewrite(entries);
+        LOGGER.fine("Compacted patient store to " + entries.size() + " entries");
+    }
+
+    private void write(JSONObject entry, boolean force) {
+        if (log == null) {
+            throw new IllegalStateException("Patient store is not loaded");
+        }
+        try {
+            log.append(entry.toString().getBytes(StandardCharsets.UTF_8));
+            if (force) {
+                log.force();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write patient store", e);
+        }
+    }
+
+    private void force() {
+        try {
+            if (log != null) {
+                log.force();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write patient store", e);
+        }
+    }
+
+    private void notifyListeners() {
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package com.example.andromeda;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.beans.binding.Bindings;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -10,12 +14,9 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.stage.Stage;
 
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.net.URI;
-import java.io.IOException;
-import java.io.File;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
@@ -24,18 +25,34 @@ import org.json.JSONObject;
 public class LoginApp extends Application {
 
     private static final Logger LOGGER = Logger.getLogger(LoginApp.class.getName());
-    private static final String PRIMARY_COLOR = "#3498db";
-    private static final String SECONDARY_COLOR = "#ffffff";
-    private static final String API_URL = "http://localhost:8080"; // Update this to your actual API URL
+    private static final String STARTUP_PROBE_PROPERTY = "andromeda.startup.probe";
 
     private TextField emailField;
     private PasswordField passwordField;
+    private CheckBox rememberMe;
+    private Button signInButton;
+    private ProgressIndicator loginProgress;
+    private Task<HttpResponse<String>> loginTask;
+    // The main window being built for the login in flight, and what it prefetches
+    private Task<MainHome> homeTask;
+    private DashboardPrefetch prefetch;
 
     @Override
     public void start(Stage primaryStage) {
+        // A remembered session goes straight to the main window; its tokens refresh in the background
+        if (!Boolean.getBoolean(STARTUP_PROBE_PROPERTY) && SessionManager.getInstance().restore()) {
+            LOGGER.fine("Restored remembered session");
+            showMainHomeScreen(primaryStage, new MainHome());
+            return;
+        }
         showLoginScreen(primaryStage);
     }
 
+    @Override
+    public void stop() {
+        Telemetry.getInstance().stop();
+    }
+
     private void showLoginScreen(Stage stage) {
         BorderPane root = new BorderPane();
 
@@ -46,57 +63,60 @@ public class LoginApp extends Application {
         root.setRight(rightSide);
 
         Scene scene = new Scene(root, 900, 600);
-        String stylesheetUrl = getClass().getResource("/styles.css").toExternalForm();
-        if (stylesheetUrl != null) {
-            scene.getStylesheets().add(stylesheetUrl);
-        } else {
-            LOGGER.warning("Stylesheet not found");
-        }
+        Theme.apply(scene);
         stage.setScene(scene);
         stage.setTitle("Andromeda Healthcare - Login");
         stage.show();
+
+        // Only the form is needed to log in; branding and telemetry wait until it is on screen
+        BackgroundTasks.runAfterNextPulse(root, () -> {
+            long readyMillis = millisSinceProcessStart();
+            populateLeftSide(leftSide);
+            Telemetry.getInstance().start();
+            if (Boolean.getBoolean(STARTUP_PROBE_PROPERTY)) {
+                reportStartupAndExit(readyMillis);
+            }
+        });
     }
 
     private VBox createLeftSide() {
         VBox vbox = new VBox(30);
-        vbox.setStyle("-fx-background-color: " + PRIMARY_COLOR + ";");
+        vbox.getStyleClass().add("brand-pane");
         vbox.setPrefWidth(450);
         vbox.setPadding(new Insets(60));
         vbox.setAlignment(Pos.CENTER_LEFT);
+        return vbox;
+    }
 
+    private void populateLeftSide(VBox vbox) {
         // Load the hospital logo
         ImageView logoImageView = new ImageView();
-        try {
-            File file = new File("/home/Arktech/Projects/Andromeda/images/and.jpg");
-            Image logoImage = new Image(file.toURI().toString());
+        logoImageView.setFitWidth(80);
+        logoImageView.setFitHeight(80);
+        logoImageView.setPreserveRatio(true);
+        Image logoImage = ImageService.getInstance().loadResource("/images/and.jpg", 80, 80);
+        if (logoImage != null) {
             logoImageView.setImage(logoImage);
-            logoImageView.setFitWidth(80);
-            logoImageView.setFitHeight(80);
-            logoImageView.setPreserveRatio(true);
-        } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Failed to load hospital logo", e);
+        } else {
+            LOGGER.warning("Failed to load hospital logo");
         }
 
         Label title = new Label("Andromeda Healthcare");
         title.getStyleClass().add("title-label");
-        title.setStyle("-fx-text-fill: " + SECONDARY_COLOR + ";");
 
         Label subtitle = new Label("Healthcare Management System");
         subtitle.getStyleClass().add("subtitle-label");
-        subtitle.setStyle("-fx-text-fill: " + SECONDARY_COLOR + ";");
 
         Label description = new Label("A powerful, yet intuitive solution for managing and analyzing patient data, enhancing healthcare delivery through advanced technology.");
         description.getStyleClass().add("description-label");
-        description.setStyle("-fx-text-fill: " + SECONDARY_COLOR + ";");
         description.setWrapText(true);
 
         vbox.getChildren().addAll(logoImageView, title, subtitle, description);
-        return vbox;
     }
 
     private VBox createRightSide(Stage stage) {
         VBox vbox = new VBox(30);
-        vbox.setStyle("-fx-background-color: " + SECONDARY_COLOR + ";");
+        vbox.getStyleClass().add("form-pane");
         vbox.setPrefWidth(450);
         vbox.setPadding(new Insets(60));
         vbox.setAlignment(Pos.TOP_LEFT);
@@ -105,21 +125,25 @@ public class LoginApp extends Application {
         topRightBox.setAlignment(Pos.TOP_RIGHT);
         Hyperlink createAccountLink = new Hyperlink("CREATE ACCOUNT");
         createAccountLink.getStyleClass().add("create-account-link");
-        createAccountLink.setStyle("-fx-text-fill: " + PRIMARY_COLOR + ";");
         createAccountLink.setOnAction(e -> showRegistrationScreen(stage));
         topRightBox.getChildren().add(createAccountLink);
 
         Label loginLabel = new Label("Log into Andromeda");
         loginLabel.getStyleClass().add("login-label");
-        loginLabel.setStyle("-fx-text-fill: " + PRIMARY_COLOR + ";");
 
         VBox form = createLoginForm();
-        Button signInButton = new Button("SIGN IN");
+        signInButton = new Button("SIGN IN");
         signInButton.getStyleClass().add("sign-in-button");
-        signInButton.setStyle("-fx-background-color: " + PRIMARY_COLOR + "; -fx-text-fill: " + SECONDARY_COLOR + ";");
         signInButton.setOnAction(e -> handleLogin(stage));
 
-        vbox.getChildren().addAll(topRightBox, loginLabel, form, signInButton);
+        loginProgress = new ProgressIndicator();
+        loginProgress.setPrefSize(24, 24);
+        loginProgress.setVisible(false);
+
+        HBox actions = new HBox(15, signInButton, loginProgress);
+        actions.setAlignment(Pos.CENTER_LEFT);
+
+        vbox.getChildren().addAll(topRightBox, loginLabel, form, actions);
         return vbox;
     }
 
@@ -134,7 +158,7 @@ public class LoginApp extends Application {
         passwordField.setPromptText("Password");
         passwordField.getStyleClass().add("text-field");
 
-        CheckBox rememberMe = new CheckBox("Remember me");
+        rememberMe = new CheckBox("Remember me");
         rememberMe.getStyleClass().add("check-box");
 
         form.getChildren().addAll(emailField, passwordField, rememberMe);
@@ -142,6 +166,13 @@ public class LoginApp extends Application {
     }
 
     private void handleLogin(Stage stage) {
+        // While a login is in flight the button cancels it instead of sending a second one
+        if (loginTask != null && loginTask.isRunning()) {
+            loginTask.cancel();
+            prefetch = null;
+            return;
+        }
+
         String email = emailField.getText();
         String password = passwordField.getText();
 
@@ -150,31 +181,43 @@ public class LoginApp extends Application {
             return;
         }
 
-        try {
-            HttpClient client = HttpClient.newHttpClient();
-            JSONObject json = new JSONObject();
-            json.put("email", email);
-            json.put("password", password);
-
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(API_URL + "/api/auth/login"))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(json.toString()))
-                    .build();
-
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 200) {
-                showAlert("Success", "Login successful!");
-                showMainHomeScreen(stage);
-            } else {
-                JSONObject errorResponse = new JSONObject(response.body());
-                String errorMessage = errorResponse.optString("message", "Login failed. Please check your credentials.");
-                showAlert("Error", errorMessage);
-            }
-        } catch (IOException | InterruptedException ex) {
-            LOGGER.log(Level.SEVERE, "An error occurred while trying to log in", ex);
-            showAlert("Error", "An error occurred while trying to log in. Please try again later.");
+        JSONObject json = new JSONObject();
+        json.put("email", email);
+        json.put("password", password);
+
+        DashboardPrefetch attempt = new DashboardPrefetch();
+        prefetch = attempt;
+        loginTask = BackgroundTasks.submitAsync(
+                () -> ApiClient.getInstance().postJson(SessionManager.LOGIN_ENDPOINT, json),
+                response -> handleLoginResponse(stage, response, attempt),
+                ex -> {
+                    LOGGER.log(Level.SEVERE, "An error occurred while trying to log in", ex);
+                    showAlert("Error", "An error occurred while trying to log in. Please try again later.");
+                });
+        loginProgress.visibleProperty().bind(loginTask.runningProperty());
+        signInButton.textProperty().bind(Bindings.when(loginTask.runningProperty())
+                .then("CANCEL").otherwise("SIGN IN"));
+
+        // Build the main window's node tree while waiting for the response; its scene is made on the FX thread
+        homeTask = BackgroundTasks.submit(progress -> {
+            MainHome home = new MainHome();
+            home.prepare(attempt);
+            return home;
+        }, home -> showPreparedHome(stage, attempt), e -> {
+            LOGGER.log(Level.WARNING, "Failed to prepare the main screen", e);
+            showPreparedHome(stage, attempt);
+        });
+    }
+
+    private void handleLoginResponse(Stage stage, HttpResponse<String> response, DashboardPrefetch attempt) {
+        if (response.statusCode() == 200) {
+            SessionManager.getInstance().start(response.body(), rememberMe.isSelected());
+            attempt.authenticated(ApiClient.getInstance());
+            showPreparedHome(stage, attempt);
+        } else {
+            JSONObject errorResponse = new JSONObject(response.body());
+            String errorMessage = errorResponse.optString("message", "Login failed. Please check your credentials.");
+            showAlert("Error", errorMessage);
         }
     }
 
@@ -183,9 +226,22 @@ public class LoginApp extends Application {
         registrationForm.show(stage);
     }
 
-    private void showMainHomeScreen(Stage stage) {
+    /**
+     * Opens the main window once both the login for {@code attempt} has succeeded and its
+     * window has been built; whichever finishes second calls through. If building failed the
+     * window is built here instead.
+     */
+    private void showPreparedHome(Stage stage, DashboardPrefetch attempt) {
+        if (attempt != prefetch || !attempt.isAuthenticated() || !homeTask.isDone()) {
+            return;
+        }
+        prefetch = null;
+        MainHome home = homeTask.getState() == Worker.State.SUCCEEDED ? homeTask.getValue() : new MainHome();
+        showMainHomeScreen(stage, home);
+    }
+
+    private void showMainHomeScreen(Stage stage, MainHome mainHome) {
         try {
-            MainHome mainHome = new MainHome();
             mainHome.start(new Stage());  // Start MainHome in a new stage
             stage.close();  // Close the login stage
         } catch (Exception e) {
@@ -202,6 +258,21 @@ public class LoginApp extends Application {
         alert.showAndWait();
     }
 
+    private static long millisSinceProcessStart() {
+        return ProcessHandle.current().info().startInstant()
+                .map(started -> Duration.between(started, Instant.now()).toMillis())
+                .orElse(-1L);
+    }
+
+    /**
+     * With {@code -Dandromeda.startup.probe=true} the app prints how long it took until the
+     * login form was on screen and exits. Used by the CDS training run and StartupBenchmark.
+     */
+    private static void reportStartupAndExit(long readyMillis) {
+        System.out.println("andromeda.startup.readyMs=" + readyMillis);
+        Platform.exit();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
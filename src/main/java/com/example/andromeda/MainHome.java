@@ -1,24 +1,29 @@
 package com.example.andromeda;
 
 import javafx.application.Application;
+import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.Scene;
-import javafx.scene.chart.LineChart;
-import javafx.scene.chart.NumberAxis;
-import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
 import javafx.scene.image.ImageView;
-import javafx.scene.image.Image;
 import org.kordamp.ikonli.javafx.FontIcon;
 import org.kordamp.ikonli.fontawesome5.FontAwesomeSolid;
 
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.net.URI;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.logging.Logger;
@@ -27,23 +32,53 @@ import java.util.logging.Level;
 public class MainHome extends Application {
 
     private static final Logger LOGGER = Logger.getLogger(MainHome.class.getName());
-    private static final String PRIMARY_COLOR = "#3498db";
-    private static final String SECONDARY_COLOR = "#ffffff";
-    private static final String API_URL = "http://localhost:8080"; // Update this to your actual API URL
+    static final String HEART_RATE_PATH = "/api/vitals/heart-rate";
+    static final Duration HEART_RATE_TTL = Duration.ofMinutes(1);
+    private static final int HEART_RATE_CAPACITY = 24 * 60 * 60;
+    // How long closing the window may wait for unsent patient edits to be pushed
+    private static final long SYNC_SHUTDOWN_MILLIS = 3_000;
 
     private String userFullName = "User";
 
     private BorderPane root;
+    private Scene scene;
+    private DashboardPrefetch prefetch;
     private Stage primaryStage;
-
-    @Override
-    public void start(Stage primaryStage) {
-        this.primaryStage = primaryStage;
-        fetchUserData();
-
+    private ScreenRouter router;
+    private final Map<String, HBox> menuItems = new HashMap<>();
+    private Label welcomeLabel;
+    private Task<String> userDataTask;
+    private boolean loggingOut;
+    private boolean loggedOut;
+    private final VitalsFeed vitalsFeed = new VitalsFeed(ApiClient.getInstance());
+
+    /**
+     * Builds the window's node tree, detached from any scene. Nothing here touches the network,
+     * a scene or CSS, so {@link LoginApp} runs it on a background thread while the login request
+     * is in flight; {@code prefetch} (may be null) then also supplies the dashboard's first
+     * responses. The scene itself is created and styled by {@link #start(Stage)} on the FX thread.
+     */
+    public void prepare(DashboardPrefetch prefetch) {
+        this.prefetch = prefetch;
+        if (prefetch != null) {
+            prefetch.sceneStarted();
+        }
         root = new BorderPane();
         root.getStyleClass().add("root");
 
+        router = new ScreenRouter(root::setCenter);
+        router.register("Dashboard", DashboardScreen::new);
+        // A lambda rather than PatientScreen::new, so the class is not even loaded before first use
+        router.register("Patients", () -> new PatientScreen());
+        router.register("Stats", () -> new StatsScreen());
+        router.currentProperty().addListener((obs, oldScreen, newScreen) -> {
+            menuItems.forEach((name, item) -> item.getStyleClass().remove("menu-item-active"));
+            HBox active = newScreen == null ? null : menuItems.get(newScreen);
+            if (active != null) {
+                active.getStyleClass().add("menu-item-active");
+            }
+        });
+
         // Top bar
         HBox topBar = createTopBar();
         root.setTop(topBar);
@@ -53,36 +88,90 @@ public class MainHome extends Application {
         root.setLeft(sidebar);
 
         // Main content
-        navigateToDashboard();
+        router.navigate("Dashboard");
 
-        Scene scene = new Scene(root, 1200, 800);
-        scene.getStylesheets().add(getClass().getResource("/styles.css").toExternalForm());
+        if (prefetch != null) {
+            prefetch.sceneBuilt();
+        }
+    }
+
+    /**
+     * Puts the prepared tree into a scene and styles it. FX thread only: CSS shares caches
+     * with every other window.
+     */
+    private void buildScene() {
+        scene = new Scene(root, 1200, 800);
+        Theme.apply(scene);
+        // Resolve styles and create skins now rather than in the first pulse after show
+        root.applyCss();
+    }
+
+    @Override
+    public void start(Stage primaryStage) {
+        if (root == null) {
+            prepare(null);
+        }
+        if (scene == null) {
+            buildScene();
+        }
+        this.primaryStage = primaryStage;
+        Telemetry.getInstance().start();
+        PatientSync.getInstance().start();
+        vitalsFeed.start();
+        fetchUserData();
 
         primaryStage.setTitle("Andromeda Healthcare");
         primaryStage.setScene(scene);
+        primaryStage.setOnHidden(e -> {
+            if (userDataTask != null) {
+                userDataTask.cancel();
+            }
+            vitalsFeed.stop();
+            router.disposeAll();
+            // Writing queued edits and the last push wait on disk and network; keep them off the FX thread
+            PatientSync.getInstance().stopInBackground(PatientEditQueue.getInstance()::flush,
+                    loggedOut ? MainHome::purgeLocalData : null, SYNC_SHUTDOWN_MILLIS);
+        });
         primaryStage.show();
+        if (prefetch != null) {
+            prefetch.shown();
+        }
     }
 
-
     private void fetchUserData() {
+        if (userDataTask != null && userDataTask.isRunning()) {
+            return;
+        }
+        // A response prefetched during login that has already arrived is shown in the first frame
+        CompletableFuture<String> prefetched = prefetch == null ? null : prefetch.takeUser();
+        if (prefetched != null && prefetched.isDone() && !prefetched.isCompletedExceptionally()) {
+            applyUserData(prefetched.join());
+            return;
+        }
+        // Render the last known profile straight away; the request below refreshes it
+        String cached = ApiClient.getInstance().peekCached(SessionManager.CURRENT_USER_PATH);
+        if (cached != null) {
+            applyUserData(cached);
+        }
+        userDataTask = BackgroundTasks.submitAsync(
+                () -> prefetched != null
+                        ? prefetched
+                        : ApiClient.getInstance().getCached(SessionManager.CURRENT_USER_PATH, SessionManager.CURRENT_USER_TTL),
+                this::applyUserData,
+                e -> LOGGER.log(Level.SEVERE, "Error fetching user data", e));
+    }
+
+    private void applyUserData(String body) {
         try {
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(API_URL + "/api/user/current"))
-                    .header("Content-Type", "application/json")
-                    .GET()
-                    .build();
-
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 200) {
-                JSONObject userData = new JSONObject(response.body());
-                userFullName = userData.getString("fullName");
-            } else {
-                LOGGER.log(Level.WARNING, "Failed to fetch user data. Status code: " + response.statusCode());
-            }
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Error fetching user data", e);
+            JSONObject userData = new JSONObject(body);
+            userFullName = userData.getString("fullName");
+        } catch (JSONException ex) {
+            LOGGER.log(Level.SEVERE, "Error parsing user data", ex);
+            return;
+        }
+        SessionManager.getInstance().updateProfile(body);
+        if (welcomeLabel != null) {
+            welcomeLabel.setText("Welcome " + userFullName + "!");
         }
     }
 
@@ -154,12 +243,13 @@ public class MainHome extends Application {
         label.getStyleClass().add("menu-text");
 
         item.getChildren().addAll(icon, label);
+        menuItems.put(text, item);
 
         item.setOnMouseClicked(event -> {
-            if (text.equals("Patients")) {
-                navigateToPatientScreen();
-            } else if (text.equals("Dashboard")) {
-                navigateToDashboard();
+            if (router.isRegistered(text)) {
+                router.navigate(text);
+            } else if (text.equals("Logout")) {
+                logout();
             }
             // Add other navigation logic for other menu items as needed
         });
@@ -167,17 +257,98 @@ public class MainHome extends Application {
         return item;
     }
 
-    private void navigateToPatientScreen() {
-        PatientScreen patientScreen = new PatientScreen();
-        BorderPane patientContent = patientScreen.createContent();
-        root.setCenter(patientContent);
+    /**
+     * Pushes queued edits while the session is still valid, then forgets the session, including
+     * a remembered one, and returns to the login screen. Edits the backend did not take are kept
+     * on this workstation, and the user is told so.
+     */
+    private void logout() {
+        if (loggingOut) {
+            return;
+        }
+        loggingOut = true;
+        BackgroundTasks.submit(progress -> {
+            PatientEditQueue.getInstance().flush();
+            PatientSync.getInstance().stop(SYNC_SHUTDOWN_MILLIS);
+            LocalPatientStore store = LocalPatientStore.getInstance();
+            return store.isLoaded() ? store.getPendingCount() : 0;
+        }, this::finishLogout, e -> {
+            LOGGER.log(Level.WARNING, "Failed to push edits before logging out", e);
+            finishLogout(LocalPatientStore.getInstance().getPendingCount());
+        });
     }
 
-    private void navigateToDashboard() {
-        ScrollPane scrollPane = new ScrollPane();
-        scrollPane.setFitToWidth(true);
-        scrollPane.setContent(createMainContent());
-        root.setCenter(scrollPane);
+    private void finishLogout(int unsynced) {
+        if (unsynced > 0) {
+            Alert alert = new Alert(Alert.AlertType.WARNING);
+            alert.setTitle("Unsynced changes");
+            alert.setHeaderText(null);
+            alert.setContentText(unsynced + " patient " + (unsynced == 1 ? "change" : "changes")
+                    + " could not be sent to the server. They are kept on this workstation and sent"
+                    + " after the next sign-in.");
+            alert.showAndWait();
+        }
+        loggedOut = true;
+        SessionManager.getInstance().logout();
+        try {
+            new LoginApp().start(new Stage());
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error opening login screen", e);
+        }
+        primaryStage.close();
+    }
+
+    /**
+     * Deletes the local patient and medical record stores once sync has stopped, so none of the
+     * signed-out user's data stays on this workstation. A patient store still holding edits
+     * that were never pushed is kept rather than losing them.
+     */
+    private static void purgeLocalData() {
+        LocalPatientStore store = LocalPatientStore.getInstance();
+        if (store.getPendingCount() > 0) {
+            LOGGER.warning("Keeping the local patient store: " + store.getPendingCount() + " edits were never synced");
+        } else {
+            try {
+                store.purge();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to delete the local patient store", e);
+            }
+        }
+        try {
+            MedicalRecordStore.getInstance().purge();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to delete the local medical record store", e);
+        }
+    }
+
+    /**
+     * Shows the named sidebar screen ("Dashboard", "Patients", ...). Must be called on the FX
+     * thread after {@link #start(Stage)}.
+     */
+    public void navigateTo(String screen) {
+        router.navigate(screen);
+    }
+
+    /**
+     * The dashboard is built on first visit and kept; revisits only refresh the user data.
+     */
+    private class DashboardScreen implements Screen {
+
+        @Override
+        public Node createView() {
+            ScrollPane scrollPane = new ScrollPane();
+            scrollPane.setFitToWidth(true);
+            scrollPane.setContent(createMainContent());
+            return scrollPane;
+        }
+
+        @Override
+        public void onShow() {
+            // The first visit happens in prepare(); start() fetches once the window is shown
+            if (primaryStage != null) {
+                fetchUserData();
+            }
+        }
     }
 
 
@@ -216,6 +387,7 @@ public class MainHome extends Application {
         VBox textContent = new VBox(10);
         Label welcomeText = new Label("Welcome " + userFullName + "!");
         welcomeText.getStyleClass().add("welcome-title");
+        welcomeLabel = welcomeText;
         Label subText = new Label("Let's check your health stats with us. Care with us!");
         subText.getStyleClass().add("welcome-subtitle");
 
@@ -224,7 +396,7 @@ public class MainHome extends Application {
 
         textContent.getChildren().addAll(welcomeText, subText, connectButton);
 
-        ImageView doctorsImage = new ImageView(new Image(getClass().getResourceAsStream("/images/docs.jpg")));
+        ImageView doctorsImage = new ImageView(ImageService.getInstance().loadResource("/images/docs.jpg", 0, 120));
         doctorsImage.setFitHeight(120);
         doctorsImage.setPreserveRatio(true);
 
@@ -237,16 +409,17 @@ public class MainHome extends Application {
 
     private HBox createHealthMetrics() {
         HBox metrics = new HBox(20);
+        // Values are placeholders until the live feed delivers the first readings
         metrics.getChildren().addAll(
-                createMetricCard("Blood Pressure", "110/70", "mmHg", FontAwesomeSolid.HEART),
-                createMetricCard("Heart Rate", "85", "bmp", FontAwesomeSolid.HEARTBEAT),
-                createMetricCard("Glucose Level", "75-90", "mg/dL", FontAwesomeSolid.TINT),
-                createMetricCard("Blood Count", "9,456", "ml", FontAwesomeSolid.VIAL)
+                createMetricCard("bloodPressure", "Blood Pressure", "110/70", "mmHg", FontAwesomeSolid.HEART),
+                createMetricCard("heartRate", "Heart Rate", "85", "bmp", FontAwesomeSolid.HEARTBEAT),
+                createMetricCard("glucose", "Glucose Level", "75-90", "mg/dL", FontAwesomeSolid.TINT),
+                createMetricCard("bloodCount", "Blood Count", "9,456", "ml", FontAwesomeSolid.VIAL)
         );
         return metrics;
     }
 
-    private VBox createMetricCard(String title, String value, String unit, FontAwesomeSolid iconCode) {
+    private VBox createMetricCard(String metric, String title, String value, String unit, FontAwesomeSolid iconCode) {
         VBox card = new VBox(10);
         card.getStyleClass().add("metric-card");
         card.setPadding(new Insets(15));
@@ -261,6 +434,7 @@ public class MainHome extends Application {
         titleLabel.getStyleClass().add("metric-title");
         Label valueLabel = new Label(value);
         valueLabel.getStyleClass().add("metric-value");
+        vitalsFeed.bind(metric, valueLabel);
         Label unitLabel = new Label(unit);
         unitLabel.getStyleClass().add("metric-unit");
 
@@ -277,32 +451,78 @@ public class MainHome extends Application {
         titleBox.setAlignment(Pos.CENTER_LEFT);
         Label chartTitle = new Label("Performance Heart Rate");
         chartTitle.getStyleClass().add("chart-title");
-        Label averageLabel = new Label("72 bmp Average");
+        // Filled in by the analytics engine once the stored series has loaded
+        Label averageLabel = new Label("-- bmp Average");
         averageLabel.getStyleClass().add("chart-average");
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
         titleBox.getChildren().addAll(chartTitle, spacer, averageLabel);
 
-        NumberAxis xAxis = new NumberAxis();
-        NumberAxis yAxis = new NumberAxis();
-        LineChart<Number, Number> lineChart = new LineChart<>(xAxis, yAxis);
-        lineChart.setCreateSymbols(false);
-        lineChart.setLegendVisible(false);
-        lineChart.getStyleClass().add("blue-chart");
-
-        XYChart.Series series = new XYChart.Series();
-        series.getData().add(new XYChart.Data(1, 70));
-        series.getData().add(new XYChart.Data(2, 75));
-        series.getData().add(new XYChart.Data(3, 72));
-        series.getData().add(new XYChart.Data(4, 78));
-        series.getData().add(new XYChart.Data(5, 71));
-        series.getData().add(new XYChart.Data(6, 76));
-        series.getData().add(new XYChart.Data(7, 73));
+        // The chart and its day-sized buffer are created after the dashboard's first frame
+        Region chartPlaceholder = new Region();
+        chartPlaceholder.setPrefSize(400, 240);
+        chartContainer.getChildren().addAll(titleBox, chartPlaceholder);
+        BackgroundTasks.runAfterNextPulse(chartContainer,
+                () -> chartContainer.getChildren().set(1, createHeartRateLineChart(averageLabel)));
+        return chartContainer;
+    }
 
-        lineChart.getData().add(series);
+    private StreamingLineChart createHeartRateLineChart(Label averageLabel) {
+        // One day of 1 Hz samples; the view shows the last hour until zoomed or panned
+        StreamingLineChart lineChart = new StreamingLineChart(HEART_RATE_CAPACITY, 3600);
+        lineChart.getStyleClass().add("blue-chart");
+        lineChart.setEmptyText("No heart rate data");
+        loadHeartRateHistory(lineChart, averageLabel);
+        vitalsFeed.addSampleListener((metric, time, value) -> {
+            if (metric.equals("heartRate")) {
+                lineChart.append(time, value);
+            }
+        });
+        return lineChart;
+    }
 
-        chartContainer.getChildren().addAll(titleBox, lineChart);
-        return chartContainer;
+    /**
+     * Loads the stored heart-rate series ({@code {"timestamps": [...], "values": [...]}}, times in
+     * epoch seconds) into the chart and shows its mean in {@code averageLabel}. Parsing and
+     * aggregation happen off the FX thread.
+     */
+    private void loadHeartRateHistory(StreamingLineChart chart, Label averageLabel) {
+        CompletableFuture<String> prefetched = prefetch == null ? null : prefetch.takeHeartRate();
+        BackgroundTasks.submit(progress -> {
+            String body = (prefetched != null
+                    ? prefetched
+                    : ApiClient.getInstance().getCached(HEART_RATE_PATH, HEART_RATE_TTL)).get();
+            double[] timestamps = new double[0];
+            double[] values = new double[0];
+            try (JsonStreamReader reader = new JsonStreamReader(new StringReader(body))) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "timestamps":
+                            timestamps = reader.nextDoubleArray();
+                            break;
+                        case "values":
+                            values = reader.nextDoubleArray();
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+            }
+            int count = Math.min(Math.min(timestamps.length, values.length), HEART_RATE_CAPACITY);
+            int offset = Math.min(timestamps.length, values.length) - count;
+            double[] times = Arrays.copyOfRange(timestamps, offset, offset + count);
+            double[] samples = Arrays.copyOfRange(values, offset, offset + count);
+            chart.appendAll(times, samples, count);
+            return AnalyticsEngine.getInstance().summarizeHeartRate(samples, count, null).get();
+        }, result -> {
+            AnalyticsEngine.Summary summary = result.get("all");
+            if (summary != null) {
+                averageLabel.setText(String.format("%.0f bmp Average", summary.getMean()));
+            }
+            LOGGER.fine("Loaded " + (summary == null ? 0 : summary.getCount()) + " heart rate samples");
+        },
+                e -> LOGGER.log(Level.WARNING, "Failed to load heart rate history", e));
     }
 
     private VBox createHealthReports() {
@@ -353,11 +573,50 @@ public class MainHome extends Application {
         downloadButton.getStyleClass().add("download-button");
         FontIcon downloadIcon = new FontIcon(FontAwesomeSolid.DOWNLOAD);
         downloadButton.setGraphic(downloadIcon);
+        downloadButton.setOnAction(e -> toggleDownload(fileName, downloadButton));
 
         item.getChildren().addAll(fileIcon, fileInfo, spacer, downloadButton);
         return item;
     }
 
+    /**
+     * Starts or resumes downloading a report, or pauses it if it is running. The button shows
+     * the progress while the download runs or waits for a free slot.
+     */
+    private void toggleDownload(String fileName, Button button) {
+        if (button.getUserData() instanceof DownloadManager.Download) {
+            DownloadManager.Download running = (DownloadManager.Download) button.getUserData();
+            if (!running.isDone()) {
+                running.cancel();
+                return;
+            }
+        }
+        String path = DownloadManager.REPORTS_ENDPOINT
+                + URLEncoder.encode(fileName, StandardCharsets.UTF_8).replace("+", "%20");
+        DownloadManager.Download download = DownloadManager.getInstance().download(path, fileName);
+        button.setUserData(download);
+
+        ProgressIndicator indicator = new ProgressIndicator();
+        indicator.progressProperty().bind(download.progressProperty());
+        indicator.setPrefSize(16, 16);
+        button.setGraphic(indicator);
+        button.setTooltip(new Tooltip("Downloading " + fileName + ". Click to pause."));
+
+        download.addEventHandler(WorkerStateEvent.WORKER_STATE_SUCCEEDED, e -> {
+            button.setGraphic(new FontIcon(FontAwesomeSolid.CHECK));
+            button.setTooltip(new Tooltip("Saved to " + download.getValue()));
+        });
+        download.addEventHandler(WorkerStateEvent.WORKER_STATE_CANCELLED, e -> {
+            button.setGraphic(new FontIcon(FontAwesomeSolid.DOWNLOAD));
+            button.setTooltip(new Tooltip("Paused. Click to resume."));
+        });
+        download.addEventHandler(WorkerStateEvent.WORKER_STATE_FAILED, e -> {
+            LOGGER.log(Level.WARNING, "Failed to download " + fileName, download.getException());
+            button.setGraphic(new FontIcon(FontAwesomeSolid.DOWNLOAD));
+            button.setTooltip(new Tooltip("Download failed. Click to retry."));
+        });
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
@@ -0,0 +1,136 @@
+package com.example.andromeda;
+
+import java.util.Objects;
+
+import org.json.JSONObject;
+
+/**
+ * One document in a patient's medical record: a clinical note or the text of a report.
+ *
+ * Pulled from the backend by {@link PatientSync} and kept in the {@link MedicalRecordStore}.
+ * {@code version} is the server's revision and {@code createdAt} the wall-clock time the note
+ * was written or the report issued. Records are immutable.
+ */
+public final class MedicalRecord {
+
+    private final String id;
+    private final String patientId;
+    private final String kind;
+    private final String title;
+    private final String text;
+    private final long createdAt;
+    private final long version;
+    private final boolean deleted;
+
+    public MedicalRecord(String id, String patientId, String kind, String title, String text, long createdAt,
+                         long version, boolean deleted) {
+        this.id = Objects.requireNonNull(id, "id");
+        this.patientId = patientId == null ? "" : patientId;
+        this.kind = kind == null || kind.isEmpty() ? "note" : kind;
+        this.title = title == null ? "" : title;
+        this.text = text == null ? "" : text;
+        this.createdAt = createdAt;
+        this.version = version;
+        this.deleted = deleted;
+    }
+
+    public static MedicalRecord fromJson(JSONObject json) {
+        return new MedicalRecord(json.get("id").toString(), json.optString("patientId", ""),
+                json.optString("kind", ""), json.optString("title", ""), json.optString("text", ""),
+                json.optLong("createdAt", 0), json.optLong("version", 0), json.optBoolean("deleted", false));
+    }
+
+    /**
+     * Reads one record object from {@code reader}.
+     */
+    public static MedicalRecord fromJson(JsonStreamReader reader) {
+        String id = null;
+        String patientId = "";
+        String kind = "";
+        String title = "";
+        String text = "";
+        long createdAt = 0;
+        long version = 0;
+        boolean deleted = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = reader.nextString();
+                    break;
+                case "patientId":
+                    patientId = reader.nextString();
+                    break;
+                case "kind":
+                    kind = reader.nextString();
+                    break;
+                case "title":
+                    title = reader.nextString();
+                    break;
+                case "text":
+                    text = reader.nextString();
+                    break;
+                case "createdAt":
+                    createdAt = reader.nextLong();
+                    break;
+                case "version":
+                    version = reader.nextLong();
+                    break;
+                case "deleted":
+                    deleted = reader.nextBoolean();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new MedicalRecord(id, patientId, kind, title, text, createdAt, version, deleted);
+    }
+
+    public JSONObject toJson() {
+        return new JSONObject()
+                .put("id", id)
+                .put("patientId", patientId)
+                .put("kind", kind)
+                .put("title", title)
+                .put("text", text)
+                .put("createdAt", createdAt)
+                .put("version", version)
+                .put("deleted", deleted);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getPatientId() {
+        return patientId;
+    }
+
+    /**
+     * {@code note}, {@code report}, or whatever other kind the backend sends.
+     */
+    public String getKind() {
+        return kind;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+}
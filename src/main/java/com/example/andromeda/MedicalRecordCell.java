@@ -0,0 +1,79 @@
+package com.example.andromeda;
+
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.layout.VBox;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Row of the Medical Records tab: title, a line with the kind, date and (when searching all
+ * patients) the patient's name, and the snippet around the matched terms.
+ *
+ * Like {@link PatientListCell}, the labels are created once per cell and only their text
+ * changes in {@link #updateItem}.
+ */
+public class MedicalRecordCell extends ListCell<MedicalRecordStore.Match> {
+
+    private static final DateTimeFormatter DATE =
+            DateTimeFormatter.ofPattern("d MMM yyyy", Locale.ENGLISH).withZone(ZoneId.systemDefault());
+
+    private final Supplier<Map<String, String>> patientNames;
+    private final VBox content;
+    private final Label titleLabel;
+    private final Label detailsLabel;
+    private final Label snippetLabel;
+
+    /**
+     * {@code patientNames} maps patient IDs to the names to show; patients missing from it are
+     * not named.
+     */
+    public MedicalRecordCell(Supplier<Map<String, String>> patientNames) {
+        this.patientNames = patientNames;
+        getStyleClass().add("medical-record-cell");
+
+        titleLabel = new Label();
+        titleLabel.getStyleClass().add("medical-record-title");
+        detailsLabel = new Label();
+        detailsLabel.getStyleClass().add("medical-record-details");
+        snippetLabel = new Label();
+        snippetLabel.getStyleClass().add("medical-record-snippet");
+        snippetLabel.setWrapText(true);
+
+        content = new VBox(4, titleLabel, detailsLabel, snippetLabel);
+        // Let the snippet wrap to the list's width instead of widening the cell
+        content.setMinWidth(0);
+        content.setPrefWidth(1);
+    }
+
+    @Override
+    protected void updateItem(MedicalRecordStore.Match item, boolean empty) {
+        super.updateItem(item, empty);
+        if (empty || item == null) {
+            setGraphic(null);
+            return;
+        }
+        MedicalRecord record = item.getRecord();
+        titleLabel.setText(record.getTitle().isEmpty() ? "Untitled " + record.getKind() : record.getTitle());
+        StringBuilder details = new StringBuilder(capitalize(record.getKind()));
+        if (record.getCreatedAt() > 0) {
+            details.append(" · ").append(DATE.format(Instant.ofEpochMilli(record.getCreatedAt())));
+        }
+        String patientName = patientNames.get().get(record.getPatientId());
+        if (patientName != null) {
+            details.append(" · ").append(patientName);
+        }
+        detailsLabel.setText(details.toString());
+        snippetLabel.setText(item.getSnippet());
+        setGraphic(content);
+    }
+
+    private static String capitalize(String text) {
+        return text.isEmpty() ? text : Character.toUpperCase(text.charAt(0)) + text.substring(1);
+    }
+}
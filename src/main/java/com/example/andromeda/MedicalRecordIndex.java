@@ -0,0 +1,382 @@
+package com.example.andromeda;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * In-memory inverted index over the text of {@link MedicalRecord}s, ranked with BM25.
+ *
+ * Text is split into lower-cased runs of letters and digits, minus a few English stop words;
+ * title words count twice. Every record gets an internal document number in the order it was
+ * indexed, so each term's postings list only ever grows at its end and is kept as a byte array
+ * of varint-encoded {@code (document gap, term frequency)} pairs, typically two or three bytes
+ * a posting. Re-indexing or removing a record only marks its old document dead; once dead
+ * documents outnumber live ones the postings are rewritten without them. Until then document
+ * frequencies still count the dead documents, which slightly lowers the weight of terms in
+ * frequently edited records.
+ *
+ * A query scores every document containing at least one of its terms in a single pass over
+ * those terms' postings. Not thread-safe; {@link MedicalRecordStore} synchronizes.
+ */
+public class MedicalRecordIndex {
+
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+    private static final int TITLE_WEIGHT = 2;
+    private static final int MIN_DEAD_TO_COMPACT = 1_024;
+    private static final int SNIPPET_LEAD = 40;
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "he", "her", "his", "in", "is",
+            "it", "of", "on", "or", "she", "that", "the", "their", "they", "this", "to", "was", "were", "with");
+
+    private final Map<String, Postings> terms = new HashMap<>();
+    private final Map<String, Integer> documents = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private String[] recordIds = new String[64];
+    private String[] patientIds = new String[64];
+    private int[] lengths = new int[64];
+    private int documentCount;
+    private int liveCount;
+    private long liveLength;
+
+    /**
+     * Indexes {@code record}, replacing any earlier version of it. Deleted records are removed.
+     */
+    public void put(MedicalRecord record) {
+        remove(record.getId());
+        if (record.isDeleted()) {
+            return;
+        }
+        Map<String, int[]> frequencies = new LinkedHashMap<>();
+        int length = count(record.getTitle(), TITLE_WEIGHT, frequencies) + count(record.getText(), 1, frequencies);
+        int doc = documentCount++;
+        if (doc == recordIds.length) {
+            int capacity = doc * 2;
+            recordIds = Arrays.copyOf(recordIds, capacity);
+            patientIds = Arrays.copyOf(patientIds, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        recordIds[doc] = record.getId();
+        patientIds[doc] = record.getPatientId();
+        lengths[doc] = length;
+        for (Map.Entry<String, int[]> entry : frequencies.entrySet()) {
+            terms.computeIfAbsent(entry.getKey(), t -> new Postings()).add(doc, entry.getValue()[0]);
+        }
+        documents.put(record.getId(), doc);
+        live.set(doc);
+        liveCount++;
+        liveLength += length;
+    }
+
+    public void remove(String recordId) {
+        Integer doc = documents.remove(recordId);
+        if (doc == null) {
+            return;
+        }
+        live.clear(doc);
+        liveCount--;
+        liveLength -= lengths[doc];
+        if (documentCount - liveCount >= Math.max(MIN_DEAD_TO_COMPACT, liveCount)) {
+            compact();
+        }
+    }
+
+    /**
+     * The {@code limit} best matches for {@code query}, best first; only records of
+     * {@code patientId} unless it is null.
+     */
+    public List<Hit> search(String query, String patientId, int limit) {
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (queryTerms.isEmpty() || liveCount == 0 || limit <= 0) {
+            return List.of();
+        }
+        double averageLength = Math.max(1.0, (double) liveLength / liveCount);
+        double[] scores = new double[documentCount];
+        BitSet matched = new BitSet(documentCount);
+        for (String term : queryTerms) {
+            Postings postings = terms.get(term);
+            if (postings == null) {
+                continue;
+            }
+            int df = Math.min(postings.count, liveCount);
+            double idf = Math.log(1 + (liveCount - df + 0.5) / (df + 0.5));
+            byte[] data = postings.data;
+            int[] position = {0};
+            int doc = -1;
+            while (position[0] < postings.size) {
+                doc += readVarint(data, position);
+                int tf = readVarint(data, position);
+                if (!live.get(doc) || (patientId != null && !patientId.equals(patientIds[doc]))) {
+                    continue;
+                }
+                double norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+                scores[doc] += idf * tf * (K1 + 1) / (tf + norm);
+                matched.set(doc);
+            }
+        }
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, (a, b) -> Double.compare(a.score, b.score));
+        for (int doc = matched.nextSetBit(0); doc >= 0; doc = matched.nextSetBit(doc + 1)) {
+            if (best.size() < limit || scores[doc] > best.peek().score) {
+                best.add(new Hit(recordIds[doc], scores[doc]));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort((a, b) -> Double.compare(b.score, a.score));
+        return hits;
+    }
+
+    public int size() {
+        return liveCount;
+    }
+
+    public int getTermCount() {
+        return terms.size();
+    }
+
+    /**
+     * Bytes held by all postings lists, for comparing against the text they index.
+     */
+    public long getPostingsBytes() {
+        long bytes = 0;
+        for (Postings postings : terms.values()) {
+            bytes += postings.size;
+        }
+        return bytes;
+    }
+
+    public void clear() {
+        terms.clear();
+        documents.clear();
+        live.clear();
+        Arrays.fill(recordIds, 0, documentCount, null);
+        Arrays.fill(patientIds, 0, documentCount, null);
+        documentCount = 0;
+        liveCount = 0;
+        liveLength = 0;
+    }
+
+    /**
+     * Renumbers the live documents densely, keeping their order, and rewrites every postings
+     * list without the dead ones.
+     */
+    private void compact() {
+        int[] renumbered = new int[documentCount];
+        int next = 0;
+        for (int doc = 0; doc < documentCount; doc++) {
+            if (live.get(doc)) {
+                renumbered[doc] = next;
+                recordIds[next] = recordIds[doc];
+                patientIds[next] = patientIds[doc];
+                lengths[next] = lengths[doc];
+                documents.put(recordIds[next], next);
+                next++;
+            }
+        }
+        terms.values().removeIf(postings -> !postings.retain(live, renumbered));
+        Arrays.fill(recordIds, next, documentCount, null);
+        Arrays.fill(patientIds, next, documentCount, null);
+        live.clear();
+        live.set(0, next);
+        documentCount = next;
+    }
+
+    private static int count(String text, int weight, Map<String, int[]> frequencies) {
+        int length = 0;
+        for (String term : tokenize(text)) {
+            frequencies.computeIfAbsent(term, t -> new int[1])[0] += weight;
+            length += weight;
+        }
+        return length;
+    }
+
+    /**
+     * Lower-cased runs of letters and digits in {@code text}, without stop words.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        scan(text, (term, start, end) -> tokens.add(term));
+        return tokens;
+    }
+
+    /**
+     * About {@code maxChars} of {@code text} around the stretch where the most distinct terms of
+     * {@code query} occur close together, with ellipses where it was cut. The start of the text
+     * if no term occurs.
+     */
+    public static String snippet(String text, String query, int maxChars) {
+        if (text.length() <= maxChars) {
+            return text;
+        }
+        Set<String> queryTerms = new LinkedHashSet<>(tokenize(query));
+        List<int[]> matches = new ArrayList<>();
+        List<String> matchedTerms = new ArrayList<>();
+        scan(text, (term, start, end) -> {
+            if (queryTerms.contains(term)) {
+                matches.add(new int[]{start, end});
+                matchedTerms.add(term);
+            }
+        });
+        int from = 0;
+        if (!matches.isEmpty()) {
+            // Slide a window of maxChars over the matches, keeping the one covering most distinct terms
+            Map<String, Integer> inWindow = new HashMap<>();
+            int bestDistinct = 0;
+            int first = 0;
+            for (int last = 0; last < matches.size(); last++) {
+                inWindow.merge(matchedTerms.get(last), 1, Integer::sum);
+                while (matches.get(last)[1] - matches.get(first)[0] > maxChars - SNIPPET_LEAD) {
+                    inWindow.merge(matchedTerms.get(first), -1, Integer::sum);
+                    inWindow.remove(matchedTerms.get(first), 0);
+                    first++;
+                }
+                if (inWindow.size() > bestDistinct) {
+                    bestDistinct = inWindow.size();
+                    from = matches.get(first)[0];
+                }
+            }
+            from = Math.max(0, from - SNIPPET_LEAD);
+            while (from > 0 && Character.isLetterOrDigit(text.charAt(from - 1))) {
+                from++;
+            }
+        }
+        int to = Math.min(text.length(), from + maxChars);
+        while (to < text.length() && to > from && Character.isLetterOrDigit(text.charAt(to))) {
+            to--;
+        }
+        if (to == from) {
+            to = Math.min(text.length(), from + maxChars);
+        }
+        return (from > 0 ? "..." : "") + text.substring(from, to).strip() + (to < text.length() ? "..." : "");
+    }
+
+    private interface TokenSink {
+        void token(String term, int start, int end);
+    }
+
+    private static void scan(String text, TokenSink sink) {
+        if (text == null) {
+            return;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                String term = text.substring(start, i).toLowerCase(Locale.ROOT);
+                if (!STOP_WORDS.contains(term)) {
+                    sink.token(term, start, i);
+                }
+            }
+        }
+    }
+
+    private static void writeVarint(Postings postings, int value) {
+        while ((value & ~0x7F) != 0) {
+            postings.append((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        postings.append((byte) value);
+    }
+
+    private static int readVarint(byte[] data, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * One term's documents in increasing order, as varint gaps each followed by the frequency.
+     */
+    private static final class Postings {
+
+        private byte[] data = new byte[8];
+        private int size;
+        private int count;
+        private int lastDoc = -1;
+
+        void add(int doc, int frequency) {
+            writeVarint(this, doc - lastDoc);
+            writeVarint(this, frequency);
+            lastDoc = doc;
+            count++;
+        }
+
+        void append(byte b) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size + (size >> 1) + 1);
+            }
+            data[size++] = b;
+        }
+
+        /**
+         * Drops the postings of dead documents and renumbers the rest; false if none is left.
+         */
+        boolean retain(BitSet live, int[] renumbered) {
+            byte[] old = data;
+            int oldSize = size;
+            data = new byte[Math.max(8, oldSize)];
+            size = 0;
+            count = 0;
+            lastDoc = -1;
+            int[] position = {0};
+            int doc = -1;
+            while (position[0] < oldSize) {
+                doc += readVarint(old, position);
+                int frequency = readVarint(old, position);
+                if (live.get(doc)) {
+                    add(renumbered[doc], frequency);
+                }
+            }
+            if (size < data.length) {
+                data = Arrays.copyOf(data, Math.max(size, 1));
+            }
+            return count > 0;
+        }
+    }
+
+    /**
+     * A matching record and its BM25 score.
+     */
+    public static final class Hit {
+
+        private final String recordId;
+        private final double score;
+
+        Hit(String recordId, double score) {
+            this.recordId = recordId;
+            this.score = score;
+        }
+
+        public String getRecordId() {
+            return recordId;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.andromeda;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+import org.json.JSONObject;
+
+/**
+ * Local copy of the clinical notes and report texts of the patients cached on this workstation,
+ * searchable without the backend.
+ *
+ * Like the {@link LocalPatientStore}, records pulled by {@link PatientSync} are appended to an
+ * {@link AppendLog} ({@code records.log} under {@code andromeda.store.dir}) and replayed when
+ * the store is opened. Every record is also fed to a {@link MedicalRecordIndex} as it is stored,
+ * so the index is rebuilt while the log replays and then kept current one pulled record at a
+ * time. All methods are thread-safe; call {@link #load()} off the FX thread.
+ */
+public class MedicalRecordStore {
+
+    private static final Logger LOGGER = Logger.getLogger(MedicalRecordStore.class.getName());
+    private static final String LOG_FILE = "records.log";
+    private static final Comparator<MedicalRecord> NEWEST_FIRST = Comparator
+            .comparingLong(MedicalRecord::getCreatedAt).reversed()
+            .thenComparing(MedicalRecord::getId);
+
+    private static volatile MedicalRecordStore instance;
+
+    private final Path dir;
+    private final Map<String, MedicalRecord> records = new HashMap<>();
+    private final Map<String, List<MedicalRecord>> byPatient = new HashMap<>();
+    private final MedicalRecordIndex index = new MedicalRecordIndex();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    private AppendLog log;
+    private String syncToken;
+
+    public MedicalRecordStore(Path dir) {
+        this.dir = dir;
+    }
+
+    public static MedicalRecordStore getInstance() {
+        MedicalRecordStore local = instance;
+        if (local == null) {
+            synchronized (MedicalRecordStore.class) {
+                local = instance;
+                if (local == null) {
+                    local = new MedicalRecordStore(Path.of(System.getProperty("andromeda.store.dir",
+                            System.getProperty("user.home") + "/.andromeda/store")));
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * Opens the log, replays it into memory and the index. Compacts the log when most of it is
+     * superseded records.
+     */
+    public synchronized void load() throws IOException {
+        if (log != null) {
+            return;
+        }
+        long start = System.nanoTime();
+        log = new AppendLog(dir.resolve(LOG_FILE));
+        int entries = log.replay(this::replay);
+        LOGGER.fine(String.format("Loaded and indexed %d medical records (%d terms, %d postings bytes) "
+                        + "from %d log entries in %.1f ms", records.size(), index.getTermCount(),
+                index.getPostingsBytes(), entries, (System.nanoTime() - start) / 1_000_000.0));
+        if (entries > 2 * records.size() + 1_000) {
+            compact();
+        }
+        notifyListeners();
+    }
+
+    public synchronized boolean isLoaded() {
+        return log != null;
+    }
+
+    public synchronized String getSyncToken() {
+        return syncToken;
+    }
+
+    public synchronized int size() {
+        return records.size();
+    }
+
+    public synchronized MedicalRecord get(String id) {
+        return records.get(id);
+    }
+
+    /**
+     * {@code patientId}'s records, newest first.
+     */
+    public synchronized List<MedicalRecord> forPatient(String patientId) {
+        List<MedicalRecord> patientRecords = byPatient.get(patientId);
+        if (patientRecords == null) {
+            return List.of();
+        }
+        List<MedicalRecord> sorted = new ArrayList<>(patientRecords);
+        sorted.sort(NEWEST_FIRST);
+        return sorted;
+    }
+
+    /**
+     * Closes the store and deletes its log, so no clinical text stays on this workstation; used
+     * on logout once sync has stopped. The next {@link #load()} starts from an empty store.
+     */
+    public void purge() throws IOException {
+        synchronized (this) {
+            if (log != null) {
+                log.close();
+                log = null;
+            }
+            Files.deleteIfExists(dir.resolve(LOG_FILE));
+            records.clear();
+            byPatient.clear();
+            index.clear();
+            syncToken = null;
+        }
+        notifyListeners();
+    }
+
+    /**
+     * The {@code limit} records best matching {@code query}, best first, each with a snippet of
+     * about {@code snippetChars} around the matching terms. Only {@code patientId}'s records
+     * unless it is null.
+     */
+    public synchronized List<Match> search(String query, String patientId, int limit, int snippetChars) {
+        long start = System.nanoTime();
+        List<MedicalRecordIndex.Hit> hits = index.search(query, patientId, limit);
+        List<Match> matches = new ArrayList<>(hits.size());
+        for (MedicalRecordIndex.Hit hit : hits) {
+            MedicalRecord record = records.get(hit.getRecordId());
+            matches.add(new Match(record, hit.getScore(),
+                    MedicalRecordIndex.snippet(record.getText(), query, snippetChars)));
+        }
+        LOGGER.finer(String.format("Record search '%s' matched %d in %.2f ms", query, matches.size(),
+                (System.nanoTime() - start) / 1_000_000.0));
+        return matches;
+    }
+
+    /**
+     * Applies records pulled from the server, indexing each, and remembers {@code token} (if
+     * not null) as the point to pull from next time. Older versions than the one stored are
+     * ignored. Change listeners are only notified if a record was stored.
+     */
+    public void applyRemote(List<MedicalRecord> remote, String token) {
+        boolean changed = false;
+        synchronized (this) {
+            for (MedicalRecord incoming : remote) {
+                MedicalRecord local = records.get(incoming.getId());
+                if (local == null || incoming.getVersion() >= local.getVersion()) {
+                    put(incoming);
+                    write(new JSONObject().put("op", "put").put("record", incoming.toJson()));
+                    changed = true;
+                }
+            }
+            if (token != null) {
+                syncToken = token;
+                write(new JSONObject().put("op", "token").put("token", token));
+            }
+            try {
+                log.force();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write medical record store", e);
+            }
+        }
+        // An empty sync round only moves the token
+        if (changed) {
+            notifyListeners();
+        }
+    }
+
+    /**
+     * {@code listener} runs on the thread that made the change, outside the store's lock.
+     */
+    public void addChangeListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    private void replay(ByteBuffer entry) {
+        JSONObject json = new JSONObject(StandardCharsets.UTF_8.decode(entry).toString());
+        switch (json.getString("op")) {
+            case "put":
+                put(MedicalRecord.fromJson(json.getJSONObject("record")));
+                break;
+            case "token":
+                syncToken = json.getString("token");
+                break;
+            default:
+                LOGGER.fine("Ignoring unknown record store entry " + json.getString("op"));
+        }
+    }
+
+    private void put(MedicalRecord record) {
+        MedicalRecord previous = record.isDeleted() ? records.remove(record.getId())
+                : records.put(record.getId(), record);
+        if (previous != null) {
+            List<MedicalRecord> patientRecords = byPatient.get(previous.getPatientId());
+            patientRecords.remove(previous);
+            if (patientRecords.isEmpty()) {
+                byPatient.remove(previous.getPatientId());
+            }
+        }
+        if (!record.isDeleted()) {
+            byPatient.computeIfAbsent(record.getPatientId(), p -> new ArrayList<>()).add(record);
+        }
+        index.put(record);
+    }
+
+    private void compact() throws IOException {
+        List<byte[]> entries = new ArrayList<>(records.size() + 1);
+        for (MedicalRecord record : records.values()) {
+            entries.add(new JSONObject().put("op", "put").put("record", record.toJson()).toString()
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        if (syncToken != null) {
+            entries.add(new JSONObject().put("op", "token").put("token", syncToken).toString()
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        log.rewrite(entries);
+        LOGGER.fine("Compacted medical record store to " + entries.size() + " entries");
+    }
+
+    private void write(JSONObject entry) {
+        if (log == null) {
+            throw new IllegalStateException("Medical record store is not loaded");
+        }
+        try {
+            log.append(entry.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write medical record store", e);
+        }
+    }
+
+    private void notifyListeners() {
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * A search result: the record, its score and the part of its text to show.
+     */
+    public static final class Match {
+
+        private final MedicalRecord record;
+        private final double score;
+        private final String snippet;
+
+        Match(MedicalRecord record, double score, String snippet) {
+            this.record = record;
+            this.score = score;
+            this.snippet = snippet;
+        }
+
+        public MedicalRecord getRecord() {
+            return record;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        public String getSnippet() {
+            return snippet;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.example.andromeda;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import org.kordamp.ikonli.fontawesome5.FontAwesomeSolid;
+import org.kordamp.ikonli.javafx.FontIcon;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Content of the Medical Records tab: the selected patient's notes and reports, newest first,
+ * and full-text search over them or over the records of every patient on this workstation.
+ *
+ * Queries are answered from the {@link MedicalRecordStore}'s local index, ranked by relevance
+ * with a snippet around the matched terms; nothing goes to the server. Each change of query,
+ * scope or patient runs one search in the background, and a result that is no longer the
+ * latest one asked for is dropped. Records that sync in while the tab is open show up at once,
+ * without moving the list. {@link #dispose()} detaches the view from the store.
+ */
+public class MedicalRecordsView {
+
+    private static final int RESULT_LIMIT = 50;
+    private static final int SNIPPET_CHARS = 240;
+
+    private final MedicalRecordStore records;
+    private final LocalPatientStore patients;
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+    private final Runnable storeListener;
+
+    private ListView<MedicalRecordStore.Match> resultList;
+    private Label placeholder;
+    private TextField searchField;
+    private CheckBox allPatients;
+    private Map<String, String> patientNames = Map.of();
+    private String patientId;
+    private Task<Results> running;
+    private int searches;
+
+    public MedicalRecordsView(MedicalRecordStore records, LocalPatientStore patients) {
+        this.records = records;
+        this.patients = patients;
+        storeListener = () -> {
+            if (refreshQueued.compareAndSet(false, true)) {
+                Platform.runLater(() -> {
+                    refreshQueued.set(false);
+                    refresh(true);
+                });
+            }
+        };
+        records.addChangeListener(storeListener);
+    }
+
+    public void dispose() {
+        records.removeChangeListener(storeListener);
+        if (running != null) {
+            running.cancel(false);
+            running = null;
+        }
+    }
+
+    public VBox createContent() {
+        VBox content = new VBox(15);
+        content.setPadding(new Insets(20));
+        content.getStyleClass().add("medical-records");
+
+        HBox searchBox = new HBox(10);
+        searchBox.setAlignment(Pos.CENTER_LEFT);
+        searchBox.getStyleClass().add("search-box");
+        FontIcon searchIcon = new FontIcon(FontAwesomeSolid.SEARCH);
+        searchIcon.setIconColor(Color.gray(0.6));
+        searchField = new TextField();
+        searchField.setPromptText("Search notes and reports");
+        searchField.textProperty().addListener((obs, oldText, newText) -> refresh(false));
+        HBox.setHgrow(searchField, Priority.ALWAYS);
+        allPatients = new CheckBox("All patients");
+        allPatients.selectedProperty().addListener((obs, was, selected) -> refresh(false));
+        searchBox.getChildren().addAll(searchIcon, searchField, allPatients);
+
+        placeholder = new Label("Select a patient to see their records");
+        resultList = new ListView<>();
+        resultList.getStyleClass().add("medical-record-list");
+        resultList.setPlaceholder(placeholder);
+        resultList.setCellFactory(lv -> new MedicalRecordCell(() -> patientNames));
+        VBox.setVgrow(resultList, Priority.ALWAYS);
+
+        content.getChildren().addAll(searchBox, resultList);
+        return content;
+    }
+
+    /**
+     * Shows {@code id}'s records, or searches them if a query is entered.
+     */
+    public void showPatient(String id) {
+        patientId = id;
+        refresh(false);
+    }
+
+    /**
+     * Runs the current query again. {@code storeChanged} refreshes keep the scroll position, since
+     * the user did not ask for a new list.
+     */
+    private void refresh(boolean storeChanged) {
+        if (resultList == null) {
+            return;
+        }
+        if (running != null) {
+            running.cancel(false);
+        }
+        int search = ++searches;
+        String query = searchField.getText() == null ? "" : searchField.getText().trim();
+        String scope = allPatients.isSelected() ? null : patientId;
+        if (scope == null && query.isEmpty()) {
+            running = null;
+            show(new Results(List.of(), Map.of()), allPatients.isSelected()
+                    ? "Type to search the records of all patients" : "Select a patient to see their records",
+                    storeChanged);
+            return;
+        }
+        running = BackgroundTasks.submit(progress -> find(query, scope),
+                results -> {
+                    if (search == searches) {
+                        show(results, emptyMessage(query), storeChanged);
+                    }
+                },
+                error -> {
+                    if (search == searches) {
+                        show(new Results(List.of(), Map.of()), "Records could not be searched", storeChanged);
+                    }
+                });
+    }
+
+    private Results find(String query, String scope) {
+        if (!records.isLoaded()) {
+            return null;
+        }
+        List<MedicalRecordStore.Match> matches;
+        if (query.isEmpty()) {
+            matches = new ArrayList<>();
+            for (MedicalRecord record : records.forPatient(scope)) {
+                matches.add(new MedicalRecordStore.Match(record, 0,
+                        MedicalRecordIndex.snippet(record.getText(), "", SNIPPET_CHARS)));
+            }
+        } else {
+            matches = records.search(query, scope, RESULT_LIMIT, SNIPPET_CHARS);
+        }
+        Map<String, String> names = new HashMap<>();
+        if (scope == null) {
+            for (MedicalRecordStore.Match match : matches) {
+                String id = match.getRecord().getPatientId();
+                if (!names.containsKey(id)) {
+                    PatientRecord patient = patients.get(id);
+                    names.put(id, patient == null ? "Unknown patient" : patient.getFullName());
+                }
+            }
+        }
+        return new Results(matches, names);
+    }
+
+    private void show(Results results, String emptyMessage, boolean keepPosition) {
+        if (results == null) {
+            results = new Results(List.of(), Map.of());
+            emptyMessage = "Medical records are still loading";
+        }
+        patientNames = results.names;
+        placeholder.setText(emptyMessage);
+        if (keepPosition && sameRecords(resultList.getItems(), results.matches)) {
+            return;
+        }
+        resultList.getItems().setAll(results.matches);
+        if (!keepPosition) {
+            resultList.scrollTo(0);
+        }
+    }
+
+    private static boolean sameRecords(List<MedicalRecordStore.Match> shown, List<MedicalRecordStore.Match> found) {
+        if (shown.size() != found.size()) {
+            return false;
+        }
+        for (int i = 0; i < shown.size(); i++) {
+            MedicalRecord a = shown.get(i).getRecord();
+            MedicalRecord b = found.get(i).getRecord();
+            if (!a.getId().equals(b.getId()) || a.getVersion() != b.getVersion()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String emptyMessage(String query) {
+        return query.isEmpty() ? "No medical records for this patient" : "No records match \"" + query + "\"";
+    }
+
+    private static final class Results {
+
+        private final List<MedicalRecordStore.Match> matches;
+        private final Map<String, String> names;
+
+        Results(List<MedicalRecordStore.Match> matches, Map<String, String> names) {
+            this.matches = matches;
+            this.names = names;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.andromeda;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one {@link ScreenRouter} navigation. Costs nothing unless a
+ * recording with {@code com.example.andromeda.Navigation} enabled is running.
+ */
+@Name("com.example.andromeda.Navigation")
+@Label("Screen Navigation")
+@Category({"Andromeda", "UI"})
+@Description("Building (cold) or re-showing (warm) a screen")
+@StackTrace(false)
+class NavigationEvent extends Event {
+
+    @Label("Screen")
+    String screen;
+
+    @Label("Warm")
+    @Description("The screen had already been built")
+    boolean warm;
+}
@@ -0,0 +1,294 @@
+package com.example.andromeda;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+import javafx.util.Duration;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Read-only list of every patient in the directory, backed by pages fetched on demand.
+ *
+ * {@link javafx.scene.control.ListView} only asks for the rows it is about to show, so each
+ * {@link #get(int)} loads the surrounding page plus a few pages ahead of it. Rows that have not
+ * arrived yet are returned as {@code null} and replaced once their page lands. At most
+ * {@code maxPages} pages are kept, least recently used first out. Every loaded page is also added to a
+ * {@link PatientPrefixIndex} for type-ahead search, which keeps the {@value #INDEXED_PATIENTS}
+ * most recently loaded patients, so together heap use stays bounded however far the directory
+ * is scrolled. While search results are shown (see {@link #showResults(List)}) the list
+ * presents them instead of the directory. A page that fails to load is not requested again
+ * until a backoff (1 s doubling to 30 s while failures continue) has passed; its rows are then
+ * reported as changed, so only the pages still on screen are retried. Must only be used from
+ * the FX thread.
+ */
+public class PagedPatientList extends ObservableListBase<Patient> {
+
+    private static final Logger LOGGER = Logger.getLogger(PagedPatientList.class.getName());
+    private static final long MAX_RETRY_DELAY_MILLIS = 30_000;
+    private static final int INDEXED_PATIENTS = 10_000;
+
+    private final PatientDataSource dataSource;
+    private final int pageSize;
+    private final int prefetchPages;
+    private final Map<Integer, Patient[]> pages;
+    private final Set<Integer> pending = new HashSet<>();
+    // Failed pages and when they may be requested again
+    private final Map<Integer, Long> retryAt = new HashMap<>();
+    private final PatientPrefixIndex index = new PatientPrefixIndex(INDEXED_PATIENTS);
+
+    private List<Patient> results;
+
+    private int size;
+    private int generation;
+    private int failures;
+
+    public PagedPatientList(PatientDataSource dataSource) {
+        this(dataSource, 100, 2, 20);
+    }
+
+    public PagedPatientList(PatientDataSource dataSource, int pageSize, int prefetchPages, int maxPages) {
+        this.dataSource = dataSource;
+        this.pageSize = pageSize;
+        this.prefetchPages = prefetchPages;
+        this.pages = new LinkedHashMap<>(maxPages * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Patient[]> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    /**
+     * Drops every cached page and reloads the first one, which also refreshes the total size.
+     */
+    public void refresh() {
+        generation++;
+        pages.clear();
+        pending.clear();
+        retryAt.clear();
+        loadPage(0);
+    }
+
+    /**
+     * Shows {@code patients} in place of the paged directory. Existing cells are reused; only
+     * the rows that changed are reported to the list view.
+     */
+    public void showResults(List<Patient> patients) {
+        List<Patient> old = results;
+        int oldSize = size();
+        results = List.copyOf(patients);
+        fireReplaced(old, oldSize);
+    }
+
+    /**
+     * Leaves search mode and shows the paged directory again.
+     */
+    public void clearResults() {
+        if (results == null) {
+            return;
+        }
+        List<Patient> old = results;
+        results = null;
+        fireReplaced(old, old.size());
+    }
+
+    public boolean isShowingResults() {
+        return results != null;
+    }
+
+    public PatientPrefixIndex getIndex() {
+        return index;
+    }
+
+    private void fireReplaced(List<Patient> old, int oldSize) {
+        int newSize = size();
+        int common = Math.min(oldSize, newSize);
+        beginChange();
+        if (common > 0) {
+            nextReplace(0, common, old != null ? old.subList(0, common)
+                    : Collections.nCopies(common, (Patient) null));
+        }
+        if (newSize > oldSize) {
+            nextAdd(oldSize, newSize);
+        } else if (oldSize > newSize) {
+            nextRemove(newSize, old != null ? old.subList(newSize, oldSize)
+                    : Collections.nCopies(oldSize - newSize, (Patient) null));
+        }
+        endChange();
+    }
+
+    /**
+     * Re-fetches the resident pages without dropping them, so visible rows stay on screen
+     * while they are revalidated. Loads the first page if nothing has been loaded yet.
+     */
+    public void reload() {
+        if (pages.isEmpty()) {
+            if (pending.isEmpty()) {
+                refresh();
+            }
+            return;
+        }
+        for (Integer pageIndex : List.copyOf(pages.keySet())) {
+            loadPage(pageIndex);
+        }
+    }
+
+    @Override
+    public Patient get(int index) {
+        if (results != null) {
+            return results.get(index);
+        }
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int pageIndex = index / pageSize;
+        Patient[] page = pages.get(pageIndex);
+        if (page == null) {
+            loadPage(pageIndex);
+        }
+        int lastPage = (size - 1) / pageSize;
+        for (int ahead = 1; ahead <= prefetchPages && pageIndex + ahead <= lastPage; ahead++) {
+            if (!pages.containsKey(pageIndex + ahead)) {
+                loadPage(pageIndex + ahead);
+            }
+        }
+        return page == null ? null : page[index - pageIndex * pageSize];
+    }
+
+    /**
+     * Returns the row if its page is resident, without triggering a fetch.
+     */
+    public Patient peek(int index) {
+        if (results != null) {
+            return index < 0 || index >= results.size() ? null : results.get(index);
+        }
+        Patient[] page = index < 0 || index >= size ? null : pages.get(index / pageSize);
+        return page == null ? null : page[index % pageSize];
+    }
+
+    /**
+     * Snapshot of the patients currently held in memory.
+     */
+    public List<Patient> loadedPatients() {
+        if (pages.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Patient[] all = pages.values().stream()
+                .flatMap(Arrays::stream)
+                .filter(Objects::nonNull)
+                .toArray(Patient[]::new);
+        return Arrays.asList(all);
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getResidentPageCount() {
+        return pages.size();
+    }
+
+    @Override
+    public int size() {
+        return results != null ? results.size() : size;
+    }
+
+    private void loadPage(int pageIndex) {
+        Long retry = retryAt.get(pageIndex);
+        if (retry != null && System.currentTimeMillis() < retry) {
+            return;
+        }
+        if (!pending.add(pageIndex)) {
+            return;
+        }
+        int requestGeneration = generation;
+        // Always hop through runLater: a cached page can complete synchronously inside a
+        // ListView layout pass, where firing list changes is not allowed
+        dataSource.fetchPage(pageIndex * pageSize, pageSize).whenComplete((page, error) ->
+                Platform.runLater(() -> {
+                    if (requestGeneration != generation) {
+                        return;
+                    }
+                    pending.remove(pageIndex);
+                    if (error != null) {
+                        pageFailed(pageIndex, error);
+                    } else {
+                        failures = 0;
+                        retryAt.remove(pageIndex);
+                        applyPage(pageIndex, page);
+                    }
+                }));
+    }
+
+    private void pageFailed(int pageIndex, Throwable error) {
+        failures++;
+        long delay = Math.min(MAX_RETRY_DELAY_MILLIS, 1_000L << Math.min(failures - 1, 5));
+        if (failures == 1) {
+            LOGGER.log(Level.WARNING, "Failed to load patient page " + pageIndex, error);
+        } else {
+            LOGGER.log(Level.FINE, "Patient page " + pageIndex + " still failing, retrying in " + delay + " ms", error);
+        }
+        retryAt.put(pageIndex, System.currentTimeMillis() + delay);
+        int requestGeneration = generation;
+        PauseTransition wait = new PauseTransition(Duration.millis(delay));
+        wait.setOnFinished(e -> {
+            if (requestGeneration == generation && results == null && !pages.containsKey(pageIndex)) {
+                // Visible cells ask for their rows again, retrying the page if it is still on screen
+                int from = pageIndex * pageSize;
+                int to = Math.min(from + pageSize, size);
+                if (to > from) {
+                    beginChange();
+                    nextReplace(from, to, Collections.nCopies(to - from, (Patient) null));
+                    endChange();
+                }
+            }
+        });
+        wait.play();
+    }
+
+    private void applyPage(int pageIndex, PatientDataSource.Page page) {
+        int from = pageIndex * pageSize;
+        List<Patient> patients = page.getPatients();
+        Patient[] rows = new Patient[pageSize];
+        for (int i = 0; i < patients.size() && i < pageSize; i++) {
+            rows[i] = patients.get(i);
+        }
+        pages.put(pageIndex, rows);
+        index.addAll(patients);
+
+        int newSize = page.getTotal();
+        if (results != null) {
+            // The directory is hidden behind search results; just record its new size
+            size = newSize;
+            return;
+        }
+        beginChange();
+        if (newSize != size) {
+            int oldSize = size;
+            if (newSize > oldSize) {
+                size = newSize;
+                nextAdd(oldSize, newSize);
+            } else {
+                size = newSize;
+                nextRemove(newSize, Collections.nCopies(oldSize - newSize, (Patient) null));
+            }
+        }
+        // Replace the placeholders so the visible cells pick up the loaded rows
+        int to = Math.min(from + patients.size(), size);
+        if (to > from) {
+            nextReplace(from, to, Collections.nCopies(to - from, (Patient) null));
+        }
+        endChange();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.andromeda;
+
+import java.util.Objects;
+
+import org.json.JSONObject;
+
+/**
+ * Lightweight patient summary as shown in the patient list.
+ */
+public final class Patient {
+
+    private final String id;
+    private final String fullName;
+
+    public Patient(String id, String fullName) {
+        this.id = Objects.requireNonNull(id, "id");
+        this.fullName = fullName == null ? "" : fullName;
+    }
+
+    public static Patient fromJson(JSONObject json) {
+        return new Patient(json.get("id").toString(), json.optString("fullName", ""));
+    }
+
+    /**
+     * Reads one patient object from {@code reader}, skipping fields the list does not show.
+     */
+    public static Patient fromJson(JsonStreamReader reader) {
+        String id = null;
+        String fullName = "";
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = reader.nextString();
+                    break;
+                case "fullName":
+                    fullName = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new Patient(id, fullName);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFullName() {
+        return fullName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Patient)) {
+            return false;
+        }
+        Patient other = (Patient) o;
+        return id.equals(other.id) && fullName.equals(other.fullName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, fullName);
+    }
+
+    @Override
+    public String toString() {
+        return fullName;
+    }
+}
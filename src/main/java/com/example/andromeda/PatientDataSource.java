@@ -0,0 +1,50 @@
+package com.example.andromeda;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Offset-paged access to the patient directory.
+ */
+public interface PatientDataSource {
+
+    CompletableFuture<Page> fetchPage(int offset, int limit);
+
+    /**
+     * Server-side name search, returning at most {@code limit} patients.
+     */
+    CompletableFuture<List<Patient>> search(String query, int limit);
+
+    /**
+     * The full record of one patient, or null if there is none.
+     */
+    CompletableFuture<PatientRecord> fetchRecord(String id);
+
+    /**
+     * One page of patients plus the total size of the directory at the time of the fetch.
+     */
+    final class Page {
+
+        private final int offset;
+        private final int total;
+        private final List<Patient> patients;
+
+        public Page(int offset, int total, List<Patient> patients) {
+            this.offset = offset;
+            this.total = total;
+            this.patients = List.copyOf(patients);
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public List<Patient> getPatients() {
+            return patients;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.andromeda;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind queue between the patient screen and the {@link LocalPatientStore}.
+ *
+ * {@link #submit} only replaces the queued record for that patient in memory, so the FX thread
+ * never waits for the disk or the network, and a burst of edits to one patient (several custom
+ * fields committed in a row, say) collapses into one write. A background thread drains the queue every
+ * {@value #FLUSH_DELAY_MILLIS} ms into the store with a single disk flush and then asks
+ * {@link PatientSync} to push, which sends the batch with idempotency keys and backs off on
+ * failure. {@link #get} sees queued edits before they reach the store.
+ */
+public class PatientEditQueue {
+
+    private static final Logger LOGGER = Logger.getLogger(PatientEditQueue.class.getName());
+    private static final long FLUSH_DELAY_MILLIS = 250;
+
+    private static volatile PatientEditQueue instance;
+
+    private final LocalPatientStore store;
+    private final PatientSync sync;
+    private final ScheduledExecutorService writer =
+            Executors.newSingleThreadScheduledExecutor(new ApiClient.DaemonThreadFactory("andromeda-edits"));
+    private final Map<String, PatientRecord> queued = new LinkedHashMap<>();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder written = new LongAdder();
+
+    private boolean flushScheduled;
+
+    public PatientEditQueue(LocalPatientStore store, PatientSync sync) {
+        this.store = store;
+        this.sync = sync;
+    }
+
+    public static PatientEditQueue getInstance() {
+        PatientEditQueue local = instance;
+        if (local == null) {
+            synchronized (PatientEditQueue.class) {
+                local = instance;
+                if (local == null) {
+                    PatientSync sync = PatientSync.getInstance();
+                    local = new PatientEditQueue(sync.getStore(), sync);
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * Queues {@code record} as the latest local state of that patient.
+     */
+    public void submit(PatientRecord record) {
+        submitted.increment();
+        synchronized (this) {
+            queued.put(record.getId(), record);
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+        }
+        writer.schedule(this::flush, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The newest known state of a patient: a queued edit, else the stored record, else null.
+     */
+    public PatientRecord get(String id) {
+        synchronized (this) {
+            PatientRecord record = queued.get(id);
+            if (record != null) {
+                return record;
+            }
+        }
+        return store.get(id);
+    }
+
+    /**
+     * Writes everything queued to the store now. Used on shutdown; safe on any thread.
+     */
+    public void flush() {
+        List<PatientRecord> batch;
+        synchronized (this) {
+            flushScheduled = false;
+            if (queued.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(queued.values());
+            queued.clear();
+        }
+        try {
+            store.load();
+            store.saveAllLocal(batch);
+            written.add(batch.size());
+            sync.requestSync();
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Failed to save " + batch.size() + " patient edits; keeping them queued", e);
+            synchronized (this) {
+                // Newer edits submitted meanwhile take precedence
+                for (PatientRecord record : batch) {
+                    queued.putIfAbsent(record.getId(), record);
+                }
+                if (!flushScheduled) {
+                    flushScheduled = true;
+                    writer.schedule(this::flush, 5, TimeUnit.SECONDS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Edits handed to {@link #submit}; the gap to {@link #getWrittenCount()} is what coalescing saved.
+     */
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+}
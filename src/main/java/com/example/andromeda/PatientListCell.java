@@ -0,0 +1,51 @@
+package com.example.andromeda;
+
+import javafx.css.PseudoClass;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.layout.HBox;
+import javafx.scene.paint.Color;
+import org.kordamp.ikonli.fontawesome5.FontAwesomeSolid;
+import org.kordamp.ikonli.javafx.FontIcon;
+
+/**
+ * Row of the patient list.
+ *
+ * The icon and name label are created once per cell; {@link #updateItem} only changes the
+ * label text and the {@code :loading} pseudo-class, so scrolling does not create nodes.
+ */
+public class PatientListCell extends ListCell<Patient> {
+
+    private static final PseudoClass LOADING = PseudoClass.getPseudoClass("loading");
+    private static final Color ICON_COLOR = Color.gray(0.6);
+
+    private final HBox content;
+    private final Label nameLabel;
+
+    public PatientListCell() {
+        getStyleClass().add("patient-list-cell");
+
+        FontIcon userIcon = new FontIcon(FontAwesomeSolid.USER);
+        userIcon.setIconColor(ICON_COLOR);
+
+        nameLabel = new Label();
+        nameLabel.getStyleClass().add("patient-cell-name");
+
+        content = new HBox(10, userIcon, nameLabel);
+        content.setAlignment(Pos.CENTER_LEFT);
+    }
+
+    @Override
+    protected void updateItem(Patient item, boolean empty) {
+        super.updateItem(item, empty);
+        if (empty) {
+            setGraphic(null);
+            return;
+        }
+        // A null row is a placeholder for a page that is still loading
+        nameLabel.setText(item == null ? "Loading..." : item.getFullName());
+        pseudoClassStateChanged(LOADING, item == null);
+        setGraphic(content);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.andromeda;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory prefix index over patient names.
+ *
+ * Every word of a patient's name is a key in a sorted map, so the patients whose name has a word
+ * starting with {@code prefix} form one contiguous range that is found with a single
+ * {@code subMap} call. Lookups cost {@code O(log n + results)}, which keeps type-ahead on the FX
+ * thread well under a frame even with 100k indexed patients. At most {@code maxPatients} are
+ * kept; adding more drops the least recently added ones.
+ */
+public class PatientPrefixIndex {
+
+    private final NavigableMap<String, List<Patient>> tokens = new TreeMap<>();
+    private final Map<String, Patient> byId;
+
+    public PatientPrefixIndex() {
+        this(Integer.MAX_VALUE);
+    }
+
+    public PatientPrefixIndex(int maxPatients) {
+        this.byId = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Patient> eldest) {
+                if (size() > maxPatients) {
+                    removeTokens(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public void addAll(Collection<Patient> patients) {
+        for (Patient patient : patients) {
+            add(patient);
+        }
+    }
+
+    public void add(Patient patient) {
+        Patient previous = byId.put(patient.getId(), patient);
+        if (patient.equals(previous)) {
+            return;
+        }
+        if (previous != null) {
+            removeTokens(previous);
+        }
+        for (String token : tokenize(patient.getFullName())) {
+            tokens.computeIfAbsent(token, t -> new ArrayList<>(1)).add(patient);
+        }
+    }
+
+    private void removeTokens(Patient patient) {
+        for (String token : tokenize(patient.getFullName())) {
+            List<Patient> bucket = tokens.get(token);
+            if (bucket != null) {
+                bucket.remove(patient);
+                if (bucket.isEmpty()) {
+                    tokens.remove(token);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} patients having, for every word of {@code query}, a name word
+     * that starts with it.
+     */
+    public List<Patient> search(String query, int limit) {
+        String[] queryTokens = tokenize(query);
+        if (queryTokens.length == 0) {
+            return List.of();
+        }
+        // Drive the scan with the longest word; it selects the narrowest range
+        String lead = queryTokens[0];
+        for (String token : queryTokens) {
+            if (token.length() > lead.length()) {
+                lead = token;
+            }
+        }
+        Set<Patient> matches = new LinkedHashSet<>();
+        for (List<Patient> bucket : tokens.subMap(lead, true, lead + Character.MAX_VALUE, false).values()) {
+            for (Patient patient : bucket) {
+                if (queryTokens.length == 1 || matchesAll(patient, queryTokens)) {
+                    matches.add(patient);
+                    if (matches.size() >= limit) {
+                        return new ArrayList<>(matches);
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(matches);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public void clear() {
+        tokens.clear();
+        byId.clear();
+    }
+
+    private static boolean matchesAll(Patient patient, String[] queryTokens) {
+        String[] nameTokens = tokenize(patient.getFullName());
+        for (String query : queryTokens) {
+            boolean found = false;
+            for (String name : nameTokens) {
+                if (name.startsWith(query)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static String[] tokenize(String text) {
+        String trimmed = text == null ? "" : text.trim();
+        return trimmed.isEmpty() ? new String[0] : trimmed.toLowerCase(Locale.ROOT).split("\\s+");
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.andromeda;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.json.JSONObject;
+
+/**
+ * Full patient record as kept in the {@link LocalPatientStore}: the summary shown in the list,
+ * the user-defined custom fields and the bookkeeping needed for sync.
+ *
+ * {@code version} is the server's revision of the record (0 until the server has seen it) and
+ * {@code updatedAt} the wall-clock time of the last edit, wherever it happened. Records are
+ * immutable; edits create a new record with {@link #withChanges}.
+ */
+public final class PatientRecord {
+
+    private final String id;
+    private final String fullName;
+    private final Map<String, String> fields;
+    private final long version;
+    private final long updatedAt;
+    private final boolean deleted;
+
+    public PatientRecord(String id, String fullName, Map<String, String> fields, long version,
+                         long updatedAt, boolean deleted) {
+        this.id = Objects.requireNonNull(id, "id");
+        this.fullName = fullName == null ? "" : fullName;
+        this.fields = fields == null || fields.isEmpty()
+                ? Collections.emptyMap()
+                : Collections.unmodifiableMap(new LinkedHashMap<>(fields));
+        this.version = version;
+        this.updatedAt = updatedAt;
+        this.deleted = deleted;
+    }
+
+    public static PatientRecord fromJson(JSONObject json) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        JSONObject fieldsJson = json.optJSONObject("fields");
+        if (fieldsJson != null) {
+            for (String name : fieldsJson.keySet()) {
+                fields.put(name, fieldsJson.get(name).toString());
+            }
+        }
+        return new PatientRecord(json.get("id").toString(), json.optString("fullName", ""), fields,
+                json.optLong("version", 0), json.optLong("updatedAt", 0), json.optBoolean("deleted", false));
+    }
+
+    /**
+     * Reads one record object from {@code reader}. Nested values inside {@code fields} are
+     * skipped; custom fields are flat strings.
+     */
+    public static PatientRecord fromJson(JsonStreamReader reader) {
+        String id = null;
+        String fullName = "";
+        Map<String, String> fields = new LinkedHashMap<>();
+        long version = 0;
+        long updatedAt = 0;
+        boolean deleted = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = reader.nextString();
+                    break;
+                case "fullName":
+                    fullName = reader.nextString();
+                    break;
+                case "fields":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String name = reader.nextName();
+                        JsonStreamReader.Token token = reader.peek();
+                        if (token == JsonStreamReader.Token.BEGIN_OBJECT || token == JsonStreamReader.Token.BEGIN_ARRAY) {
+                            reader.skipValue();
+                        } else {
+                            fields.put(name, reader.nextString());
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                case "version":
+                    version = reader.nextLong();
+                    break;
+                case "updatedAt":
+                    updatedAt = reader.nextLong();
+                    break;
+                case "deleted":
+                    deleted = reader.nextBoolean();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new PatientRecord(id, fullName, fields, version, updatedAt, deleted);
+    }
+
+    public JSONObject toJson() {
+        return new JSONObject()
+                .put("id", id)
+                .put("fullName", fullName)
+                .put("fields", new JSONObject(fields))
+                .put("version", version)
+                .put("updatedAt", updatedAt)
+                .put("deleted", deleted);
+    }
+
+    /**
+     * Returns a copy edited locally now, keeping the server version it was based on.
+     */
+    public PatientRecord withChanges(String newFullName, Map<String, String> newFields) {
+        return new PatientRecord(id, newFullName, newFields, version, System.currentTimeMillis(), false);
+    }
+
+    public PatientRecord withVersion(long newVersion) {
+        return new PatientRecord(id, fullName, fields, newVersion, updatedAt, deleted);
+    }
+
+    public PatientRecord withFields(Map<String, String> newFields) {
+        return new PatientRecord(id, fullName, newFields, version, updatedAt, deleted);
+    }
+
+    public Patient toPatient() {
+        return new Patient(id, fullName);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFullName() {
+        return fullName;
+    }
+
+    public Map<String, String> getFields() {
+        return fields;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+}
@@ -1,31 +1,68 @@
 package com.example.andromeda;
 
+import javafx.application.Platform;
 import javafx.geometry.Insets;
-import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.image.ImageView;
 import javafx.scene.image.Image;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import org.kordamp.ikonli.javafx.FontIcon;
 import org.kordamp.ikonli.fontawesome5.FontAwesomeSolid;
 import javafx.scene.paint.Color;
 import javafx.animation.FadeTransition;
 import javafx.util.Duration;
 
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-public class PatientScreen {
+
+public class PatientScreen implements Screen {
 
     private VBox customFieldsContainer;
-    private ObservableList<String> patientList = FXCollections.observableArrayList(
-            "John Doe", "Jane Smith", "Alice Johnson", "Bob Williams"
-    );
+    private final PagedPatientList patientList;
+    private final PatientSearch patientSearch;
+    private final MedicalRecordsView medicalRecords;
+    private Label patientNameLabel;
+    private Label patientIdLabel;
+    private StackPane imageContainer;
+    private ImageView patientImage;
+    private FontIcon placeholderIcon;
+    private Image placeholderImage;
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+    private final PatientDataSource dataSource;
+    private String selectedPatientId;
+    private boolean loadingFields;
+    private Runnable storeListener;
+
+    public PatientScreen() {
+        this(new LocalPatientDataSource(LocalPatientStore.getInstance(),
+                new RemotePatientDataSource(ApiClient.getInstance())));
+        // Pulled deltas and local edits show up without leaving the screen
+        storeListener = () -> {
+            if (refreshQueued.compareAndSet(false, true)) {
+                Platform.runLater(() -> {
+                    refreshQueued.set(false);
+                    patientList.refresh();
+                });
+            }
+        };
+        LocalPatientStore.getInstance().addChangeListener(storeListener);
+    }
+
+    public PatientScreen(PatientDataSource dataSource) {
+        this.dataSource = dataSource;
+        this.patientList = new PagedPatientList(dataSource);
+        this.patientSearch = new PatientSearch(patientList, dataSource);
+        this.medicalRecords = new MedicalRecordsView(MedicalRecordStore.getInstance(), LocalPatientStore.getInstance());
+    }
 
     public BorderPane createContent() {
         BorderPane content = new BorderPane();
-        content.getStylesheets().add(getClass().getClassLoader().getResource("styles.css").toExternalForm());
         content.getStyleClass().add("patient-screen");
 
         // Main content
@@ -48,6 +85,25 @@ public class PatientScreen {
         return content;
     }
 
+    @Override
+    public Node createView() {
+        return createContent();
+    }
+
+    @Override
+    public void onShow() {
+        patientList.reload();
+    }
+
+    @Override
+    public void dispose() {
+        if (storeListener != null) {
+            LocalPatientStore.getInstance().removeChangeListener(storeListener);
+            storeListener = null;
+        }
+        medicalRecords.dispose();
+    }
+
     private VBox createPatientListArea() {
         VBox patientListArea = new VBox(15);
         patientListArea.setPrefWidth(250);
@@ -60,37 +116,25 @@ public class PatientScreen {
         searchBox.getStyleClass().add("search-box");
         TextField search = new TextField();
         search.setPromptText("Search patients");
+        patientSearch.attach(search);
         FontIcon searchIcon = new FontIcon(FontAwesomeSolid.SEARCH);
         searchIcon.setIconColor(Color.gray(0.6));
         searchBox.getChildren().addAll(searchIcon, search);
 
-        ListView<String> patientListView = new ListView<>(patientList);
+        ListView<Patient> patientListView = new ListView<>(patientList);
         patientListView.getStyleClass().add("patient-list");
+        patientListView.setPlaceholder(new Label("No patients"));
+        // Rows are all the same height; a fixed size lets the list skip measuring every cell
+        patientListView.setFixedCellSize(40);
         VBox.setVgrow(patientListView, Priority.ALWAYS);
-
-        patientListView.setCellFactory(lv -> new ListCell<String>() {
-            @Override
-            protected void updateItem(String item, boolean empty) {
-                super.updateItem(item, empty);
-                if (empty || item == null) {
-                    setText(null);
-                    setGraphic(null);
-                } else {
-                    HBox cellContent = new HBox(10);
-                    cellContent.setAlignment(Pos.CENTER_LEFT);
-
-                    FontIcon userIcon = new FontIcon(FontAwesomeSolid.USER);
-                    userIcon.setIconColor(Color.gray(0.6));
-
-                    Label nameLabel = new Label(item);
-                    nameLabel.setStyle("-fx-font-weight: bold;");
-
-                    cellContent.getChildren().addAll(userIcon, nameLabel);
-                    setGraphic(cellContent);
-                }
+        patientListView.getSelectionModel().selectedItemProperty().addListener((obs, oldPatient, patient) -> {
+            if (patient != null) {
+                showPatient(patient);
             }
         });
 
+        patientListView.setCellFactory(lv -> new PatientListCell());
+
         Button addPatientBtn = new Button("Add New Patient");
         addPatientBtn.setGraphic(new FontIcon(FontAwesomeSolid.USER_PLUS));
         addPatientBtn.getStyleClass().addAll("add-patient-btn", "action-button");
@@ -113,7 +157,7 @@ public class PatientScreen {
         tabPane.getTabs().addAll(
                 createTab("Overview", createOverviewContent()),
                 createTab("Appointments", new Label("Appointments content")),
-                createTab("Medical Records", new Label("Medical Records content")),
+                createTab("Medical Records", medicalRecords.createContent()),
                 createTab("Billing", new Label("Billing content"))
         );
         tabPane.getStyleClass().add("patient-tabs");
@@ -127,41 +171,29 @@ public class PatientScreen {
         HBox patientInfo = new HBox(20);
         patientInfo.getStyleClass().add("patient-info");
 
-        StackPane imageContainer = new StackPane();
+        imageContainer = new StackPane();
         imageContainer.setPrefSize(100, 100);
         imageContainer.getStyleClass().add("patient-image-container");
 
-        ImageView patientImage = new ImageView();
+        patientImage = new ImageView();
         patientImage.setFitHeight(100);
         patientImage.setFitWidth(100);
         patientImage.getStyleClass().add("patient-image");
 
-        FontIcon placeholderIcon = new FontIcon(FontAwesomeSolid.USER);
+        placeholderIcon = new FontIcon(FontAwesomeSolid.USER);
         placeholderIcon.setIconSize(80);
         placeholderIcon.setIconColor(Color.LIGHTGRAY);
 
-        imageContainer.getChildren().add(placeholderIcon);
-
-        // Try to load the image
-        try {
-            InputStream imageStream = getClass().getResourceAsStream("/images/patient-placeholder.jpg");
-            if (imageStream != null) {
-                Image image = new Image(imageStream);
-                patientImage.setImage(image);
-                imageContainer.getChildren().clear();
-                imageContainer.getChildren().add(patientImage);
-            }
-        } catch (Exception e) {
-            System.err.println("Error loading patient image: " + e.getMessage());
-        }
+        placeholderImage = ImageService.getInstance().loadResource("/images/patient-placeholder.jpg", 100, 100);
+        showPhoto(null);
 
         VBox patientDetails = new VBox(5);
-        Label nameLabel = new Label("John Doe");
-        nameLabel.getStyleClass().add("patient-name");
-        Label idLabel = new Label("Patient ID: 12345");
-        idLabel.getStyleClass().add("patient-id");
+        patientNameLabel = new Label("No patient selected");
+        patientNameLabel.getStyleClass().add("patient-name");
+        patientIdLabel = new Label();
+        patientIdLabel.getStyleClass().add("patient-id");
 
-        patientDetails.getChildren().addAll(nameLabel, idLabel);
+        patientDetails.getChildren().addAll(patientNameLabel, patientIdLabel);
 
         Button editBtn = new Button("Edit");
         editBtn.setGraphic(new FontIcon(FontAwesomeSolid.EDIT));
@@ -172,7 +204,48 @@ public class PatientScreen {
         return patientInfo;
     }
 
-    private Tab createTab(String title, javafx.scene.Node content) {
+    private void showPatient(Patient patient) {
+        if (!patient.getId().equals(selectedPatientId)) {
+            // Commit what was typed for the previous patient before its rows are replaced
+            saveCustomFields();
+        }
+        patientNameLabel.setText(patient.getFullName());
+        // A list refresh re-selects the same patient; keep the rows someone may be typing in
+        if (patient.getId().equals(selectedPatientId)) {
+            return;
+        }
+        selectedPatientId = patient.getId();
+        patientIdLabel.setText("Patient ID: " + patient.getId());
+        medicalRecords.showPatient(patient.getId());
+        PatientRecord record = PatientEditQueue.getInstance().get(patient.getId());
+        showCustomFields(record);
+        if (record == null) {
+            // Not stored locally yet (first sync still running): look it up
+            dataSource.fetchRecord(patient.getId()).thenAccept(fetched -> Platform.runLater(() -> {
+                if (fetched != null && patient.getId().equals(selectedPatientId)
+                        && customFieldsContainer.getChildren().isEmpty()) {
+                    showCustomFields(fetched);
+                }
+            }));
+        }
+
+        showPhoto(null);
+        ImageService.getInstance().loadPatientPhoto(patient.getId(), 100, 100)
+                .thenAccept(photo -> Platform.runLater(() -> {
+                    // Ignore photos that arrive after another patient was selected
+                    if (photo != null && patientIdLabel.getText().equals("Patient ID: " + patient.getId())) {
+                        showPhoto(photo);
+                    }
+                }));
+    }
+
+    private void showPhoto(Image photo) {
+        Image image = photo != null ? photo : placeholderImage;
+        patientImage.setImage(image);
+        imageContainer.getChildren().setAll(image != null ? patientImage : placeholderIcon);
+    }
+
+    private Tab createTab(String title, Node content) {
         Tab tab = new Tab(title);
         tab.setContent(content);
         return tab;
@@ -195,48 +268,104 @@ public class PatientScreen {
         return overview;
     }
 
+    private void showCustomFields(PatientRecord record) {
+        loadingFields = true;
+        customFieldsContainer.getChildren().clear();
+        if (record != null) {
+            record.getFields().forEach(this::addCustomField);
+        }
+        loadingFields = false;
+    }
+
     private void addCustomField() {
+        HBox fieldRow = addCustomField("", "");
+        FadeTransition fadeIn = new FadeTransition(Duration.millis(500), fieldRow);
+        fadeIn.setFromValue(0.0);
+        fadeIn.setToValue(1.0);
+        fadeIn.play();
+    }
+
+    private HBox addCustomField(String name, String value) {
         HBox fieldRow = new HBox(10);
         fieldRow.getStyleClass().add("field-row");
 
-        TextField fieldName = new TextField();
+        TextField fieldName = new TextField(name);
         fieldName.setPromptText("Field Name");
         fieldName.getStyleClass().add("field-name");
 
-        TextField fieldValue = new TextField();
+        TextField fieldValue = new TextField(value);
         fieldValue.setPromptText("Field Value");
         fieldValue.getStyleClass().add("field-value");
 
+        // Saved on Enter or when the field loses focus, not per keystroke, so half-typed names
+        // and values never reach the store
+        for (TextField field : List.of(fieldName, fieldValue)) {
+            field.setOnAction(e -> saveCustomFields());
+            field.focusedProperty().addListener((obs, wasFocused, focused) -> {
+                if (!focused) {
+                    saveCustomFields();
+                }
+            });
+        }
+
         Button removeBtn = new Button();
         removeBtn.setGraphic(new FontIcon(FontAwesomeSolid.TRASH));
         removeBtn.getStyleClass().add("remove-field-btn");
-        removeBtn.setOnAction(e -> customFieldsContainer.getChildren().remove(fieldRow));
+        removeBtn.setOnAction(e -> {
+            customFieldsContainer.getChildren().remove(fieldRow);
+            saveCustomFields();
+        });
 
         fieldRow.getChildren().addAll(fieldName, fieldValue, removeBtn);
         customFieldsContainer.getChildren().add(fieldRow);
+        return fieldRow;
+    }
 
-        FadeTransition fadeIn = new FadeTransition(Duration.millis(500), fieldRow);
-        fadeIn.setFromValue(0.0);
-        fadeIn.setToValue(1.0);
-        fadeIn.play();
+    private void saveCustomFields() {
+        if (loadingFields || selectedPatientId == null) {
+            return;
+        }
+        Map<String, String> fields = new LinkedHashMap<>();
+        for (Node row : customFieldsContainer.getChildren()) {
+            List<Node> inputs = ((HBox) row).getChildren();
+            String name = ((TextField) inputs.get(0)).getText().trim();
+            String value = ((TextField) inputs.get(1)).getText();
+            // A row still missing its name or value is kept on screen but not saved yet
+            if (!name.isEmpty() && !value.isBlank()) {
+                fields.put(name, value);
+            }
+        }
+        PatientEditQueue edits = PatientEditQueue.getInstance();
+        PatientRecord current = edits.get(selectedPatientId);
+        if (current == null) {
+            current = new PatientRecord(selectedPatientId, patientNameLabel.getText(), null, 0, 0, false);
+        }
+        if (fields.equals(current.getFields())) {
+            return;
+        }
+        edits.submit(current.withChanges(current.getFullName(), fields));
     }
 
     private void showAddPatientDialog() {
         Dialog<Void> dialog = new Dialog<>();
         dialog.setTitle("Add New Patient");
         dialog.getDialogPane().getStyleClass().add("add-patient-dialog");
+        Theme.apply(dialog.getDialogPane().getScene());
+        // A dialog without a button type ignores close() and the window's close button
+        dialog.getDialogPane().getButtonTypes().add(ButtonType.CANCEL);
 
         VBox content = new VBox(20);
         content.setPadding(new Insets(30));
-        content.setStyle("-fx-background-color: white; -fx-background-radius: 10px;");
+        content.getStyleClass().add("dialog-content");
 
         Label titleLabel = new Label("Add New Patient");
-        titleLabel.setStyle("-fx-font-size: 24px; -fx-font-weight: bold;");
+        titleLabel.getStyleClass().add("dialog-title");
 
         TextField nameField = new TextField();
         nameField.setPromptText("Patient Name");
         nameField.getStyleClass().add("dialog-text-field");
 
+        List<TextField[]> fieldInputs = new ArrayList<>();
         Button addFieldBtn = new Button("Add Custom Field");
         addFieldBtn.setGraphic(new FontIcon(FontAwesomeSolid.PLUS));
         addFieldBtn.getStyleClass().addAll("add-field-btn", "action-button");
@@ -247,13 +376,33 @@ public class PatientScreen {
             TextField fieldValue = new TextField();
             fieldValue.setPromptText("Field Value");
             fieldRow.getChildren().addAll(fieldName, fieldValue);
+            fieldInputs.add(new TextField[]{fieldName, fieldValue});
             content.getChildren().add(content.getChildren().size() - 1, fieldRow);
         });
 
         Button saveBtn = new Button("Save");
         saveBtn.setGraphic(new FontIcon(FontAwesomeSolid.SAVE));
         saveBtn.getStyleClass().addAll("save-btn", "action-button");
-        saveBtn.setOnAction(e -> dialog.close());
+        saveBtn.setOnAction(e -> {
+            String name = nameField.getText().trim();
+            if (name.isEmpty()) {
+                nameField.requestFocus();
+                return;
+            }
+            Map<String, String> fields = new LinkedHashMap<>();
+            for (TextField[] inputs : fieldInputs) {
+                String fieldName = inputs[0].getText().trim();
+                if (!fieldName.isEmpty() && !inputs[1].getText().isBlank()) {
+                    fields.put(fieldName, inputs[1].getText());
+                }
+            }
+            // Saved locally in the background and pushed with the next batch; the dialog closes at once
+            saveBtn.setDisable(true);
+            PatientEditQueue.getInstance().submit(new PatientRecord(UUID.randomUUID().toString(), name, fields,
+                    0, System.currentTimeMillis(), false));
+            dialog.setResult(null);
+            dialog.close();
+        });
 
         content.getChildren().addAll(titleLabel, nameField, addFieldBtn, saveBtn);
         dialog.getDialogPane().setContent(content);
@@ -0,0 +1,94 @@
+package com.example.andromeda;
+
+import javafx.animation.PauseTransition;
+import javafx.scene.control.TextField;
+import javafx.util.Duration;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Type-ahead search for the patient list.
+ *
+ * Each keystroke is answered immediately from the {@link PatientPrefixIndex} of already loaded
+ * patients. The server is only queried once typing pauses, and an in-flight query is cancelled
+ * as soon as the text changes again; its late result is ignored either way.
+ */
+public class PatientSearch {
+
+    private static final Logger LOGGER = Logger.getLogger(PatientSearch.class.getName());
+    private static final int RESULT_LIMIT = 200;
+
+    private final PagedPatientList patientList;
+    private final PatientDataSource dataSource;
+    private final PauseTransition debounce = new PauseTransition(Duration.millis(250));
+
+    private String query = "";
+    private CompletableFuture<List<Patient>> serverQuery;
+
+    public PatientSearch(PagedPatientList patientList, PatientDataSource dataSource) {
+        this.patientList = patientList;
+        this.dataSource = dataSource;
+        debounce.setOnFinished(e -> queryServer());
+    }
+
+    public void attach(TextField searchField) {
+        searchField.textProperty().addListener((obs, oldText, newText) -> onQueryChanged(newText));
+    }
+
+    private void onQueryChanged(String text) {
+        query = text == null ? "" : text.trim();
+        cancelServerQuery();
+        if (query.isEmpty()) {
+            debounce.stop();
+            patientList.clearResults();
+            return;
+        }
+        patientList.showResults(patientList.getIndex().search(query, RESULT_LIMIT));
+        debounce.playFromStart();
+    }
+
+    private void queryServer() {
+        String submitted = query;
+        CompletableFuture<List<Patient>> future = dataSource.search(submitted, RESULT_LIMIT);
+        serverQuery = future;
+        future.whenComplete((patients, error) -> BackgroundTasks.runOnFxThread(() -> {
+            if (future != serverQuery || !submitted.equals(query)) {
+                return;
+            }
+            serverQuery = null;
+            if (error != null) {
+                // Local matches stay on screen
+                LOGGER.log(Level.FINE, "Patient search failed for '" + submitted + "'", error);
+                return;
+            }
+            patientList.getIndex().addAll(patients);
+            patientList.showResults(merge(patientList.getIndex().search(submitted, RESULT_LIMIT), patients));
+        }));
+    }
+
+    private void cancelServerQuery() {
+        if (serverQuery != null) {
+            serverQuery.cancel(true);
+            serverQuery = null;
+        }
+    }
+
+    private static List<Patient> merge(List<Patient> local, List<Patient> remote) {
+        Map<String, Patient> merged = new LinkedHashMap<>();
+        for (Patient patient : remote) {
+            merged.put(patient.getId(), patient);
+        }
+        for (Patient patient : local) {
+            if (merged.size() >= RESULT_LIMIT) {
+                break;
+            }
+            merged.putIfAbsent(patient.getId(), patient);
+        }
+        return List.copyOf(merged.values());
+    }
+}
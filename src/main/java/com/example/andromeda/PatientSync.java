@@ -0,0 +1,438 @@
+package com.example.andromeda;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Keeps the {@link LocalPatientStore} and the backend in step from a single background thread.
+ *
+ * Each round first pushes pending local edits in batches to {@code POST /api/patients/changes}
+ * ({@code {"changes": [record, ...]}}, answered with {@code {"results": [{"id", "status":
+ * "applied"|"conflict", "version", "current"}]}}), then pulls everything changed since the stored
+ * token from {@code GET /api/patients/changes?since=&limit=} ({@code {"patients": [...], "token",
+ * "hasMore"}}), parsing the records as they stream in. Clinical notes and reports for the
+ * {@link MedicalRecordStore} are pulled the same way from {@code GET /api/records/changes}
+ * ({@code {"records": [...], "token", "hasMore"}}); a failure there is logged but does not fail
+ * the round. Rounds run every {@code andromeda.sync.intervalSec} seconds (default 30) and
+ * shortly after a local edit. Every pushed change carries an idempotency key, and the batch an
+ * {@code Idempotency-Key} header, so a retry after a lost response is not applied twice.
+ * Failures back off exponentially; meanwhile the app keeps working from the local store.
+ */
+public class PatientSync {
+
+    private static final Logger LOGGER = Logger.getLogger(PatientSync.class.getName());
+    static final String CHANGES_ENDPOINT = "/api/patients/changes";
+    static final String RECORD_CHANGES_ENDPOINT = "/api/records/changes";
+    private static final int PUSH_BATCH = 100;
+    private static final int PULL_LIMIT = 500;
+    private static final long REQUEST_TIMEOUT_SECONDS = 30;
+    private static final long LOCAL_EDIT_DELAY_MILLIS = 1_000;
+    private static final long MAX_BACKOFF_MILLIS = 5 * 60_000;
+
+    private static volatile PatientSync instance;
+
+    private final ApiClient apiClient;
+    private final LocalPatientStore store;
+    private final MedicalRecordStore recordStore;
+    private final long intervalSeconds;
+
+    private final LongAdder pushedBatches = new LongAdder();
+
+    private ScheduledExecutorService scheduler;
+    // Completes when the last stopInBackground() is done; a restart waits for it before loading
+    private CompletableFuture<Void> stopped = CompletableFuture.completedFuture(null);
+    private ScheduledFuture<?> next;
+    private int failures;
+    private volatile long retryAt;
+    private volatile boolean online = true;
+    private volatile long lastSyncedAt;
+
+    public PatientSync(ApiClient apiClient, LocalPatientStore store, MedicalRecordStore recordStore,
+                       long intervalSeconds) {
+        this.apiClient = apiClient;
+        this.store = store;
+        this.recordStore = recordStore;
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    public static PatientSync getInstance() {
+        PatientSync local = instance;
+        if (local == null) {
+            synchronized (PatientSync.class) {
+                local = instance;
+                if (local == null) {
+                    local = new PatientSync(ApiClient.getInstance(), LocalPatientStore.getInstance(),
+                            MedicalRecordStore.getInstance(), Long.getLong("andromeda.sync.intervalSec", 30));
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    public LocalPatientStore getStore() {
+        return store;
+    }
+
+    public MedicalRecordStore getRecordStore() {
+        return recordStore;
+    }
+
+    /**
+     * Loads the store and starts periodic sync rounds. Later calls do nothing.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        ScheduledThreadPoolExecutor executor =
+                new ScheduledThreadPoolExecutor(1, new ApiClient.DaemonThreadFactory("andromeda-sync"));
+        // On stop, only the final push queued by stop() still runs
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        scheduler = executor;
+        CompletableFuture<Void> previous = stopped;
+        scheduler.execute(() -> {
+            previous.join();
+            try {
+                store.load();
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Failed to open the local patient store", e);
+            }
+            try {
+                recordStore.load();
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Failed to open the local medical record store", e);
+            }
+        });
+        scheduleRound(0);
+    }
+
+    /**
+     * Schedules a round shortly, coalescing bursts of local edits into one push. Does nothing
+     * while backing off after a failure.
+     */
+    public synchronized void requestSync() {
+        if (scheduler == null || System.currentTimeMillis() < retryAt) {
+            return;
+        }
+        if (next != null && !next.isDone() && next.getDelay(TimeUnit.MILLISECONDS) <= LOCAL_EDIT_DELAY_MILLIS) {
+            return;
+        }
+        scheduleRound(LOCAL_EDIT_DELAY_MILLIS);
+    }
+
+    private synchronized void scheduleRound(long delayMillis) {
+        if (scheduler == null) {
+            return;
+        }
+        if (next != null) {
+            next.cancel(false);
+        }
+        next = scheduler.schedule(this::runRound, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Makes a last attempt to push pending edits, waiting at most {@code timeoutMillis}, and
+     * stops the sync thread. Edits that could not be pushed stay in the store for next time.
+     */
+    public void stop(long timeoutMillis) {
+        ScheduledExecutorService current = detach();
+        if (current != null) {
+            finish(current, null, timeoutMillis);
+        }
+    }
+
+    /**
+     * Like {@link #stop}, but returns at once: {@link #start()} may be called again right away,
+     * while {@code beforePush} (if not null; e.g. flushing queued edits to the store), the last
+     * push and then {@code afterStop} (if not null; e.g. purging the stores on logout) run on a
+     * separate thread. That thread is not a daemon, so the JVM waits for it, and a restarted
+     * sync only opens the stores once it is done.
+     */
+    public void stopInBackground(Runnable beforePush, Runnable afterStop, long timeoutMillis) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<Void> previous;
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = detach();
+            if (current == null && afterStop == null) {
+                return;
+            }
+            previous = stopped;
+            stopped = done;
+        }
+        new Thread(() -> {
+            try {
+                previous.join();
+                if (current != null) {
+                    finish(current, beforePush, timeoutMillis);
+                }
+                if (afterStop != null) {
+                    afterStop.run();
+                }
+            } finally {
+                done.complete(null);
+            }
+        }, "andromeda-sync-stop").start();
+    }
+
+    private synchronized ScheduledExecutorService detach() {
+        ScheduledExecutorService current = scheduler;
+        scheduler = null;
+        return current;
+    }
+
+    private void finish(ScheduledExecutorService current, Runnable beforePush, long timeoutMillis) {
+        if (beforePush != null) {
+            beforePush.run();
+        }
+        current.execute(() -> {
+            if (store.isLoaded() && store.getPendingCount() > 0) {
+                push();
+            }
+        });
+        current.shutdown();
+        try {
+            if (!current.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                current.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            current.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Whether the last round reached the backend.
+     */
+    public boolean isOnline() {
+        return online;
+    }
+
+    public long getLastSyncedAt() {
+        return lastSyncedAt;
+    }
+
+    /**
+     * Bulk push requests sent, retries included.
+     */
+    public long getPushedBatchCount() {
+        return pushedBatches.sum();
+    }
+
+    private void runRound() {
+        if (!store.isLoaded()) {
+            scheduleRound(intervalSeconds * 1_000);
+            return;
+        }
+        try {
+            push();
+            pull();
+            pullRecords();
+            online = true;
+            failures = 0;
+            retryAt = 0;
+            lastSyncedAt = System.currentTimeMillis();
+            scheduleRound(intervalSeconds * 1_000);
+        } catch (Exception e) {
+            failures++;
+            long backoff = backoffMillis(failures);
+            if (online) {
+                LOGGER.log(Level.WARNING, "Patient sync failed; working from the local store", e);
+            } else {
+                LOGGER.log(Level.FINE, "Patient sync still failing, retrying in " + backoff + " ms", e);
+            }
+            online = false;
+            retryAt = System.currentTimeMillis() + backoff;
+            scheduleRound(backoff);
+        }
+    }
+
+    /**
+     * 1 s, 2 s, 4 s, ... capped at {@value #MAX_BACKOFF_MILLIS} ms, with up to 20% jitter so
+     * many terminals coming back online do not retry in lockstep.
+     */
+    private static long backoffMillis(int failures) {
+        long base = Math.min(MAX_BACKOFF_MILLIS, 1_000L << Math.min(failures - 1, 20));
+        return base + ThreadLocalRandom.current().nextLong(base / 5 + 1);
+    }
+
+    private void push() {
+        List<PatientRecord> batch;
+        while (!(batch = store.pendingChanges(PUSH_BATCH)).isEmpty()) {
+            JSONArray changes = new JSONArray();
+            Map<String, PatientRecord> sent = new HashMap<>();
+            StringBuilder keys = new StringBuilder();
+            for (PatientRecord record : batch) {
+                String key = idempotencyKey(record);
+                changes.put(record.toJson().put("idempotencyKey", key));
+                sent.put(record.getId(), record);
+                keys.append(key).append('\n');
+            }
+            // A retried batch carries the same keys, so the server can drop what it already applied
+            HttpRequest request = apiClient.newRequest(CHANGES_ENDPOINT)
+                    .header("Idempotency-Key", UUID.nameUUIDFromBytes(
+                            keys.toString().getBytes(StandardCharsets.UTF_8)).toString())
+                    .POST(HttpRequest.BodyPublishers.ofString(new JSONObject().put("changes", changes).toString()))
+                    .build();
+            JSONObject response = bodyOf(await(apiClient.send(CHANGES_ENDPOINT, request), "push"), "push");
+            pushedBatches.increment();
+            JSONArray results = response.optJSONArray("results");
+            List<PatientRecord> conflicts = new ArrayList<>();
+            int acknowledged = 0;
+            for (int i = 0; results != null && i < results.length(); i++) {
+                JSONObject result = results.getJSONObject(i);
+                PatientRecord pushed = sent.get(result.get("id").toString());
+                if (pushed == null) {
+                    continue;
+                }
+                if ("conflict".equals(result.optString("status")) && result.has("current")) {
+                    conflicts.add(PatientRecord.fromJson(result.getJSONObject("current")));
+                } else {
+                    store.acknowledge(pushed, result.getLong("version"));
+                    acknowledged++;
+                }
+            }
+            if (!conflicts.isEmpty()) {
+                store.applyRemote(conflicts, null);
+            }
+            if (acknowledged == 0) {
+                if (conflicts.isEmpty()) {
+                    throw new IllegalStateException("Server accepted none of " + batch.size() + " patient changes");
+                }
+                // Rebased local edits go out again next round rather than looping here
+                break;
+            }
+        }
+    }
+
+    /**
+     * Identifies one local edit: stable across retries, new for every later edit of the record.
+     */
+    static String idempotencyKey(PatientRecord record) {
+        return record.getId() + "@" + record.getUpdatedAt();
+    }
+
+    private void pull() {
+        boolean more = true;
+        while (more) {
+            String token = store.getSyncToken();
+            String path = CHANGES_ENDPOINT + "?limit=" + PULL_LIMIT
+                    + (token == null ? "" : "&since=" + URLEncoder.encode(token, StandardCharsets.UTF_8));
+            PulledChanges pulled = await(apiClient.sendForJson(CHANGES_ENDPOINT + "?since",
+                    apiClient.newRequest(path).GET().build(), PulledChanges::read), "pull");
+            if (pulled.token == null) {
+                throw new IllegalStateException("Patient pull returned no sync token");
+            }
+            store.applyRemote(pulled.records, pulled.token);
+            more = pulled.hasMore && !pulled.records.isEmpty();
+        }
+    }
+
+    private void pullRecords() {
+        if (!recordStore.isLoaded()) {
+            return;
+        }
+        try {
+            boolean more = true;
+            while (more) {
+                String token = recordStore.getSyncToken();
+                String path = RECORD_CHANGES_ENDPOINT + "?limit=" + PULL_LIMIT
+                        + (token == null ? "" : "&since=" + URLEncoder.encode(token, StandardCharsets.UTF_8));
+                PulledChanges pulled = await(apiClient.sendForJson(RECORD_CHANGES_ENDPOINT + "?since",
+                        apiClient.newRequest(path).GET().build(), PulledChanges::read), "record pull");
+                if (pulled.token == null) {
+                    throw new IllegalStateException("Record pull returned no sync token");
+                }
+                recordStore.applyRemote(pulled.medicalRecords, pulled.token);
+                more = pulled.hasMore && !pulled.medicalRecords.isEmpty();
+            }
+        } catch (RuntimeException e) {
+            // Patients stay in sync; record search works from what was pulled before
+            LOGGER.log(Level.FINE, "Medical record pull failed", e);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> call, String what) {
+        try {
+            return call.get(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Patient " + what + " interrupted", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Patient " + what + " failed", e);
+        }
+    }
+
+    private static JSONObject bodyOf(HttpResponse<String> response, String what) {
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Patient " + what + " failed. Status code: " + response.statusCode());
+        }
+        return new JSONObject(response.body());
+    }
+
+    /**
+     * One pulled page of patients or medical records, read record by record from the response
+     * stream.
+     */
+    private static final class PulledChanges {
+
+        private final List<PatientRecord> records = new ArrayList<>();
+        private final List<MedicalRecord> medicalRecords = new ArrayList<>();
+        private String token;
+        private boolean hasMore;
+
+        static PulledChanges read(JsonStreamReader reader) {
+            PulledChanges pulled = new PulledChanges();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "patients":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            pulled.records.add(PatientRecord.fromJson(reader));
+                        }
+                        reader.endArray();
+                        break;
+                    case "records":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            pulled.medicalRecords.add(MedicalRecord.fromJson(reader));
+                        }
+                        reader.endArray();
+                        break;
+                    case "token":
+                        pulled.token = reader.nextString();
+                        break;
+                    case "hasMore":
+                        pulled.hasMore = reader.nextBoolean();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return pulled;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.andromeda;
 
+import javafx.beans.binding.Bindings;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -9,12 +11,7 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.stage.Stage;
 
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.net.URI;
-import java.io.IOException;
-import java.io.File;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
@@ -25,14 +22,15 @@ import org.json.JSONException;
 public class RegistrationForm {
 
     private static final Logger LOGGER = Logger.getLogger(RegistrationForm.class.getName());
-    private static final String PRIMARY_COLOR = "#3498db";
-    private static final String SECONDARY_COLOR = "#ffffff";
-    private static final String API_URL = "http://localhost:8080"; // Update this to your actual API URL
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[A-Za-z0-9+_.-]+@(.+)$");
 
     private TextField fullNameField;
     private TextField emailField;
     private TextField usernameField;
     private PasswordField passwordField;
+    private Button registerButton;
+    private ProgressIndicator registerProgress;
+    private Task<HttpResponse<String>> registerTask;
 
     public void show(Stage stage) {
         BorderPane root = new BorderPane();
@@ -44,13 +42,7 @@ public class RegistrationForm {
         root.setRight(rightSide);
 
         Scene scene = new Scene(root, 900, 600);
-
-        String stylesheetUrl = getClass().getResource("/styles.css").toExternalForm();
-        if (stylesheetUrl != null) {
-            scene.getStylesheets().add(stylesheetUrl);
-        } else {
-            LOGGER.warning("Stylesheet not found");
-        }
+        Theme.apply(scene);
 
         stage.setScene(scene);
         stage.setTitle("Andromeda Healthcare - Registration");
@@ -59,35 +51,31 @@ public class RegistrationForm {
 
     private VBox createLeftSide() {
         VBox vbox = new VBox(30);
-        vbox.setStyle("-fx-background-color: " + PRIMARY_COLOR + ";");
+        vbox.getStyleClass().add("brand-pane");
         vbox.setPrefWidth(450);
         vbox.setPadding(new Insets(60));
         vbox.setAlignment(Pos.CENTER_LEFT);
 
         // Load the hospital logo
         ImageView logoImageView = new ImageView();
-        try {
-            File file = new File("/home/Arktech/Projects/Andromeda/images/and.jpg");
-            Image logoImage = new Image(file.toURI().toString());
+        logoImageView.setFitWidth(80);
+        logoImageView.setFitHeight(80);
+        logoImageView.setPreserveRatio(true);
+        Image logoImage = ImageService.getInstance().loadResource("/images/and.jpg", 80, 80);
+        if (logoImage != null) {
             logoImageView.setImage(logoImage);
-            logoImageView.setFitWidth(80);
-            logoImageView.setFitHeight(80);
-            logoImageView.setPreserveRatio(true);
-        } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Failed to load hospital logo", e);
+        } else {
+            LOGGER.warning("Failed to load hospital logo");
         }
 
         Label title = new Label("Andromeda Healthcare");
         title.getStyleClass().add("title-label");
-        title.setStyle("-fx-text-fill: " + SECONDARY_COLOR + ";");
 
         Label subtitle = new Label("Healthcare Management System");
         subtitle.getStyleClass().add("subtitle-label");
-        subtitle.setStyle("-fx-text-fill: " + SECONDARY_COLOR + ";");
 
         Label description = new Label("A powerful, yet intuitive solution for managing and analyzing patient data, enhancing healthcare delivery through advanced technology.");
         description.getStyleClass().add("description-label");
-        description.setStyle("-fx-text-fill: " + SECONDARY_COLOR + ";");
         description.setWrapText(true);
 
         vbox.getChildren().addAll(logoImageView, title, subtitle, description);
@@ -96,7 +84,7 @@ public class RegistrationForm {
 
     private VBox createRightSide(Stage stage) {
         VBox vbox = new VBox(30);
-        vbox.setStyle("-fx-background-color: " + SECONDARY_COLOR + ";");
+        vbox.getStyleClass().add("form-pane");
         vbox.setPrefWidth(450);
         vbox.setPadding(new Insets(60));
         vbox.setAlignment(Pos.TOP_LEFT);
@@ -105,21 +93,25 @@ public class RegistrationForm {
         topRightBox.setAlignment(Pos.TOP_RIGHT);
         Hyperlink loginLink = new Hyperlink("LOG IN");
         loginLink.getStyleClass().add("create-account-link");
-        loginLink.setStyle("-fx-text-fill: " + PRIMARY_COLOR + ";");
         loginLink.setOnAction(e -> showLoginScreen(stage));
         topRightBox.getChildren().add(loginLink);
 
         Label registerLabel = new Label("Create an account");
         registerLabel.getStyleClass().add("login-label");
-        registerLabel.setStyle("-fx-text-fill: " + PRIMARY_COLOR + ";");
 
         VBox form = createRegistrationForm();
-        Button registerButton = new Button("CREATE ACCOUNT");
+        registerButton = new Button("CREATE ACCOUNT");
         registerButton.getStyleClass().add("sign-in-button");
-        registerButton.setStyle("-fx-background-color: " + PRIMARY_COLOR + "; -fx-text-fill: " + SECONDARY_COLOR + ";");
         registerButton.setOnAction(e -> handleRegistration(stage));
 
-        vbox.getChildren().addAll(topRightBox, registerLabel, form, registerButton);
+        registerProgress = new ProgressIndicator();
+        registerProgress.setPrefSize(24, 24);
+        registerProgress.setVisible(false);
+
+        HBox actions = new HBox(15, registerButton, registerProgress);
+        actions.setAlignment(Pos.CENTER_LEFT);
+
+        vbox.getChildren().addAll(topRightBox, registerLabel, form, actions);
         return vbox;
     }
 
@@ -147,6 +139,12 @@ public class RegistrationForm {
     }
 
     private void handleRegistration(Stage stage) {
+        // While a registration is in flight the button cancels it instead of sending a second one
+        if (registerTask != null && registerTask.isRunning()) {
+            registerTask.cancel();
+            return;
+        }
+
         String fullName = fullNameField.getText();
         String email = emailField.getText();
         String username = usernameField.getText();
@@ -162,46 +160,43 @@ public class RegistrationForm {
             return;
         }
 
-        try {
-            HttpClient client = HttpClient.newHttpClient();
-            JSONObject json = new JSONObject();
-            json.put("fullName", fullName);
-            json.put("email", email);
-            json.put("username", username);
-            json.put("password", password);
-
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(API_URL + "/api/auth/register"))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(json.toString()))
-                    .build();
-
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 200) {
-                showAlert("Success", "Registration successful!");
-                showLoginScreen(stage);
-            } else {
-                String errorMessage;
-                try {
-                    JSONObject errorResponse = new JSONObject(response.body());
-                    errorMessage = errorResponse.optString("message", "Registration failed. Please try again.");
-                } catch (JSONException e) {
-                    errorMessage = "An unexpected error occurred. Please try again later.";
-                }
-                showAlert("Error", errorMessage);
-                LOGGER.log(Level.WARNING, "Registration failed. Status code: " + response.statusCode() + ", Body: " + response.body());
+        JSONObject json = new JSONObject();
+        json.put("fullName", fullName);
+        json.put("email", email);
+        json.put("username", username);
+        json.put("password", password);
+
+        registerTask = BackgroundTasks.submitAsync(
+                () -> ApiClient.getInstance().postJson("/api/auth/register", json),
+                response -> handleRegistrationResponse(stage, response),
+                ex -> {
+                    LOGGER.log(Level.SEVERE, "An error occurred while trying to register", ex);
+                    showAlert("Error", "Unable to connect to the server. Please check your internet connection and try again.");
+                });
+        registerProgress.visibleProperty().bind(registerTask.runningProperty());
+        registerButton.textProperty().bind(Bindings.when(registerTask.runningProperty())
+                .then("CANCEL").otherwise("CREATE ACCOUNT"));
+    }
+
+    private void handleRegistrationResponse(Stage stage, HttpResponse<String> response) {
+        if (response.statusCode() == 200) {
+            showAlert("Success", "Registration successful!");
+            showLoginScreen(stage);
+        } else {
+            String errorMessage;
+            try {
+                JSONObject errorResponse = new JSONObject(response.body());
+                errorMessage = errorResponse.optString("message", "Registration failed. Please try again.");
+            } catch (JSONException e) {
+                errorMessage = "An unexpected error occurred. Please try again later.";
             }
-        } catch (IOException | InterruptedException ex) {
-            LOGGER.log(Level.SEVERE, "An error occurred while trying to register", ex);
-            showAlert("Error", "Unable to connect to the server. Please check your internet connection and try again.");
+            showAlert("Error", errorMessage);
+            LOGGER.log(Level.WARNING, "Registration failed. Status code: " + response.statusCode() + ", Body: " + response.body());
         }
     }
 
-    private boolean isValidEmail(String email) {
-        String emailRegex = "^[A-Za-z0-9+_.-]+@(.+)$";
-        Pattern pattern = Pattern.compile(emailRegex);
-        return email != null && pattern.matcher(email).matches();
+    public static boolean isValidEmail(String email) {
+        return email != null && EMAIL_PATTERN.matcher(email).matches();
     }
 
     private void showLoginScreen(Stage stage) {
@@ -0,0 +1,106 @@
+package com.example.andromeda;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads patient pages from {@code GET /api/patients?offset=&limit=}.
+ *
+ * The backend answers with {@code {"total": n, "patients": [{"id": ..., "fullName": ...}]}}.
+ * Searches use the same endpoint with a {@code q} parameter. Both are read with a
+ * {@link JsonStreamReader} straight into {@link Patient}s as they arrive from the network.
+ * Parsed pages are kept in the response cache's memory tier and revalidated with their ETag,
+ * so revisiting the patient screen renders from memory without re-parsing an unchanged page.
+ * Single records are looked up with {@code GET /api/patients?ids=a,b}
+ * ({@code {"patients": [record, ...]}}), batching lookups made within a few milliseconds.
+ */
+public class RemotePatientDataSource implements PatientDataSource {
+
+    static final String PATIENTS_ENDPOINT = "/api/patients";
+    private static final Duration PAGE_TTL = Duration.ofMinutes(1);
+    private static final long LOOKUP_WINDOW_MILLIS = 10;
+    private static final int MAX_LOOKUP_BATCH = 100;
+
+    private final ApiClient apiClient;
+    private final BatchLoader<String, PatientRecord> records;
+
+    public RemotePatientDataSource(ApiClient apiClient) {
+        this.apiClient = apiClient;
+        this.records = new BatchLoader<>(apiClient, PATIENTS_ENDPOINT + "?ids", LOOKUP_WINDOW_MILLIS,
+                MAX_LOOKUP_BATCH, this::fetchRecords);
+    }
+
+    @Override
+    public CompletableFuture<Page> fetchPage(int offset, int limit) {
+        String path = PATIENTS_ENDPOINT + "?offset=" + offset + "&limit=" + limit;
+        return apiClient.getCachedJson(path, PAGE_TTL, reader -> parsePage(offset, reader));
+    }
+
+    @Override
+    public CompletableFuture<List<Patient>> search(String query, int limit) {
+        String path = PATIENTS_ENDPOINT + "?q=" + URLEncoder.encode(query, StandardCharsets.UTF_8) + "&limit=" + limit;
+        return apiClient.sendForJson(PATIENTS_ENDPOINT + "?q", apiClient.newRequest(path).GET().build(),
+                reader -> parsePage(0, reader).getPatients());
+    }
+
+    @Override
+    public CompletableFuture<PatientRecord> fetchRecord(String id) {
+        return records.load(id);
+    }
+
+    private CompletableFuture<Map<String, PatientRecord>> fetchRecords(List<String> ids) {
+        StringBuilder path = new StringBuilder(PATIENTS_ENDPOINT).append("?ids=");
+        for (int i = 0; i < ids.size(); i++) {
+            path.append(i == 0 ? "" : ",").append(URLEncoder.encode(ids.get(i), StandardCharsets.UTF_8));
+        }
+        return apiClient.sendForJson(PATIENTS_ENDPOINT + "?ids", apiClient.newRequest(path.toString()).GET().build(),
+                reader -> {
+                    Map<String, PatientRecord> found = new HashMap<>();
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (!reader.nextName().equals("patients")) {
+                            reader.skipValue();
+                            continue;
+                        }
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            PatientRecord record = PatientRecord.fromJson(reader);
+                            found.put(record.getId(), record);
+                        }
+                        reader.endArray();
+                    }
+                    reader.endObject();
+                    return found;
+                });
+    }
+
+    static Page parsePage(int offset, JsonStreamReader reader) {
+        List<Patient> patients = new ArrayList<>();
+        int total = -1;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "total":
+                    total = reader.nextInt();
+                    break;
+                case "patients":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        patients.add(Patient.fromJson(reader));
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new Page(offset, total < 0 ? offset + patients.size() : total, patients);
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.andromeda;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Two-tier cache of GET response bodies keyed by request path.
+ *
+ * The memory tier is a bounded LRU map. Paths accepted by {@code diskFilter} are also written
+ * to {@code diskDir}, so they survive restarts. Each entry carries the server's ETag and its own
+ * expiry; expired entries are kept so they can be shown immediately and revalidated with
+ * {@code If-None-Match}. Entries added with {@link #putParsed} hold an already parsed value
+ * instead of a body and stay in memory.
+ */
+public class ResponseCache {
+
+    private static final Logger LOGGER = Logger.getLogger(ResponseCache.class.getName());
+
+    private final Map<String, Entry> memory;
+    private final Path diskDir;
+    private final Predicate<String> diskFilter;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ResponseCache(int maxEntries, Path diskDir, Predicate<String> diskFilter) {
+        this.diskDir = diskDir;
+        this.diskFilter = diskFilter;
+        this.memory = new LinkedHashMap<>(Math.min(maxEntries, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the entry for {@code path}, fresh or expired, or {@code null}. Falls back to the
+     * disk tier on a memory miss, so call it off the FX thread for disk-backed paths.
+     */
+    public Entry lookup(String path) {
+        Entry entry;
+        synchronized (memory) {
+            entry = memory.get(path);
+        }
+        if (entry == null && diskDir != null && diskFilter.test(path)) {
+            entry = readFromDisk(path);
+            if (entry != null) {
+                diskHits.increment();
+                synchronized (memory) {
+                    memory.put(path, entry);
+                }
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Memory-only lookup, cheap enough for the FX thread.
+     */
+    public Entry peek(String path) {
+        synchronized (memory) {
+            return memory.get(path);
+        }
+    }
+
+    public void put(String path, String body, String etag, long ttlMillis) {
+        Entry entry = new Entry(body, etag, System.currentTimeMillis() + ttlMillis);
+        synchronized (memory) {
+            memory.put(path, entry);
+        }
+        if (diskDir != null && diskFilter.test(path)) {
+            writeToDisk(path, entry);
+        }
+    }
+
+    /**
+     * Caches {@code value}, parsed from a response, in the memory tier only.
+     */
+    public void putParsed(String path, Object value, String etag, long ttlMillis) {
+        Entry entry = new Entry(null, value, etag, System.currentTimeMillis() + ttlMillis);
+        synchronized (memory) {
+            memory.put(path, entry);
+        }
+    }
+
+    /**
+     * Extends the life of an entry after the server answered {@code 304 Not Modified}.
+     */
+    public Entry revalidated(String path, Entry entry, long ttlMillis) {
+        revalidations.increment();
+        Entry renewed = new Entry(entry.getBody(), entry.getValue(), entry.getEtag(),
+                System.currentTimeMillis() + ttlMillis);
+        synchronized (memory) {
+            memory.put(path, renewed);
+        }
+        return renewed;
+    }
+
+    public void invalidate(String path) {
+        synchronized (memory) {
+            memory.remove(path);
+        }
+        if (diskDir != null) {
+            try {
+                Files.deleteIfExists(fileFor(path));
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to delete cache file for " + path, e);
+            }
+        }
+    }
+
+    /**
+     * Drops every entry, in memory and on disk. Deletes files, so call it off the FX thread.
+     */
+    public void clear() {
+        synchronized (memory) {
+            memory.clear();
+        }
+        if (diskDir == null || !Files.isDirectory(diskDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(diskDir, "*.{json,tmp}")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to clear cache directory " + diskDir, e);
+        }
+    }
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    void recordStaleHit() {
+        staleHits.increment();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getDiskHits() {
+        return diskHits.sum();
+    }
+
+    public long getRevalidations() {
+        return revalidations.sum();
+    }
+
+    /**
+     * Expired entries served because the backend could not be reached.
+     */
+    public long getStaleHits() {
+        return staleHits.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cache hits=%d misses=%d diskHits=%d revalidated=%d stale=%d evictions=%d",
+                getHits(), getMisses(), getDiskHits(), getRevalidations(), getStaleHits(), getEvictions());
+    }
+
+    private Entry readFromDisk(String path) {
+        Path file = fileFor(path);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try {
+            JSONObject json = new JSONObject(Files.readString(file, StandardCharsets.UTF_8));
+            return new Entry(json.getString("body"), json.optString("etag", null), json.getLong("expiresAt"));
+        } catch (IOException | JSONException e) {
+            LOGGER.log(Level.FINE, "Ignoring unreadable cache file " + file, e);
+            return null;
+        }
+    }
+
+    private void writeToDisk(String path, Entry entry) {
+        JSONObject json = new JSONObject();
+        json.put("path", path);
+        json.put("etag", entry.getEtag());
+        json.put("expiresAt", entry.getExpiresAt());
+        json.put("body", entry.getBody());
+        try {
+            Files.createDirectories(diskDir);
+            Path file = fileFor(path);
+            Path temp = Files.createTempFile(diskDir, "entry", ".tmp");
+            Files.writeString(temp, json.toString(), StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Failed to write cache file for " + path, e);
+        }
+    }
+
+    private Path fileFor(String path) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(path.getBytes(StandardCharsets.UTF_8));
+            return diskDir.resolve(HexFormat.of().formatHex(digest, 0, 16) + ".json");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A cached response body, or the value parsed from it, with its validator and expiry time.
+     */
+    public static final class Entry {
+
+        private final String body;
+        private final Object value;
+        private final String etag;
+        private final long expiresAt;
+
+        Entry(String body, String etag, long expiresAt) {
+            this(body, null, etag, expiresAt);
+        }
+
+        Entry(String body, Object value, String etag, long expiresAt) {
+            this.body = body;
+            this.value = value;
+            this.etag = etag;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        /**
+         * The parsed value of an entry added with {@link #putParsed}; null for a plain body.
+         */
+        public Object getValue() {
+            return value;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+
+        public boolean isFresh() {
+            return System.currentTimeMillis() < expiresAt;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.andromeda;
+
+import javafx.scene.Node;
+
+/**
+ * A page that can be shown in the centre of the main window.
+ *
+ * {@link ScreenRouter} calls {@link #createView()} once, the first time the screen is opened,
+ * and {@link #onShow()} every time it is brought back, so expensive scene-graph construction
+ * happens once and later visits only refresh data. {@link #dispose()} is called when the screen
+ * is thrown away, to detach it from shared state such as the patient stores.
+ */
+public interface Screen {
+
+    Node createView();
+
+    default void onShow() {
+    }
+
+    default void dispose() {
+    }
+}
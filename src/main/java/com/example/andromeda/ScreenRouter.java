@@ -0,0 +1,97 @@
+package com.example.andromeda;
+
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.scene.Node;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Swaps screens into a host region, building each one lazily and keeping it warm afterwards.
+ */
+public class ScreenRouter {
+
+    private static final Logger LOGGER = Logger.getLogger(ScreenRouter.class.getName());
+
+    private final Consumer<Node> host;
+    private final Map<String, Supplier<? extends Screen>> factories = new HashMap<>();
+    private final Map<String, Screen> screens = new HashMap<>();
+    private final Map<String, Node> views = new HashMap<>();
+    private final ReadOnlyStringWrapper current = new ReadOnlyStringWrapper(this, "current");
+
+    public ScreenRouter(Consumer<Node> host) {
+        this.host = host;
+    }
+
+    public void register(String name, Supplier<? extends Screen> factory) {
+        factories.put(name, factory);
+    }
+
+    public boolean isRegistered(String name) {
+        return factories.containsKey(name);
+    }
+
+    public void navigate(String name) {
+        Supplier<? extends Screen> factory = factories.get(name);
+        if (factory == null) {
+            LOGGER.warning("No screen registered for " + name);
+            return;
+        }
+        NavigationEvent event = new NavigationEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean warm = views.containsKey(name);
+        Screen screen = screens.computeIfAbsent(name, n -> factory.get());
+        Node view = views.computeIfAbsent(name, n -> screen.createView());
+        if (!name.equals(current.get())) {
+            host.accept(view);
+            current.set(name);
+        }
+        screen.onShow();
+        long elapsed = System.nanoTime() - start;
+        event.end();
+        if (event.shouldCommit()) {
+            event.screen = name;
+            event.warm = warm;
+            event.commit();
+        }
+        Telemetry.getInstance().recordNavigation(name, warm, elapsed);
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine(String.format("Navigated to %s (%s) in %.2f ms", name, warm ? "warm" : "cold",
+                    elapsed / 1_000_000.0));
+        }
+    }
+
+    /**
+     * Drops a built screen so the next visit constructs it again.
+     */
+    public void evict(String name) {
+        Screen screen = screens.remove(name);
+        views.remove(name);
+        if (screen != null) {
+            screen.dispose();
+        }
+        if (name.equals(current.get())) {
+            current.set(null);
+        }
+    }
+
+    /**
+     * Disposes every built screen; used when the window hosting them closes.
+     */
+    public void disposeAll() {
+        screens.values().forEach(Screen::dispose);
+        screens.clear();
+        views.clear();
+        current.set(null);
+    }
+
+    public ReadOnlyStringProperty currentProperty() {
+        return current.getReadOnlyProperty();
+    }
+}
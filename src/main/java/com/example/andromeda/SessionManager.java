@@ -0,0 +1,307 @@
+package com.example.andromeda;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * The signed-in user's tokens.
+ *
+ * {@code POST /api/auth/login} and {@code POST /api/auth/refresh} answer with
+ * {@code {"accessToken", "refreshToken", "expiresIn": seconds, "user": {...}}} ({@code user}
+ * optional). The access token is attached to every request through
+ * {@link ApiClient#setAccessToken} and refreshed in the background shortly before it expires.
+ * With "Remember me" the session, including the last known user profile, is also written to
+ * {@code andromeda.session.file} (default {@code ~/.andromeda/session.json}), readable by the
+ * owner only, so the next launch can {@link #restore()} it and open the main window without a
+ * login or profile request.
+ */
+public class SessionManager {
+
+    private static final Logger LOGGER = Logger.getLogger(SessionManager.class.getName());
+    static final String LOGIN_ENDPOINT = "/api/auth/login";
+    static final String CURRENT_USER_PATH = "/api/user/current";
+    static final Duration CURRENT_USER_TTL = Duration.ofMinutes(5);
+    private static final String REFRESH_ENDPOINT = "/api/auth/refresh";
+    private static final long DEFAULT_EXPIRES_IN_SECONDS = 3_600;
+    private static final long MIN_REFRESH_MARGIN_MILLIS = 30_000;
+    private static final long RETRY_MILLIS = 15_000;
+
+    private static volatile SessionManager instance;
+
+    private final ApiClient apiClient;
+    private final Path file;
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(new ApiClient.DaemonThreadFactory("andromeda-session"));
+
+    private String accessToken;
+    private String refreshToken;
+    private long expiresAt;
+    private String userProfile;
+    private boolean remember;
+    private ScheduledFuture<?> refresh;
+
+    public SessionManager(ApiClient apiClient, Path file) {
+        this.apiClient = apiClient;
+        this.file = file;
+    }
+
+    public static SessionManager getInstance() {
+        SessionManager local = instance;
+        if (local == null) {
+            synchronized (SessionManager.class) {
+                local = instance;
+                if (local == null) {
+                    local = new SessionManager(ApiClient.getInstance(), Path.of(System.getProperty(
+                            "andromeda.session.file", System.getProperty("user.home") + "/.andromeda/session.json")));
+                    instance = local;
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * Picks up a remembered session. Returns true if one was found that can still be used or
+     * refreshed; its user profile is then served from the response cache.
+     */
+    public synchronized boolean restore() {
+        if (!Files.exists(file)) {
+            return false;
+        }
+        try {
+            JSONObject json = new JSONObject(Files.readString(file, StandardCharsets.UTF_8));
+            accessToken = json.optString("accessToken", null);
+            refreshToken = json.optString("refreshToken", null);
+            expiresAt = json.optLong("expiresAt");
+            userProfile = json.optString("user", null);
+            remember = true;
+        } catch (IOException | JSONException e) {
+            LOGGER.log(Level.WARNING, "Ignoring unreadable session file " + file, e);
+            return false;
+        }
+        boolean usable = refreshToken != null || (accessToken != null && expiresAt > System.currentTimeMillis());
+        if (!usable) {
+            clear();
+            return false;
+        }
+        activate();
+        if (userProfile != null) {
+            apiClient.getCache().put(CURRENT_USER_PATH, userProfile, null, CURRENT_USER_TTL.toMillis());
+        }
+        return true;
+    }
+
+    /**
+     * Starts a session from a successful login response, remembering it on disk if asked to.
+     */
+    public synchronized void start(String loginResponse, boolean rememberMe) {
+        remember = rememberMe;
+        userProfile = null;
+        if (!applyTokens(loginResponse)) {
+            LOGGER.warning("Login response carried no access token; requests will be sent without one");
+            return;
+        }
+        if (!remember) {
+            scheduler.execute(this::deleteFile);
+        }
+        activate();
+    }
+
+    /**
+     * Records the current user's profile so a remembered session can show it straight away.
+     */
+    public synchronized void updateProfile(String profile) {
+        if (accessToken == null || profile.equals(userProfile)) {
+            return;
+        }
+        userProfile = profile;
+        scheduler.execute(this::save);
+    }
+
+    public synchronized boolean isSignedIn() {
+        return accessToken != null;
+    }
+
+    /**
+     * Forgets the session in memory and on disk, along with every cached response.
+     */
+    public synchronized void logout() {
+        clear();
+        // Deleted now, not just queued: the login screen opened next would restore the session
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to delete session file " + file, e);
+        }
+        scheduler.execute(apiClient.getCache()::clear);
+    }
+
+    private void activate() {
+        apiClient.setAccessToken(accessToken);
+        scheduleRefresh();
+        if (remember) {
+            scheduler.execute(this::save);
+        }
+    }
+
+    /**
+     * Refreshes when a fifth of the remaining lifetime, but at least 30 s, is left; short-lived
+     * tokens refresh halfway instead of continuously.
+     */
+    private void scheduleRefresh() {
+        if (refresh != null) {
+            refresh.cancel(false);
+            refresh = null;
+        }
+        if (refreshToken == null) {
+            return;
+        }
+        long remaining = expiresAt - System.currentTimeMillis();
+        long margin = Math.min(Math.max(MIN_REFRESH_MARGIN_MILLIS, remaining / 5), remaining / 2);
+        long delay = Math.max(0, remaining - margin);
+        refresh = scheduler.schedule(this::refresh, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void refresh() {
+        String token;
+        synchronized (this) {
+            token = refreshToken;
+        }
+        if (token == null) {
+            return;
+        }
+        HttpResponse<String> response;
+        try {
+            response = apiClient.postJson(REFRESH_ENDPOINT, new JSONObject().put("refreshToken", token))
+                    .get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Token refresh failed, retrying in " + RETRY_MILLIS + " ms", e);
+            retryRefresh(token);
+            return;
+        }
+        synchronized (this) {
+            if (!token.equals(refreshToken)) {
+                // Logged out or signed in again meanwhile
+                return;
+            }
+            if (response.statusCode() == 401 || response.statusCode() == 403) {
+                LOGGER.warning("Session expired; signing in is required again");
+                logout();
+            } else if (response.statusCode() != 200 || !applyTokens(response.body())) {
+                LOGGER.fine("Token refresh returned status " + response.statusCode() + ", retrying");
+                retryRefresh(token);
+            } else {
+                activate();
+            }
+        }
+    }
+
+    private synchronized void retryRefresh(String token) {
+        if (token.equals(refreshToken)) {
+            refresh = scheduler.schedule(this::refresh, RETRY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private boolean applyTokens(String body) {
+        JSONObject json;
+        try {
+            json = new JSONObject(body);
+        } catch (JSONException e) {
+            return false;
+        }
+        String access = json.optString("accessToken", null);
+        if (access == null) {
+            return false;
+        }
+        accessToken = access;
+        refreshToken = json.optString("refreshToken", refreshToken);
+        expiresAt = System.currentTimeMillis() + json.optLong("expiresIn", DEFAULT_EXPIRES_IN_SECONDS) * 1_000;
+        JSONObject user = json.optJSONObject("user");
+        if (user != null) {
+            userProfile = user.toString();
+            apiClient.getCache().put(CURRENT_USER_PATH, userProfile, null, CURRENT_USER_TTL.toMillis());
+        }
+        return true;
+    }
+
+    private void clear() {
+        if (refresh != null) {
+            refresh.cancel(false);
+            refresh = null;
+        }
+        accessToken = null;
+        refreshToken = null;
+        expiresAt = 0;
+        userProfile = null;
+        remember = false;
+        apiClient.setAccessToken(null);
+        scheduler.execute(this::deleteFile);
+    }
+
+    /**
+     * Writes the session to a new owner-only file and moves it into place.
+     */
+    private void save() {
+        JSONObject json;
+        synchronized (this) {
+            if (!remember || accessToken == null) {
+                return;
+            }
+            json = new JSONObject()
+                    .put("accessToken", accessToken)
+                    .put("refreshToken", refreshToken)
+                    .put("expiresAt", expiresAt)
+                    .put("user", userProfile);
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.deleteIfExists(temp);
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                Files.createFile(temp, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            } else {
+                Files.createFile(temp);
+                temp.toFile().setReadable(false, false);
+                temp.toFile().setReadable(true, true);
+                temp.toFile().setWritable(false, false);
+                temp.toFile().setWritable(true, true);
+            }
+            Files.writeString(temp, json.toString(), StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to save session to " + file, e);
+        }
+    }
+
+    private void deleteFile() {
+        synchronized (this) {
+            if (remember) {
+                return;
+            }
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to delete session file " + file, e);
+        }
+    }
+}
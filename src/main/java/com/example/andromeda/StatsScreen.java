@@ -0,0 +1,258 @@
+package com.example.andromeda;
+
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.*;
+import javafx.scene.layout.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Aggregate figures computed by the {@link AnalyticsEngine}: the distribution of the stored
+ * heart-rate series and per-cohort statistics of a numeric patient custom field grouped by a
+ * text field (say, weight by ward). Both panels show partial results while the scan runs.
+ */
+public class StatsScreen implements Screen {
+
+    private static final Logger LOGGER = Logger.getLogger(StatsScreen.class.getName());
+    // Histogram bins between the smallest and largest value of the cohort field, for percentiles
+    private static final int COHORT_BINS = 500;
+    private static final int MAX_COHORTS = 50;
+
+    private final LocalPatientStore store;
+    private final AnalyticsEngine engine;
+
+    private GridPane heartRateStats;
+    private ProgressBar heartRateProgress;
+    private ComboBox<String> groupField;
+    private ComboBox<String> valueField;
+    private GridPane cohortStats;
+    private ProgressBar cohortProgress;
+    private CompletableFuture<AnalyticsEngine.Result> heartRateScan;
+    private CompletableFuture<AnalyticsEngine.Result> cohortScan;
+    // Bumped per scan, so results of a superseded scan are not shown
+    private long heartRateGeneration;
+    private long cohortGeneration;
+    private boolean updatingChoices;
+
+    public StatsScreen() {
+        this(LocalPatientStore.getInstance(), AnalyticsEngine.getInstance());
+    }
+
+    public StatsScreen(LocalPatientStore store, AnalyticsEngine engine) {
+        this.store = store;
+        this.engine = engine;
+    }
+
+    @Override
+    public Node createView() {
+        VBox content = new VBox(20);
+        content.setPadding(new Insets(20));
+
+        Label title = new Label("Stats");
+        title.getStyleClass().add("dashboard-title");
+
+        content.getChildren().addAll(title, createHeartRatePanel(), createCohortPanel());
+
+        ScrollPane scrollPane = new ScrollPane(content);
+        scrollPane.setFitToWidth(true);
+        return scrollPane;
+    }
+
+    @Override
+    public void onShow() {
+        loadHeartRate();
+        refreshFieldChoices();
+        runCohortScan();
+    }
+
+    private VBox createHeartRatePanel() {
+        VBox panel = new VBox(10);
+        panel.getStyleClass().add("chart-container");
+        panel.setPadding(new Insets(15));
+
+        Label title = new Label("Heart Rate Distribution");
+        title.getStyleClass().add("chart-title");
+        heartRateProgress = new ProgressBar(0);
+        heartRateProgress.setMaxWidth(Double.MAX_VALUE);
+        heartRateStats = new GridPane();
+        heartRateStats.setHgap(30);
+        heartRateStats.setVgap(5);
+
+        panel.getChildren().addAll(title, heartRateProgress, heartRateStats);
+        return panel;
+    }
+
+    private VBox createCohortPanel() {
+        VBox panel = new VBox(10);
+        panel.getStyleClass().add("chart-container");
+        panel.setPadding(new Insets(15));
+
+        Label title = new Label("Patient Cohorts");
+        title.getStyleClass().add("chart-title");
+
+        groupField = new ComboBox<>();
+        groupField.setPromptText("Group by");
+        valueField = new ComboBox<>();
+        valueField.setPromptText("Measure");
+        groupField.setOnAction(e -> runCohortScan());
+        valueField.setOnAction(e -> runCohortScan());
+        HBox controls = new HBox(10, new Label("Group by"), groupField, new Label("Measure"), valueField);
+        controls.setAlignment(Pos.CENTER_LEFT);
+
+        cohortProgress = new ProgressBar(0);
+        cohortProgress.setMaxWidth(Double.MAX_VALUE);
+        cohortStats = new GridPane();
+        cohortStats.setHgap(30);
+        cohortStats.setVgap(5);
+
+        panel.getChildren().addAll(title, controls, cohortProgress, cohortStats);
+        return panel;
+    }
+
+    private void loadHeartRate() {
+        if (heartRateScan != null) {
+            heartRateScan.cancel(false);
+        }
+        BackgroundTasks.submit(progress -> {
+            String body = ApiClient.getInstance().getCached(MainHome.HEART_RATE_PATH, MainHome.HEART_RATE_TTL).get();
+            try (JsonStreamReader reader = new JsonStreamReader(new StringReader(body))) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals("values")) {
+                        return reader.nextDoubleArray();
+                    }
+                    reader.skipValue();
+                }
+            }
+            return new double[0];
+        }, samples -> {
+            long generation = ++heartRateGeneration;
+            Consumer<AnalyticsEngine.Result> show = result -> Platform.runLater(() -> {
+                if (generation == heartRateGeneration) {
+                    showHeartRate(result);
+                }
+            });
+            heartRateScan = engine.summarizeHeartRate(samples, samples.length, show);
+            heartRateScan.whenComplete((result, error) -> {
+                if (result != null) {
+                    show.accept(result);
+                } else if (!(error instanceof CancellationException)) {
+                    LOGGER.log(Level.WARNING, "Heart rate aggregation failed", error);
+                }
+            });
+        }, e -> LOGGER.log(Level.WARNING, "Failed to load heart rate history", e));
+    }
+
+    private void showHeartRate(AnalyticsEngine.Result result) {
+        heartRateProgress.setProgress(result.getProgress());
+        heartRateStats.getChildren().clear();
+        AnalyticsEngine.Summary summary = result.get("all");
+        if (summary == null) {
+            heartRateStats.add(new Label("No heart rate data"), 0, 0);
+            return;
+        }
+        String[] names = {"Samples", "Average", "Median", "90th percentile", "99th percentile", "Min", "Max"};
+        String[] values = {
+                String.valueOf(summary.getCount()),
+                format(summary.getMean()) + " bpm",
+                format(summary.getPercentile(50)) + " bpm",
+                format(summary.getPercentile(90)) + " bpm",
+                format(summary.getPercentile(99)) + " bpm",
+                format(summary.getMin()) + " bpm",
+                format(summary.getMax()) + " bpm"};
+        for (int i = 0; i < names.length; i++) {
+            heartRateStats.addRow(i, statName(names[i]), new Label(values[i]));
+        }
+    }
+
+    private void refreshFieldChoices() {
+        updatingChoices = true;
+        try {
+            updateChoices(groupField, store.getFieldNames(CustomFieldTable.Type.STRING));
+            updateChoices(valueField, store.getFieldNames(CustomFieldTable.Type.NUMBER));
+        } finally {
+            updatingChoices = false;
+        }
+    }
+
+    private static void updateChoices(ComboBox<String> box, List<String> fields) {
+        if (box.getItems().equals(fields)) {
+            return;
+        }
+        String selected = box.getValue();
+        box.getItems().setAll(fields);
+        if (selected != null && fields.contains(selected)) {
+            box.setValue(selected);
+        } else if (!fields.isEmpty()) {
+            box.setValue(fields.get(0));
+        }
+    }
+
+    private void runCohortScan() {
+        if (updatingChoices) {
+            return;
+        }
+        if (cohortScan != null) {
+            cohortScan.cancel(false);
+        }
+        long generation = ++cohortGeneration;
+        cohortStats.getChildren().clear();
+        String group = groupField.getValue();
+        String value = valueField.getValue();
+        AnalyticsEngine.Columns columns = group == null || value == null ? null : store.cohorts(group, value);
+        if (columns == null) {
+            cohortProgress.setProgress(0);
+            cohortStats.add(new Label("Add text and numeric custom fields to patients to compare cohorts"), 0, 0);
+            return;
+        }
+        Consumer<AnalyticsEngine.Result> show = result -> Platform.runLater(() -> {
+            if (generation == cohortGeneration) {
+                showCohorts(result);
+            }
+        });
+        cohortScan = engine.groupBy(columns, COHORT_BINS, show);
+        cohortScan.whenComplete((result, error) -> {
+            if (result != null) {
+                show.accept(result);
+            } else if (!(error instanceof CancellationException)) {
+                LOGGER.log(Level.WARNING, "Cohort aggregation failed", error);
+            }
+        });
+    }
+
+    private void showCohorts(AnalyticsEngine.Result result) {
+        cohortProgress.setProgress(result.getProgress());
+        cohortStats.getChildren().clear();
+        cohortStats.addRow(0, statName(groupField.getValue()), statName("Patients"), statName("Average"),
+                statName("Median"), statName("90th percentile"));
+        List<Map.Entry<String, AnalyticsEngine.Summary>> cohorts = new ArrayList<>(result.getGroups().entrySet());
+        cohorts.sort((a, b) -> Long.compare(b.getValue().getCount(), a.getValue().getCount()));
+        for (int i = 0; i < cohorts.size() && i < MAX_COHORTS; i++) {
+            AnalyticsEngine.Summary summary = cohorts.get(i).getValue();
+            cohortStats.addRow(i + 1, new Label(cohorts.get(i).getKey()), new Label(String.valueOf(summary.getCount())),
+                    new Label(format(summary.getMean())), new Label(format(summary.getPercentile(50))),
+                    new Label(format(summary.getPercentile(90))));
+        }
+    }
+
+    private static Label statName(String text) {
+        Label label = new Label(text);
+        label.getStyleClass().add("metric-title");
+        return label;
+    }
+
+    private static String format(double value) {
+        return Double.isNaN(value) ? "-" : String.format("%.1f", value);
+    }
+}
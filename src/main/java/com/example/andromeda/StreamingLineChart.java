@@ -0,0 +1,287 @@
+package com.example.andromeda;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Line chart for long time series such as days of 1 Hz vitals.
+ *
+ * Samples live in a {@link DoubleRingBuffer} and are reduced to one min/max pair per pixel
+ * column before drawing on a {@link Canvas}, so no scene-graph node or {@code XYChart.Data}
+ * object exists per sample. {@link #append} may be called from any thread; the chart only
+ * marks itself dirty and redraws at most once per pulse, and its timer runs only until that
+ * redraw, so an idle chart does not keep the FX thread pulsing. Scroll to zoom, drag to pan and
+ * double-click to return to following the latest samples.
+ */
+public class StreamingLineChart extends Region {
+
+    private static final double PADDING = 8;
+    private static final double LABEL_WIDTH = 32;
+    private static final Color GRID_COLOR = Color.web("#ecf0f1");
+    private static final Color LABEL_COLOR = Color.web("#95a5a6");
+    private static final Font LABEL_FONT = Font.font(10);
+
+    private final DoubleRingBuffer buffer;
+    private final Canvas canvas = new Canvas();
+    private final AnimationTimer timer;
+    private final AtomicBoolean redrawScheduled = new AtomicBoolean();
+
+    private Color lineColor = Color.web("#3498db");
+    private String emptyText = "No data";
+
+    private double[] pointTimes = new double[0];
+    private double[] pointValues = new double[0];
+
+    // Visible time window; while following, it tracks the newest sample
+    private boolean following = true;
+    private double windowSeconds;
+    private double windowEnd;
+    private volatile boolean dirty = true;
+
+    private double dragStartX;
+    private double dragStartEnd;
+
+    public StreamingLineChart(int capacity, double windowSeconds) {
+        this.buffer = new DoubleRingBuffer(capacity);
+        this.windowSeconds = windowSeconds;
+        getStyleClass().add("streaming-chart");
+        getChildren().add(canvas);
+        setMinHeight(120);
+        setPrefSize(400, 240);
+
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                // One frame per change: stop first, so a sample arriving from here on starts it again
+                stop();
+                redrawScheduled.set(false);
+                if (dirty) {
+                    dirty = false;
+                    redraw();
+                }
+            }
+        };
+        // Only spend pulses on the chart while it is part of a scene
+        sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene != null) {
+                markDirty();
+            } else {
+                timer.stop();
+                redrawScheduled.set(false);
+            }
+        });
+
+        addEventHandler(ScrollEvent.SCROLL, this::onScroll);
+        addEventHandler(MouseEvent.MOUSE_PRESSED, e -> {
+            dragStartX = e.getX();
+            dragStartEnd = windowEnd;
+        });
+        addEventHandler(MouseEvent.MOUSE_DRAGGED, this::onDrag);
+        addEventHandler(MouseEvent.MOUSE_CLICKED, e -> {
+            if (e.getButton() == MouseButton.PRIMARY && e.getClickCount() == 2) {
+                following = true;
+                markDirty();
+            }
+        });
+    }
+
+    /**
+     * Adds one sample. Times are in seconds and must not decrease.
+     */
+    public void append(double time, double value) {
+        synchronized (buffer) {
+            buffer.add(time, value);
+        }
+        markDirty();
+    }
+
+    /**
+     * Adds {@code count} samples from parallel arrays in one step. Unlike {@link #append}, the
+     * samples may be older than those already shown, e.g. history that arrives after the live
+     * feed has started; they are merged into place.
+     */
+    public void appendAll(double[] times, double[] values, int count) {
+        synchronized (buffer) {
+            buffer.addAll(times, values, count);
+        }
+        markDirty();
+    }
+
+    /**
+     * Schedules a redraw on the next pulse; callable from any thread.
+     */
+    private void markDirty() {
+        dirty = true;
+        if (redrawScheduled.compareAndSet(false, true)) {
+            BackgroundTasks.runOnFxThread(() -> {
+                if (getScene() != null) {
+                    timer.start();
+                } else {
+                    // Redrawn once the chart is added to a scene
+                    redrawScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        synchronized (buffer) {
+            buffer.clear();
+        }
+        following = true;
+        markDirty();
+    }
+
+    public int getSampleCount() {
+        synchronized (buffer) {
+            return buffer.size();
+        }
+    }
+
+    public void setLineColor(Color lineColor) {
+        this.lineColor = lineColor;
+        markDirty();
+    }
+
+    public void setEmptyText(String emptyText) {
+        this.emptyText = emptyText;
+        markDirty();
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double width = snapSizeX(getWidth());
+        double height = snapSizeY(getHeight());
+        if (canvas.getWidth() != width || canvas.getHeight() != height) {
+            canvas.setWidth(width);
+            canvas.setHeight(height);
+            markDirty();
+        }
+    }
+
+    private void onScroll(ScrollEvent e) {
+        double factor = e.getDeltaY() > 0 ? 0.8 : 1.25;
+        double plotWidth = plotWidth();
+        if (plotWidth <= 0) {
+            return;
+        }
+        // Keep the time under the cursor fixed while zooming
+        double start = windowEnd - windowSeconds;
+        double anchor = start + (e.getX() - LABEL_WIDTH) / plotWidth * windowSeconds;
+        double newWindow = Math.max(10, windowSeconds * factor);
+        windowEnd = anchor + (windowEnd - anchor) * newWindow / windowSeconds;
+        windowSeconds = newWindow;
+        following = false;
+        markDirty();
+        e.consume();
+    }
+
+    private void onDrag(MouseEvent e) {
+        double plotWidth = plotWidth();
+        if (plotWidth <= 0) {
+            return;
+        }
+        windowEnd = dragStartEnd - (e.getX() - dragStartX) / plotWidth * windowSeconds;
+        following = false;
+        markDirty();
+    }
+
+    private double plotWidth() {
+        return canvas.getWidth() - LABEL_WIDTH - PADDING;
+    }
+
+    private void redraw() {
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        g.clearRect(0, 0, width, height);
+
+        int columns = (int) Math.max(1, plotWidth());
+        if (pointTimes.length < 2 * columns) {
+            pointTimes = new double[2 * columns];
+            pointValues = new double[2 * columns];
+        }
+
+        int count;
+        double start;
+        double end;
+        synchronized (buffer) {
+            if (buffer.size() == 0) {
+                count = 0;
+                start = 0;
+                end = 0;
+            } else {
+                if (following) {
+                    windowEnd = buffer.timeAt(buffer.size() - 1);
+                }
+                end = windowEnd;
+                start = end - windowSeconds;
+                int from = Math.max(0, buffer.lowerBound(start) - 1);
+                int to = Math.min(buffer.size(), buffer.lowerBound(end) + 1);
+                count = Downsampler.minMax(buffer, from, to, start, end, columns, pointTimes, pointValues);
+            }
+        }
+
+        g.setFont(LABEL_FONT);
+        if (count == 0) {
+            g.setFill(LABEL_COLOR);
+            g.fillText(emptyText, LABEL_WIDTH, height / 2);
+            return;
+        }
+
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, pointValues[i]);
+            max = Math.max(max, pointValues[i]);
+        }
+        if (max - min < 1) {
+            max += 0.5;
+            min -= 0.5;
+        }
+        double plotWidth = plotWidth();
+        double plotHeight = height - 2 * PADDING;
+        double xScale = plotWidth / (end - start);
+        double yScale = plotHeight / (max - min);
+
+        // Grid and value labels
+        g.setStroke(GRID_COLOR);
+        g.setLineWidth(1);
+        g.setFill(LABEL_COLOR);
+        for (int line = 0; line <= 4; line++) {
+            double value = min + (max - min) * line / 4;
+            double y = PADDING + plotHeight - (value - min) * yScale;
+            g.strokeLine(LABEL_WIDTH, y, width - PADDING, y);
+            g.fillText(String.valueOf(Math.round(value)), 0, y + 4);
+        }
+
+        // Samples just outside the window are drawn too, so the line reaches the edges; clip them
+        g.save();
+        g.beginPath();
+        g.rect(LABEL_WIDTH, 0, plotWidth, height);
+        g.clip();
+        g.setStroke(lineColor);
+        g.setLineWidth(2);
+        g.beginPath();
+        for (int i = 0; i < count; i++) {
+            double x = LABEL_WIDTH + (pointTimes[i] - start) * xScale;
+            double y = PADDING + plotHeight - (pointValues[i] - min) * yScale;
+            if (i == 0) {
+                g.moveTo(x, y);
+            } else {
+                g.lineTo(x, y);
+            }
+        }
+        g.stroke();
+        g.restore();
+    }
+}
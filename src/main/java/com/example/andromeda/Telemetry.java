@@ -0,0 +1,217 @@
+package com.example.andromeda;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Client-side performance telemetry: latency histograms per backend endpoint (kept by
+ * {@link ApiClient}), FX thread stalls, GC pauses and screen navigation times.
+ *
+ * Navigations are also emitted as Flight Recorder events ({@link NavigationEvent}). A snapshot
+ * can be exported as JSON with {@link #exportTo(Path)}; when {@code andromeda.telemetry.file}
+ * or {@code andromeda.telemetry.endpoint} (a backend path) is set, one is written every
+ * {@code andromeda.telemetry.exportIntervalSec} seconds and again on {@link #stop()}.
+ * {@code andromeda.telemetry.stallMs} sets the stall threshold (default 50 ms).
+ */
+public final class Telemetry {
+
+    private static final Logger LOGGER = Logger.getLogger(Telemetry.class.getName());
+
+    private static final Telemetry INSTANCE = new Telemetry();
+
+    private final FxStallDetector stallDetector =
+            new FxStallDetector(Long.getLong("andromeda.telemetry.stallMs", 50));
+    private final Map<String, LatencyHistogram> gcPauses = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> navigations = new ConcurrentHashMap<>();
+    private volatile JSONObject lastLogin;
+    private final long startedAt = System.currentTimeMillis();
+
+    private final String exportFile = System.getProperty("andromeda.telemetry.file");
+    private final String exportEndpoint = System.getProperty("andromeda.telemetry.endpoint");
+
+    private ScheduledExecutorService exporter;
+    private NotificationListener gcListener;
+    private boolean started;
+
+    private Telemetry() {
+    }
+
+    public static Telemetry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts the stall detector, GC listener and periodic export. Call on the FX thread once
+     * the toolkit is running; later calls do nothing.
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        stallDetector.start();
+        installGcListener();
+        if (exportFile != null || exportEndpoint != null) {
+            long interval = Long.getLong("andromeda.telemetry.exportIntervalSec", 60);
+            exporter = Executors.newSingleThreadScheduledExecutor(
+                    new ApiClient.DaemonThreadFactory("andromeda-telemetry"));
+            exporter.scheduleWithFixedDelay(this::export, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Stops background collection and writes a final export if one is configured.
+     */
+    public synchronized void stop() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        stallDetector.stop();
+        removeGcListener();
+        if (exporter != null) {
+            exporter.shutdownNow();
+            exporter = null;
+        }
+        export();
+    }
+
+    public void recordNavigation(String screen, boolean warm, long nanos) {
+        navigations.computeIfAbsent(screen + (warm ? ".warm" : ".cold"), k -> new LatencyHistogram())
+                .recordNanos(nanos);
+    }
+
+    /**
+     * Keeps the phase breakdown of the latest login (see {@link DashboardPrefetch#toJson()}).
+     */
+    public void recordLogin(JSONObject breakdown) {
+        lastLogin = breakdown;
+    }
+
+    public FxStallDetector getStallDetector() {
+        return stallDetector;
+    }
+
+    public JSONObject snapshot() {
+        JSONObject endpoints = new JSONObject();
+        for (ApiClient.EndpointStats stats : ApiClient.getInstance().getStats().values()) {
+            endpoints.put(stats.getEndpoint(), stats.getLatency().toJson()
+                    .put("calls", stats.getCalls())
+                    .put("failures", stats.getFailures())
+                    .put("saved", stats.getSaved()));
+        }
+        JSONArray recentStalls = new JSONArray();
+        for (FxStallDetector.Stall stall : stallDetector.getRecentStalls()) {
+            JSONArray stack = new JSONArray();
+            for (StackTraceElement frame : stall.getStack()) {
+                stack.put(frame.toString());
+            }
+            recentStalls.put(new JSONObject()
+                    .put("timestamp", stall.getTimestamp())
+                    .put("ms", stall.getMillis())
+                    .put("stack", stack));
+        }
+        return new JSONObject()
+                .put("startedAt", startedAt)
+                .put("timestamp", System.currentTimeMillis())
+                .put("endpoints", endpoints)
+                .put("fxStalls", stallDetector.getStalls().toJson().put("recent", recentStalls))
+                .put("gcPauses", toJson(gcPauses))
+                .put("navigations", toJson(navigations))
+                .put("login", lastLogin)
+                .put("responseCache", ApiClient.getInstance().getCache().toString());
+    }
+
+    /**
+     * Writes the current snapshot to {@code file}, replacing it atomically.
+     */
+    public void exportTo(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, "telemetry", ".tmp");
+        Files.writeString(temp, snapshot().toString(2), StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void export() {
+        try {
+            if (exportFile != null) {
+                exportTo(Path.of(exportFile));
+            }
+            if (exportEndpoint != null) {
+                ApiClient.getInstance().postJson(exportEndpoint, snapshot())
+                        .whenComplete((response, error) -> {
+                            if (error != null) {
+                                LOGGER.log(Level.FINE, "Failed to post telemetry", error);
+                            }
+                        });
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to export telemetry", e);
+        }
+    }
+
+    private void installGcListener() {
+        gcListener = this::onGcNotification;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (bean instanceof NotificationEmitter) {
+                ((NotificationEmitter) bean).addNotificationListener(gcListener, null, null);
+            }
+        }
+    }
+
+    private void removeGcListener() {
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (bean instanceof NotificationEmitter) {
+                try {
+                    ((NotificationEmitter) bean).removeNotificationListener(gcListener);
+                } catch (ListenerNotFoundException e) {
+                    // Never registered on this collector
+                }
+            }
+        }
+    }
+
+    private void onGcNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        // Concurrent cycles (e.g. "ZGC Cycles") run alongside the application and are not pauses
+        if (info.getGcName().endsWith("Cycles")) {
+            return;
+        }
+        gcPauses.computeIfAbsent(info.getGcName(), k -> new LatencyHistogram())
+                .recordMicros(info.getGcInfo().getDuration() * 1_000);
+    }
+
+    private static JSONObject toJson(Map<String, LatencyHistogram> histograms) {
+        JSONObject json = new JSONObject();
+        histograms.forEach((name, histogram) -> json.put(name, histogram.toJson()));
+        return json;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.andromeda;
+
+import java.net.URL;
+import java.util.logging.Logger;
+
+import javafx.scene.Scene;
+
+/**
+ * The application stylesheet, registered once per scene.
+ *
+ * The build compiles {@code styles.css} to a binary {@code styles.bss} (see the
+ * {@code compile-styles} execution in the pom), which loads without parsing; running from
+ * sources that skipped that step falls back to the text file. Colors are looked up from
+ * {@code -primary-color} and {@code -secondary-color} on {@code .root}, and nodes are styled
+ * through style classes only: an inline {@code setStyle} is parsed for every node it is set on.
+ */
+public final class Theme {
+
+    private static final Logger LOGGER = Logger.getLogger(Theme.class.getName());
+    private static final String STYLESHEET = "/styles";
+
+    private static volatile String stylesheetUrl;
+
+    private Theme() {
+    }
+
+    /**
+     * Adds the stylesheet to {@code scene} unless it is already there.
+     */
+    public static void apply(Scene scene) {
+        String url = getStylesheetUrl();
+        if (url != null && !scene.getStylesheets().contains(url)) {
+            scene.getStylesheets().add(url);
+        }
+    }
+
+    /**
+     * The URL of the compiled stylesheet, or of the text one if it was not compiled; null if
+     * neither is on the classpath.
+     */
+    public static String getStylesheetUrl() {
+        String url = stylesheetUrl;
+        if (url == null) {
+            URL resource = Theme.class.getResource(STYLESHEET + ".bss");
+            if (resource == null) {
+                LOGGER.fine("No compiled stylesheet, parsing " + STYLESHEET + ".css");
+                resource = Theme.class.getResource(STYLESHEET + ".css");
+            }
+            if (resource == null) {
+                LOGGER.warning("Stylesheet not found");
+                return null;
+            }
+            url = resource.toExternalForm();
+            stylesheetUrl = url;
+        }
+        return url;
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.andromeda;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.scene.control.Label;
+
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Live vitals pushed by the backend as Server-Sent Events on {@code GET /api/vitals/stream}.
+ *
+ * Each event is {@code data: {"metric": "heartRate", "value": "85", "time": 1700000000}}. A
+ * reader thread keeps only the newest reading per metric; bound labels are refreshed from an
+ * {@link AnimationTimer} that is started by a new reading and stops after one flush, so a burst
+ * of readings costs at most one label update per metric per frame and a quiet feed requests no
+ * pulses. When the UI falls behind, intermediate readings are dropped rather than queued, and
+ * the reader itself only pulls from the socket as fast as it can parse. Sample listeners (for
+ * example the heart-rate chart) still see every reading, on the reader thread.
+ */
+public class VitalsFeed {
+
+    private static final Logger LOGGER = Logger.getLogger(VitalsFeed.class.getName());
+    static final String STREAM_PATH = "/api/vitals/stream";
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final ApiClient apiClient;
+    private final Map<String, String> latest = new ConcurrentHashMap<>();
+    private final Map<String, Label> labels = new HashMap<>();
+    private final List<SampleListener> sampleListeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+
+    private final AnimationTimer flusher = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            stop();
+            flush();
+        }
+    };
+
+    private volatile boolean running;
+    private volatile Stream<String> lines;
+    private Thread reader;
+
+    /**
+     * Receives every reading of a metric as a number, on the reader thread.
+     */
+    @FunctionalInterface
+    public interface SampleListener {
+        void onSample(String metric, double time, double value);
+    }
+
+    public VitalsFeed(ApiClient apiClient) {
+        this.apiClient = apiClient;
+    }
+
+    /**
+     * Shows the newest value of {@code metric} in {@code label}. FX thread only.
+     */
+    public void bind(String metric, Label label) {
+        labels.put(metric, label);
+    }
+
+    public void addSampleListener(SampleListener listener) {
+        sampleListeners.add(listener);
+    }
+
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        reader = new Thread(this::readLoop, "andromeda-vitals");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    public void stop() {
+        running = false;
+        flusher.stop();
+        pending.set(false);
+        Stream<String> current = lines;
+        if (current != null) {
+            current.close();
+        }
+        if (reader != null) {
+            reader.interrupt();
+        }
+    }
+
+    public long getReceivedCount() {
+        return received.sum();
+    }
+
+    /**
+     * Label updates actually applied; the gap to {@link #getReceivedCount()} is what coalescing saved.
+     */
+    public long getAppliedCount() {
+        return applied.sum();
+    }
+
+    private void readLoop() {
+        long backoff = 1_000;
+        while (running) {
+            try {
+                HttpResponse<Stream<String>> response = apiClient.send(STREAM_PATH,
+                        apiClient.newRequest(STREAM_PATH).header("Accept", "text/event-stream").GET().build(),
+                        HttpResponse.BodyHandlers.ofLines()).get();
+                if (response.statusCode() != 200) {
+                    response.body().close();
+                    throw new IllegalStateException("Vitals stream returned status " + response.statusCode());
+                }
+                lines = response.body();
+                backoff = 1_000;
+                try (Stream<String> stream = lines) {
+                    stream.forEach(this::onLine);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                LOGGER.log(Level.FINE, "Vitals stream disconnected, retrying in " + backoff + " ms", e);
+            }
+            if (!running) {
+                return;
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    private void onLine(String line) {
+        if (!running) {
+            throw new IllegalStateException("Vitals feed stopped");
+        }
+        // Only single-line data fields are used; comments, ids and keep-alives are ignored
+        if (!line.startsWith("data:")) {
+            return;
+        }
+        try {
+            JSONObject event = new JSONObject(line.substring(5).trim());
+            String metric = event.getString("metric");
+            String value = event.get("value").toString();
+            received.increment();
+            latest.put(metric, value);
+            if (pending.compareAndSet(false, true)) {
+                Platform.runLater(flusher::start);
+            }
+            if (!sampleListeners.isEmpty()) {
+                double time = event.optDouble("time", System.currentTimeMillis() / 1000.0);
+                double number = parseNumber(value);
+                if (!Double.isNaN(number)) {
+                    for (SampleListener listener : sampleListeners) {
+                        listener.onSample(metric, time, number);
+                    }
+                }
+            }
+        } catch (JSONException e) {
+            LOGGER.log(Level.FINE, "Ignoring malformed vitals event: " + line, e);
+        }
+    }
+
+    private void flush() {
+        if (!pending.getAndSet(false)) {
+            return;
+        }
+        for (Map.Entry<String, Label> binding : labels.entrySet()) {
+            String value = latest.get(binding.getKey());
+            Label label = binding.getValue();
+            if (value != null && !value.equals(label.getText())) {
+                label.setText(value);
+                applied.increment();
+            }
+        }
+    }
+
+    private static double parseNumber(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -3,6 +3,9 @@ module com.example.andromeda {
     requires javafx.fxml;
     requires java.logging;
     requires java.net.http;
+    requires java.management;
+    requires jdk.management;
+    requires jdk.jfr;
     requires org.json;
 
 
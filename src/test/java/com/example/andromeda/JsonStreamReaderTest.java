@@ -0,0 +1,227 @@
+package com.example.andromeda;
+
+import java.io.StringReader;
+
+import org.json.JSONException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonStreamReaderTest {
+
+    // JsonStreamReader reads its input in chunks of this many characters
+    private static final int BUFFER_SIZE = 8192;
+
+    private static JsonStreamReader reader(String json) {
+        return new JsonStreamReader(new StringReader(json));
+    }
+
+    private static String readSingleString(String json) {
+        JsonStreamReader reader = reader(json);
+        reader.beginArray();
+        String value = reader.nextString();
+        reader.endArray();
+        assertEquals(JsonStreamReader.Token.END_DOCUMENT, reader.peek());
+        return value;
+    }
+
+    @Test
+    void readsEscapes() {
+        assertEquals("a\"b\\c/d\b\f\n\r\te\u00e9\u20ac",
+                readSingleString("[\"a\\\"b\\\\c\\/d\\b\\f\\n\\r\\te\\u00e9\\u20AC\"]"));
+    }
+
+    @Test
+    void readsUnicodeEscapeSplitAcrossBufferBoundary() {
+        // Start the escape at each position from a few characters before the boundary to just after it
+        for (int start = BUFFER_SIZE - 6; start <= BUFFER_SIZE + 1; start++) {
+            String padding = "x".repeat(start - 2);
+            String json = "[\"" + padding + "\\u00e9y\"]";
+            assertEquals(padding + "\u00e9y", readSingleString(json), "escape at " + start);
+        }
+    }
+
+    @Test
+    void readsEscapedQuoteSplitAcrossBufferBoundary() {
+        for (int start = BUFFER_SIZE - 2; start <= BUFFER_SIZE; start++) {
+            String padding = "x".repeat(start - 2);
+            assertEquals(padding + "\"", readSingleString("[\"" + padding + "\\\"\"]"), "escape at " + start);
+        }
+    }
+
+    @Test
+    void readsStringLongerThanBuffer() {
+        String text = "abc".repeat(BUFFER_SIZE);
+        assertEquals(text, readSingleString("[\"" + text + "\"]"));
+    }
+
+    @Test
+    void readsNestedObjectsAndArrays() {
+        JsonStreamReader reader = reader("{\"a\": {\"b\": [1, [2, 3], {\"c\": true}]}, \"d\": null, \"e\": []}");
+        reader.beginObject();
+        assertEquals("a", reader.nextName());
+        reader.beginObject();
+        assertEquals("b", reader.nextName());
+        reader.beginArray();
+        assertEquals(1, reader.nextInt());
+        reader.beginArray();
+        assertEquals(2, reader.nextInt());
+        assertEquals(3, reader.nextInt());
+        assertFalse(reader.hasNext());
+        reader.endArray();
+        reader.beginObject();
+        assertEquals("c", reader.nextName());
+        assertTrue(reader.nextBoolean());
+        reader.endObject();
+        reader.endArray();
+        reader.endObject();
+        assertEquals("d", reader.nextName());
+        reader.nextNull();
+        assertEquals("e", reader.nextName());
+        reader.beginArray();
+        assertFalse(reader.hasNext());
+        reader.endArray();
+        reader.endObject();
+        assertEquals(JsonStreamReader.Token.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    void readsDeeplyNestedArrays() {
+        int depth = 200;
+        JsonStreamReader reader = reader("[".repeat(depth) + "7" + "]".repeat(depth));
+        for (int i = 0; i < depth; i++) {
+            reader.beginArray();
+        }
+        assertEquals(7, reader.nextInt());
+        for (int i = 0; i < depth; i++) {
+            reader.endArray();
+        }
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    void skipsValuesOfEveryKind() {
+        JsonStreamReader reader = reader("{\"object\": {\"x\": [1, {\"y\": \"}]\"}], \"z\": {}}, \"array\": [[], [null]],"
+                + " \"string\": \"s\\\"\", \"number\": -1.5e3, \"literal\": false, \"kept\": 42}");
+        reader.beginObject();
+        for (String name : new String[]{"object", "array", "string", "number", "literal"}) {
+            assertEquals(name, reader.nextName());
+            reader.skipValue();
+        }
+        assertEquals("kept", reader.nextName());
+        assertEquals(42, reader.nextInt());
+        reader.endObject();
+        assertEquals(JsonStreamReader.Token.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    void skipValueAtEndOfDocumentFails() {
+        JsonStreamReader reader = reader("1");
+        reader.skipValue();
+        assertThrows(JSONException.class, reader::skipValue);
+    }
+
+    @Test
+    void readsNumbers() {
+        JsonStreamReader reader = reader("[0, -12, 9007199254740993, 1e3, 2.5, -0.25E-2, \"17\", 3.0]");
+        reader.beginArray();
+        assertEquals(0, reader.nextInt());
+        assertEquals(-12, reader.nextInt());
+        assertEquals(9007199254740993L, reader.nextLong());
+        assertEquals(1000L, reader.nextLong());
+        assertEquals(2.5, reader.nextDouble());
+        assertEquals(-0.0025, reader.nextDouble());
+        assertEquals(17, reader.nextInt());
+        assertEquals("3.0", reader.nextString());
+        reader.endArray();
+    }
+
+    @Test
+    void rejectsNumbersThatDoNotFit() {
+        JsonStreamReader reader = reader("[2147483648, 1.5, 1.2.3]");
+        reader.beginArray();
+        assertThrows(JSONException.class, reader::nextInt);
+        assertThrows(JSONException.class, reader::nextLong);
+        assertThrows(JSONException.class, reader::nextDouble);
+    }
+
+    @Test
+    void readsDoubleArrayWithNullsAndText() {
+        JsonStreamReader reader = reader("[1, null, \"2.5\", \"n/a\", -3]");
+        double[] values = reader.nextDoubleArray();
+        assertArrayEquals(new double[]{1, Double.NaN, 2.5, Double.NaN, -3}, values);
+    }
+
+    @Test
+    void readsDoubleArrayLargerThanItsInitialCapacity() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            json.append(i == 0 ? "" : ",").append(i);
+        }
+        double[] values = reader(json.append(']').toString()).nextDoubleArray();
+        assertEquals(1000, values.length);
+        assertEquals(999, values[999]);
+    }
+
+    @Test
+    void readsLiteralsAsStrings() {
+        JsonStreamReader reader = reader("[true, false, null]");
+        reader.beginArray();
+        assertEquals("true", reader.nextString());
+        assertFalse(reader.nextBoolean());
+        assertNull(reader.nextString());
+        reader.endArray();
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        String[] malformed = {
+                "{\"a\" 1}",
+                "{\"a\": 1 \"b\": 2}",
+                "{a: 1}",
+                "[1 2]",
+                "[1,]",
+                "[\"unterminated]",
+                "[\"bad \\x escape\"]",
+                "[\"bad \\u12G4 escape\"]",
+                "[tru]",
+                "[1",
+                "",
+        };
+        for (String json : malformed) {
+            assertThrows(JSONException.class, () -> reader(json).skipValue(), json);
+        }
+    }
+
+    @Test
+    void rejectsDataAfterDocument() {
+        JsonStreamReader reader = reader("{\"a\": 1}}");
+        reader.skipValue();
+        assertThrows(JSONException.class, reader::peek);
+    }
+
+    @Test
+    void rejectsUnexpectedToken() {
+        JsonStreamReader reader = reader("{\"a\": [1]}");
+        assertThrows(JSONException.class, reader::beginArray);
+        reader.beginObject();
+        assertThrows(JSONException.class, reader::nextString);
+        assertEquals("a", reader.nextName());
+        assertThrows(JSONException.class, reader::nextInt);
+    }
+
+    @Test
+    void reportsPositionOfSyntaxError() {
+        String json = "[\"" + "x".repeat(BUFFER_SIZE) + "\", ?]";
+        JsonStreamReader reader = reader(json);
+        reader.beginArray();
+        reader.nextString();
+        JSONException error = assertThrows(JSONException.class, reader::nextString);
+        assertTrue(error.getMessage().endsWith("at character " + (json.indexOf('?') + 1)), error.getMessage());
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.andromeda;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MedicalRecordIndexTest {
+
+    // Dead documents MedicalRecordIndex tolerates before it compacts its postings
+    private static final int MIN_DEAD_TO_COMPACT = 1_024;
+    private static final int SNIPPET_CHARS = 120;
+
+    private static MedicalRecord record(String id, String patientId, String title, String text) {
+        return new MedicalRecord(id, patientId, "note", title, text, 0, 1, false);
+    }
+
+    private static List<String> ids(List<MedicalRecordIndex.Hit> hits) {
+        List<String> ids = new ArrayList<>();
+        for (MedicalRecordIndex.Hit hit : hits) {
+            ids.add(hit.getRecordId());
+        }
+        return ids;
+    }
+
+    @Test
+    void ranksMultiTermQueryByBm25() {
+        MedicalRecordIndex index = new MedicalRecordIndex();
+        index.put(record("both", "p1", "Visit", "Persistent cough and a new rash on the arm"));
+        index.put(record("rash", "p1", "Visit", "Rash on the arm"));
+        index.put(record("cough-1", "p1", "Visit", "Dry cough"));
+        index.put(record("cough-2", "p2", "Visit", "Cough at night"));
+        index.put(record("cough-3", "p3", "Visit", "Cough after exercise"));
+        index.put(record("other", "p3", "Visit", "Knee surgery follow-up"));
+
+        List<MedicalRecordIndex.Hit> hits = index.search("cough rash", null, 10);
+
+        // Both terms beat either one; the rarer term outweighs the common one
+        assertEquals(List.of("both", "rash"), ids(hits).subList(0, 2));
+        assertEquals(5, hits.size());
+        assertFalse(ids(hits).contains("other"));
+        for (int i = 1; i < hits.size(); i++) {
+            assertTrue(hits.get(i - 1).getScore() >= hits.get(i).getScore());
+        }
+        assertEquals(List.of("both", "rash"), ids(index.search("cough rash", null, 2)));
+    }
+
+    @Test
+    void ranksRepeatedAndTitleTermsHigher() {
+        MedicalRecordIndex index = new MedicalRecordIndex();
+        index.put(record("once", "p1", "Visit", "Migraine reported, otherwise well"));
+        index.put(record("twice", "p1", "Visit", "Migraine reported, migraine otherwise well"));
+        index.put(record("title", "p1", "Migraine", "Reported, otherwise well"));
+        index.put(record("other", "p1", "Visit", "Otherwise well"));
+
+        List<String> ids = ids(index.search("migraine", null, 10));
+
+        assertEquals("once", ids.get(ids.size() - 1));
+        assertEquals(3, ids.size());
+    }
+
+    @Test
+    void ignoresCaseAndStopWords() {
+        MedicalRecordIndex index = new MedicalRecordIndex();
+        index.put(record("r1", "p1", "Visit", "The PATIENT is stable"));
+
+        assertEquals(List.of("r1"), ids(index.search("patient", null, 10)));
+        assertTrue(index.search("the is", null, 10).isEmpty());
+        assertEquals(List.of("patient", "stable"), MedicalRecordIndex.tokenize("The PATIENT is stable."));
+    }
+
+    @Test
+    void scopesSearchToPatient() {
+        MedicalRecordIndex index = new MedicalRecordIndex();
+        index.put(record("r1", "p1", "Visit", "Asthma review"));
+        index.put(record("r2", "p2", "Visit", "Asthma inhaler renewed"));
+        index.put(record("r3", "p2", "Visit", "Blood pressure normal"));
+
+        assertEquals(List.of("r2"), ids(index.search("asthma", "p2", 10)));
+        assertEquals(List.of("r1"), ids(index.search("asthma", "p1", 10)));
+        assertEquals(2, index.search("asthma", null, 10).size());
+        assertTrue(index.search("asthma", "p3", 10).isEmpty());
+    }
+
+    @Test
+    void reindexingReplacesOldText() {
+        MedicalRecordIndex index = new MedicalRecordIndex();
+        index.put(record("r1", "p1", "Visit", "Suspected fracture"));
+        index.put(record("r1", "p1", "Visit", "Sprain, no fracture seen"));
+
+        assertEquals(1, index.size());
+        assertTrue(index.search("suspected", null, 10).isEmpty());
+        assertEquals(List.of("r1"), ids(index.search("sprain", null, 10)));
+        assertEquals(1, index.search("fracture", null, 10).size());
+
+        index.put(new MedicalRecord("r1", "p1", "note", "Visit", "Sprain", 0, 2, true));
+        assertEquals(0, index.size());
+        assertTrue(index.search("sprain", null, 10).isEmpty());
+    }
+
+    @Test
+    void compactsAfterRepeatedReindexing() {
+        MedicalRecordIndex index = new MedicalRecordIndex();
+        index.put(record("kept", "p1", "Visit", "Chronic migraine"));
+        int versions = MIN_DEAD_TO_COMPACT + 10;
+        for (int version = 0; version < versions; version++) {
+            index.put(record("edited", "p2", "Visit", "Revision" + version + " of the discharge summary"));
+        }
+
+        assertEquals(2, index.size());
+        // Every revision added its own term; compaction dropped those of the replaced versions
+        assertTrue(index.getTermCount() < 100, "terms " + index.getTermCount());
+        assertTrue(index.search("revision0", null, 10).isEmpty());
+        assertEquals(List.of("edited"), ids(index.search("revision" + (versions - 1), null, 10)));
+        assertEquals(List.of("edited"), ids(index.search("discharge", "p2", 10)));
+        assertEquals(List.of("kept"), ids(index.search("migraine", "p1", 10)));
+    }
+
+    @Test
+    void compactsAfterRemovingMostRecords() {
+        MedicalRecordIndex index = new MedicalRecordIndex();
+        int records = 2 * MIN_DEAD_TO_COMPACT;
+        for (int i = 0; i < records; i++) {
+            index.put(record("r" + i, "p" + (i % 2), "Visit", "Note" + i + " blood test"));
+        }
+        long bytesBefore = index.getPostingsBytes();
+        for (int i = 0; i < records; i++) {
+            if (i % 8 != 0) {
+                index.remove("r" + i);
+            }
+        }
+
+        assertEquals(records / 8, index.size());
+        assertTrue(index.getPostingsBytes() < bytesBefore * 3 / 4, "postings " + index.getPostingsBytes());
+        assertTrue(index.search("note1", null, 10).isEmpty());
+        // Documents were renumbered; hits must still point at the right records and patients
+        assertEquals(List.of("r16"), ids(index.search("note16", null, 10)));
+        assertEquals(List.of("r16"), ids(index.search("note16", "p0", 10)));
+        assertEquals(records / 8, index.search("blood", "p0", records).size());
+        assertTrue(index.search("blood", "p1", records).isEmpty());
+
+        index.put(record("r1", "p1", "Visit", "Note1 blood test"));
+        assertEquals(List.of("r1"), ids(index.search("note1", null, 10)));
+    }
+
+    @Test
+    void returnsShortTextUnchanged() {
+        assertEquals("Wrist fracture", MedicalRecordIndex.snippet("Wrist fracture", "fracture", 20));
+    }
+
+    @Test
+    void snippetAtStartOfText() {
+        String text = "Fracture of the left wrist. " + "Routine check. ".repeat(40);
+
+        String snippet = MedicalRecordIndex.snippet(text, "wrist fracture", SNIPPET_CHARS);
+
+        assertTrue(snippet.startsWith("Fracture of the left wrist."), snippet);
+        assertTrue(snippet.endsWith("..."), snippet);
+        assertTrue(snippet.length() <= SNIPPET_CHARS + 3, snippet);
+    }
+
+    @Test
+    void snippetInMiddleOfText() {
+        String filler = "Routine check. ".repeat(40);
+        String text = filler + "Fracture of the left wrist, cast applied. " + filler;
+
+        String snippet = MedicalRecordIndex.snippet(text, "wrist fracture", SNIPPET_CHARS);
+
+        assertTrue(snippet.startsWith("..."), snippet);
+        assertTrue(snippet.endsWith("..."), snippet);
+        assertTrue(snippet.contains("Fracture of the left wrist"), snippet);
+        assertTrue(snippet.length() <= SNIPPET_CHARS + 6, snippet);
+        // Cut at word boundaries
+        assertTrue(text.contains(snippet.substring(3, snippet.length() - 3)), snippet);
+    }
+
+    @Test
+    void snippetAtEndOfText() {
+        String text = "Routine check. ".repeat(40) + "Left wrist fracture";
+
+        String snippet = MedicalRecordIndex.snippet(text, "fracture", SNIPPET_CHARS);
+
+        assertTrue(snippet.startsWith("..."), snippet);
+        assertTrue(snippet.endsWith("Left wrist fracture"), snippet);
+        assertTrue(snippet.length() <= SNIPPET_CHARS + 3, snippet);
+    }
+
+    @Test
+    void snippetPrefersStretchWithMostDistinctTerms() {
+        String filler = "Routine check. ".repeat(40);
+        String text = "Wrist pain. " + filler + "Wrist fracture confirmed. " + filler;
+
+        String snippet = MedicalRecordIndex.snippet(text, "wrist fracture", SNIPPET_CHARS);
+
+        assertTrue(snippet.contains("Wrist fracture confirmed"), snippet);
+        assertFalse(snippet.contains("pain"), snippet);
+    }
+
+    @Test
+    void snippetWithoutMatchStartsAtBeginning() {
+        String text = "Routine check. ".repeat(40);
+
+        String snippet = MedicalRecordIndex.snippet(text, "fracture", SNIPPET_CHARS);
+
+        assertTrue(snippet.startsWith("Routine check."), snippet);
+        assertTrue(snippet.endsWith("..."), snippet);
+    }
+}